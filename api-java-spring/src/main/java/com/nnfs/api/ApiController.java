@@ -1,93 +1,124 @@
 package com.nnfs.api;
 
-import com.nnfs.nn.Model;
+import com.nnfs.math.Matrix;
 import com.nnfs.math.MatrixOps;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class ApiController {
-    private final Model model;
+    private final ModelRegistry models;
+    private final SseBroadcaster broadcaster;
 
-    public ApiController() {
-        Model tempModel;
-        try (InputStream is = getClass().getResourceAsStream("/model/weights.json")) {
-            if (is == null) {
-                // No weights file found → fallback to default model
-                tempModel = new Model(2, 64, 3, 1337L);
-            } else {
-                String json = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-                try {
-                    tempModel = WeightsLoader.load(json);
-                } catch (Exception e) {
-                    // Defensive fallback in case of corrupt weights.json
-                    e.printStackTrace();
-                    tempModel = new Model(2, 64, 3, 1337L);
-                }
-            }
-        } catch (IOException e) {
-            // Defensive fallback in case of I/O error
-            e.printStackTrace();
-            tempModel = new Model(2, 64, 3, 1337L);
-        }
-        this.model = tempModel;
+    public ApiController(ModelRegistry models, SseBroadcaster broadcaster) {
+        this.models = models;
+        this.broadcaster = broadcaster;
     }
 
     // --- Health check ---
     @GetMapping("/health")
-    public Map<String, String> health() {
-        return Map.of("status", "ok");
+    public Map<String, Object> health() {
+        ModelRegistry.Version active = models.active();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("status", "ok");
+        m.put("model", active.name);
+        m.put("version", active.version);
+        m.put("precision", active.model.precision().dtype());
+        m.put("models", models.activeVersions());
+        return m;
+    }
+
+    @GetMapping("/models")
+    public Map<String, List<Map<String, Object>>> listModels() {
+        return models.describe();
     }
 
     // --- Inference (alias for predict) ---
     public record PredictRequest(double[][] x) {}
     public record PredictResponse(double[][] probs, int[] argmax) {}
+    /** {@code ?topk=k}: the k most likely classes per row, most likely first, and their probabilities. */
+    public record TopKResponse(int[][] classes, double[][] probs, int[] argmax) {}
 
+    /**
+     * Handled asynchronously: the request thread is released while the rows wait for (and run
+     * in) the compute pool. A saturated pool answers 429 via {@link ApiExceptionHandler}.
+     */
     @PostMapping("/predict")
-    public PredictResponse predict(@RequestBody PredictRequest req) {
-        double[][] probs = model.forward(req.x());
-        int[] arg = MatrixOps.argmax(probs);
-        return new PredictResponse(probs, arg);
+    public CompletableFuture<?> predict(@RequestBody PredictRequest req,
+                                        @RequestParam(required = false) String model,
+                                        @RequestParam(required = false) String version,
+                                        @RequestParam(required = false) Integer topk) {
+        if (topk == null) {
+            return models.resolve(model, version).forward(req.x())
+                    .thenApply(probs -> new PredictResponse(probs, MatrixOps.argmax(probs)));
+        }
+        return models.resolve(model, version).forward(Matrix.of(req.x()))
+                .thenApply(probs -> topK(probs, topk));
     }
 
     @PostMapping("/inference")
-    public PredictResponse inference(@RequestBody PredictRequest req) {
-        return predict(req); // reuse predict
+    public CompletableFuture<?> inference(@RequestBody PredictRequest req,
+                                          @RequestParam(required = false) String model,
+                                          @RequestParam(required = false) String version,
+                                          @RequestParam(required = false) Integer topk) {
+        return predict(req, model, version, topk); // reuse predict
     }
 
-    // --- Training Stream via SSE ---
-    @GetMapping("/train/stream")
-    public SseEmitter trainStream() {
-        SseEmitter emitter = new SseEmitter();
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            try {
-                for (int epoch = 1; epoch <= 5; epoch++) {
-                    // Simulate training metrics
-                    double loss = Math.random();
-                    double accuracy = Math.random();
+    /**
+     * {@code application/octet-stream} variant of /predict and /inference in the {@link TensorCodec}
+     * format: rows are decoded into the model's input matrix and the probabilities (or top-k
+     * classes) are streamed back in the request's dtype.
+     */
+    @PostMapping(value = {"/predict", "/inference"}, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> predictBinary(InputStream body,
+                                                                                  @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long length,
+                                                                                  @RequestParam(required = false) String model,
+                                                                                  @RequestParam(required = false) String version,
+                                                                                  @RequestParam(required = false) Integer topk) throws IOException {
+        ModelRegistry.Version v = models.resolve(model, version);
+        if (topk != null && (topk < 1 || topk > v.model.outputSize()))
+            throw new IllegalArgumentException("topk must be between 1 and " + v.model.outputSize());
+        long t0 = System.nanoTime();
+        TensorCodec.Tensor in = TensorCodec.read(body, v.model.inputSize(), length == null ? -1 : length);
+        v.decodeTime.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        return v.forward(in.x()).thenApply(probs -> {
+            int[][] top = topk == null ? null : MatrixOps.topk(probs, topk);
+            StreamingResponseBody out = os -> {
+                long t1 = System.nanoTime();
+                if (top == null) TensorCodec.write(probs, in.dtype(), os);
+                else TensorCodec.writeTopK(probs, top, in.dtype(), os);
+                v.encodeTime.record(System.nanoTime() - t1, TimeUnit.NANOSECONDS);
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(out);
+        });
+    }
 
-                    emitter.send(Map.of(
-                        "epoch", epoch,
-                        "loss", loss,
-                        "accuracy", accuracy
-                    ));
+    static TopKResponse topK(Matrix probs, int k) {
+        int[][] classes = MatrixOps.topk(probs, k);
+        double[][] p = new double[probs.rows][k];
+        int[] argmax = new int[probs.rows];
+        for (int i = 0; i < probs.rows; i++) {
+            for (int j = 0; j < k; j++) p[i][j] = probs.get(i, classes[i][j]);
+            argmax[i] = classes[i][0];
+        }
+        return new TopKResponse(classes, p, argmax);
+    }
 
-                    Thread.sleep(1000);
-                }
-                emitter.complete();
-            } catch (Exception e) {
-                emitter.completeWithError(e);
-            }
-        });
-        executor.shutdown();
-        return emitter;
+    // --- Training Stream via SSE (metrics of the run started with POST /train) ---
+    @GetMapping("/train/stream")
+    public SseEmitter trainStream() {
+        return broadcaster.subscribe("train");
     }
 }
@@ -0,0 +1,13 @@
+package com.nnfs.api;
+
+/**
+ * A request reached a {@link MicroBatcher} after it was closed, i.e. its model version was
+ * retired mid-flight. Answered with 503 so the client retries against the active version.
+ */
+public class BatcherClosedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public BatcherClosedException() {
+        super("Batcher closed");
+    }
+}
@@ -0,0 +1,217 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Turns uploaded images into MNIST-style model input: 28x28 grayscale in [0, 1], row-major.
+ * Each target row box-averages the source rows it covers. Source rows are converted to integer
+ * luminance (alpha is coverage over a black background) straight from the raster's data buffer
+ * for the usual byte-interleaved and packed-int layouts, and through one bulk {@code getPixels} /
+ * {@code getRGB} call per row otherwise; the averages go directly into a row of the caller's
+ * input matrix. The per-row scratch buffers come from a small pool, so steady-state uploads of
+ * similar width allocate nothing beyond the decoder's own image.
+ */
+final class ImageInput {
+    private ImageInput(){}
+
+    static final int SIDE = 28, PIXELS = SIDE * SIDE;
+    /** Decoded images larger than this are rejected before their pixels are read. */
+    static final long MAX_PIXELS = 1L << 24;
+    /** Scratch rows wider than this are not returned to the pool. */
+    static final int MAX_POOLED = 1 << 16;
+    /** Luminance of a fully opaque white pixel: (77R + 150G + 29B) scaled by alpha in 0..255. */
+    static final int WHITE = 256 * 255 * 255;
+
+    private static final class Scratch {
+        int[] samples = new int[0], lum = new int[0];
+        final int[] x0 = new int[SIDE], x1 = new int[SIDE];
+        final long[] acc = new long[SIDE];
+
+        int[] samples(int n){ if (samples.length < n) samples = new int[n]; return samples; }
+        int[] lum(int n){ if (lum.length < n) lum = new int[n]; return lum; }
+    }
+    private static final ArrayBlockingQueue<Scratch> POOL = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /** Decodes one image from in and writes its 784 features into row {@code row} of x. */
+    static void read(InputStream in, Matrix x, int row) throws IOException {
+        if (x.cols != PIXELS) throw new IllegalArgumentException("input matrix must have " + PIXELS + " columns");
+        write(decode(in), x, row);
+    }
+
+    /** Writes the 784 features of an already decoded image into row {@code row} of x. */
+    static void write(BufferedImage img, Matrix x, int row) {
+        Scratch s = POOL.poll();
+        if (s == null) s = new Scratch();
+        try {
+            int w = img.getWidth(), h = img.getHeight();
+            int[] x0 = s.x0, x1 = s.x1;
+            for (int tx = 0; tx < SIDE; tx++) {
+                x0[tx] = (int) ((long) tx * w / SIDE);
+                x1[tx] = Math.max(x0[tx] + 1, (int) ((long) (tx + 1) * w / SIDE));
+            }
+            Rows src = new Rows(img, s);
+            long[] acc = s.acc;
+            int base = x.offset + row * x.rowStride;
+            for (int ty = 0; ty < SIDE; ty++) {
+                int y0 = (int) ((long) ty * h / SIDE), y1 = Math.max(y0 + 1, (int) ((long) (ty + 1) * h / SIDE));
+                Arrays.fill(acc, 0L);
+                for (int y = y0; y < y1; y++) {
+                    int[] lum = src.row(y);
+                    for (int tx = 0; tx < SIDE; tx++) {
+                        long sum = 0;
+                        for (int c = x0[tx], end = x1[tx]; c < end; c++) sum += lum[c];
+                        acc[tx] += sum;
+                    }
+                }
+                for (int tx = 0; tx < SIDE; tx++)
+                    x.data[base + (ty * SIDE + tx) * x.colStride] = acc[tx] / ((double) WHITE * (y1 - y0) * (x1[tx] - x0[tx]));
+            }
+        } finally {
+            if (s.lum.length <= MAX_POOLED) POOL.offer(s);
+        }
+    }
+
+    /** Reads the header first so oversized images are refused before they are decoded. */
+    private static BufferedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) throw new IllegalArgumentException("not a readable image");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_PIXELS) throw new IllegalArgumentException("image has " + pixels + " pixels, at most " + MAX_PIXELS + " are accepted");
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Luminance of one source row at a time, 0..{@link #WHITE}, into the scratch row buffer. */
+    private static final class Rows {
+        final BufferedImage img;
+        final Raster r;
+        final int w, bands, bits;
+        final boolean alpha, indexed;
+        final int[] lum, samples;
+        // byte-interleaved layout (TYPE_BYTE_GRAY, TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR, most decoded PNG/JPEG)
+        final byte[] bytes;
+        // packed int layout (TYPE_INT_RGB, TYPE_INT_ARGB, ...)
+        final int[] ints;
+        final int[] bandOffsets, masks, shifts;
+        final int pixelStride, scanlineStride, origin;
+
+        Rows(BufferedImage img, Scratch s){
+            this.img = img;
+            this.r = img.getRaster();
+            this.w = img.getWidth();
+            this.bands = r.getNumBands();
+            SampleModel sm = r.getSampleModel();
+            this.bits = sm.getSampleSize(0);
+            this.indexed = img.getColorModel() instanceof IndexColorModel || bands == 2 || bands > 4;
+            this.alpha = bands == 4 && !img.isAlphaPremultiplied();
+            this.lum = s.lum(w);
+            this.samples = s.samples(w * bands);
+            DataBuffer db = r.getDataBuffer();
+            int tx = r.getSampleModelTranslateX(), ty = r.getSampleModelTranslateY();
+            if (!indexed && db instanceof DataBufferByte && sm instanceof ComponentSampleModel csm && db.getNumBanks() == 1) {
+                bytes = ((DataBufferByte) db).getData();
+                ints = null; masks = null; shifts = null;
+                bandOffsets = csm.getBandOffsets();
+                pixelStride = csm.getPixelStride(); scanlineStride = csm.getScanlineStride();
+                origin = db.getOffset() - ty * scanlineStride - tx * pixelStride;
+            } else if (!indexed && db instanceof DataBufferInt && sm instanceof SinglePixelPackedSampleModel sp && bands >= 3
+                       && Arrays.stream(sp.getSampleSize()).allMatch(b -> b == 8)) {
+                ints = ((DataBufferInt) db).getData();
+                bytes = null; bandOffsets = null;
+                masks = sp.getBitMasks(); shifts = sp.getBitOffsets();
+                pixelStride = 1; scanlineStride = sp.getScanlineStride();
+                origin = db.getOffset() - ty * scanlineStride - tx;
+            } else {
+                bytes = null; ints = null; bandOffsets = null; masks = null; shifts = null;
+                pixelStride = 0; scanlineStride = 0; origin = 0;
+            }
+        }
+
+        int[] row(int y){
+            if (bytes != null) bytesRow(y);
+            else if (ints != null) intsRow(y);
+            else if (indexed) argbRow(img.getRGB(0, y, w, 1, samples, 0, w));
+            else samplesRow(r.getPixels(0, y, w, 1, samples));
+            return lum;
+        }
+
+        private void bytesRow(int y){
+            byte[] b = bytes;
+            int[] out = lum;
+            int n = w, p = origin + y * scanlineStride, ps = pixelStride;
+            if (bands == 1) {
+                int o = bandOffsets[0];
+                for (int i = 0; i < n; i++, p += ps) out[i] = (b[p + o] & 0xFF) * (256 * 255);
+                return;
+            }
+            int oR = bandOffsets[0], oG = bandOffsets[1], oB = bandOffsets[2];
+            if (!alpha) {
+                for (int i = 0; i < n; i++, p += ps)
+                    out[i] = (77 * (b[p + oR] & 0xFF) + 150 * (b[p + oG] & 0xFF) + 29 * (b[p + oB] & 0xFF)) * 255;
+                return;
+            }
+            int oA = bandOffsets[3];
+            for (int i = 0; i < n; i++, p += ps)
+                out[i] = (77 * (b[p + oR] & 0xFF) + 150 * (b[p + oG] & 0xFF) + 29 * (b[p + oB] & 0xFF)) * (b[p + oA] & 0xFF);
+        }
+
+        private void intsRow(int y){
+            int[] d = ints, out = lum;
+            int n = w, p = origin + y * scanlineStride;
+            int mR = masks[0], mG = masks[1], mB = masks[2], sR = shifts[0], sG = shifts[1], sB = shifts[2];
+            int mA = alpha ? masks[3] : 0, sA = alpha ? shifts[3] : 0;
+            for (int i = 0; i < n; i++) {
+                int px = d[p + i];
+                int v = 77 * ((px & mR) >>> sR) + 150 * ((px & mG) >>> sG) + 29 * ((px & mB) >>> sB);
+                out[i] = v * (alpha ? (px & mA) >>> sA : 255);
+            }
+        }
+
+        private void argbRow(int[] argb){
+            int[] out = lum;
+            for (int i = 0; i < w; i++) {
+                int p = argb[i];
+                out[i] = (77 * (p >> 16 & 0xFF) + 150 * (p >> 8 & 0xFF) + 29 * (p & 0xFF)) * (p >>> 24);
+            }
+        }
+
+        /** Any other layout (e.g. 16-bit samples): scaled to 8 bits first. */
+        private void samplesRow(int[] px){
+            int[] out = lum;
+            int shift = Math.max(0, bits - 8);
+            if (bands == 1) {
+                for (int i = 0; i < w; i++) out[i] = (px[i] >>> shift) * (256 * 255);
+                return;
+            }
+            for (int i = 0, k = 0; i < w; i++, k += bands) {
+                int v = 77 * (px[k] >>> shift) + 150 * (px[k + 1] >>> shift) + 29 * (px[k + 2] >>> shift);
+                out[i] = v * (alpha ? px[k + 3] >>> shift : 255);
+            }
+        }
+    }
+}
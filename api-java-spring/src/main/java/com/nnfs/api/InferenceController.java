@@ -1,63 +1,83 @@
-package com.example.controller;
+package com.nnfs.api;
 
-import org.springframework.http.ResponseEntity;
+import com.nnfs.math.Matrix;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.awt.Graphics2D;
-import java.awt.Color;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Digit classification for uploaded images (multipart field {@code file}, repeatable for a batch).
+ * Every image is reduced to 28x28 grayscale by {@link ImageInput} and written into one input
+ * matrix, which goes through the {@code nnfs.image.model} model (any 784-input model in the
+ * registry; {@code ?model=} and {@code ?version=} override it) in a single forward pass.
+ * Multipart uploads to {@code /predict} land here; JSON and binary bodies go to {@link ApiController}.
+ */
 @RestController
 public class InferenceController {
+    static {
+        // ImageIO otherwise spools every decoded stream through a temp file
+        ImageIO.setUseCache(false);
+    }
 
-    // POST /predict
-    @PostMapping("/predict")
-    public ResponseEntity<Map<String, Object>> predict(@RequestParam("file") MultipartFile file) {
-        try {
-            // Read uploaded image (digit.png from frontend)
-            BufferedImage img = ImageIO.read(file.getInputStream());
-
-            if (img == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid image"));
-            }
-
-            // Resize to 28x28 grayscale (MNIST format)
-            BufferedImage resized = new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY);
-            Graphics2D g = resized.createGraphics();
-            g.drawImage(img, 0, 0, 28, 28, null);
-            g.dispose();
-
-            // Convert image to input vector [0..1]
-            double[] input = new double[28 * 28];
-            for (int y = 0; y < 28; y++) {
-                for (int x = 0; x < 28; x++) {
-                    int rgb = resized.getRGB(x, y);
-                    int gray = rgb & 0xFF;
-                    input[y * 28 + x] = gray / 255.0;
-                }
-            }
-
-            // 🔥 Call your trained neural net here
-            // Example: Model model = MyModelLoader.load();
-            // PredictionResult result = model.predict(input);
+    private final ModelRegistry models;
+    private final String imageModel;
+    private final int maxFiles;
 
-            // Temporary mock result for now:
-            int predictedLabel = 5;
-            double score = 0.987;
+    public InferenceController(ModelRegistry models,
+                               @Value("${nnfs.image.model:mnist}") String imageModel,
+                               @Value("${nnfs.image.max-files:256}") int maxFiles) {
+        this.models = models;
+        this.imageModel = imageModel;
+        this.maxFiles = maxFiles;
+    }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("label", predictedLabel);
-            response.put("score", score);
+    public record ImagePrediction(String file, int label, double score) {}
+    /** label and score are those of the first image, for single-upload clients. */
+    public record ImageResponse(int label, double score, List<ImagePrediction> predictions) {}
 
-            return ResponseEntity.ok(response);
+    @PostMapping(value = {"/predict", "/predict/image"}, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ImageResponse> predict(@RequestParam("file") List<MultipartFile> files,
+                                                    @RequestParam(required = false) String model,
+                                                    @RequestParam(required = false) String version) throws IOException {
+        if (files.isEmpty()) throw new IllegalArgumentException("no file uploaded");
+        if (files.size() > maxFiles) throw new IllegalArgumentException("at most " + maxFiles + " images per request");
+        ModelRegistry.Version v = models.resolve(model == null || model.isBlank() ? imageModel : model, version);
+        if (v.model.inputSize() != ImageInput.PIXELS)
+            throw new IllegalArgumentException("model " + v.name + " takes " + v.model.inputSize()
+                    + " inputs; images need a " + ImageInput.PIXELS + "-input (28x28) model");
 
-        } catch (IOException e) {
-            return ResponseEntity.status(500).body(Map.of("error", "Failed to process image"));
+        long t0 = System.nanoTime();
+        Matrix x = new Matrix(files.size(), ImageInput.PIXELS);
+        for (int i = 0; i < files.size(); i++) {
+            try (InputStream in = files.get(i).getInputStream()) {
+                ImageInput.read(in, x, i);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name(files, i) + ": " + e.getMessage());
+            }
         }
+        v.decodeTime.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        return v.forward(x).thenApply(probs -> {
+            List<ImagePrediction> out = new ArrayList<>(probs.rows);
+            for (int i = 0; i < probs.rows; i++) {
+                int label = 0;
+                for (int j = 1; j < probs.cols; j++) if (probs.get(i, j) > probs.get(i, label)) label = j;
+                out.add(new ImagePrediction(name(files, i), label, probs.get(i, label)));
+            }
+            return new ImageResponse(out.get(0).label(), out.get(0).score(), out);
+        });
+    }
+
+    private static String name(List<MultipartFile> files, int i) {
+        String n = files.get(i).getOriginalFilename();
+        return n == null || n.isBlank() ? "file " + i : n;
     }
 }
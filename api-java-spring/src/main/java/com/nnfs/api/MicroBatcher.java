@@ -0,0 +1,195 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.nn.Predictor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces concurrent predict requests into one forward pass. Requests queue their rows; a
+ * dispatcher thread closes a batch once it holds {@code maxRows} rows or the oldest request has
+ * waited {@code maxWait}, copies the rows into one batch matrix, runs a single forward on the
+ * compute executor and completes every caller's future with a row view of the probabilities. At most {@code maxPending} requests may be
+ * queued or computing; beyond that {@link #submit} fails fast with a
+ * {@link RejectedExecutionException} so callers can shed load instead of queueing without bound.
+ */
+public class MicroBatcher implements AutoCloseable {
+    private record Pending(Matrix rows, CompletableFuture<Matrix> result, long enqueued) {}
+
+    private final Predictor model;
+    private final int maxRows, maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long maxWaitNanos;
+    private final Executor compute;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final DistributionSummary batchRows, batchRequests;
+    private final Timer queueWait, forwardTime;
+    private final List<Meter> meters;
+
+    public MicroBatcher(Predictor model, int maxRows, long maxWaitMicros, int maxPending, Executor compute,
+                        MeterRegistry registry, Iterable<Tag> tags) {
+        if (maxRows < 1) throw new IllegalArgumentException("maxRows must be >= 1");
+        if (maxPending < 1) throw new IllegalArgumentException("maxPending must be >= 1");
+        this.model = model;
+        this.maxRows = maxRows;
+        this.maxPending = maxPending;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.compute = compute;
+        this.batchRows = DistributionSummary.builder("nnfs.batch.rows")
+                .description("Rows per coalesced forward pass").tags(tags).publishPercentileHistogram().register(registry);
+        this.batchRequests = DistributionSummary.builder("nnfs.batch.requests")
+                .description("Requests per coalesced forward pass").tags(tags).publishPercentileHistogram().register(registry);
+        this.queueWait = Timer.builder("nnfs.batch.queue.wait")
+                .description("Time a request waits before its batch is dispatched").tags(tags).publishPercentileHistogram().register(registry);
+        this.forwardTime = Timer.builder("nnfs.batch.forward")
+                .description("Forward pass time per batch").tags(tags).publishPercentileHistogram().register(registry);
+        Gauge pendingGauge = Gauge.builder("nnfs.batch.pending", pending, AtomicInteger::get)
+                .description("Requests queued or in a forward pass").tags(tags).register(registry);
+        this.meters = List.of(batchRows, batchRequests, queueWait, forwardTime, pendingGauge);
+        this.dispatcher = new Thread(this::dispatchLoop, "nnfs-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public Predictor model() { return model; }
+    public int pending() { return pending.get(); }
+    /** Everything registered by the constructor, for removal once the batcher is retired. */
+    public List<Meter> meters() { return meters; }
+
+    public CompletableFuture<double[][]> submit(double[][] rows) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == null || rows[i].length != model.inputSize()) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException(
+                        "row " + i + " must have " + model.inputSize() + " features"));
+            }
+        }
+        return submit(rows.length == 0 ? new Matrix(0, model.inputSize()) : Matrix.of(rows)).thenApply(Matrix::toArray);
+    }
+
+    /** Queues the rows of x; the result is a view of this request's rows in the batch output. */
+    public CompletableFuture<Matrix> submit(Matrix x) {
+        CompletableFuture<Matrix> f = new CompletableFuture<>();
+        if (closed) { f.completeExceptionally(new BatcherClosedException()); return f; }
+        if (x.cols != model.inputSize()) {
+            f.completeExceptionally(new IllegalArgumentException("rows must have " + model.inputSize() + " features"));
+            return f;
+        }
+        if (x.rows == 0) { f.complete(new Matrix(0, model.outputSize())); return f; }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            f.completeExceptionally(new RejectedExecutionException("Inference queue full (" + maxPending + " requests pending)"));
+            return f;
+        }
+        f.whenComplete((r, e) -> pending.decrementAndGet());
+        Pending p = new Pending(x, f, System.nanoTime());
+        queue.add(p);
+        // close() may have drained the queue between the check above and the add
+        if (closed && queue.remove(p)) f.completeExceptionally(new BatcherClosedException());
+        return f;
+    }
+
+    private void dispatchLoop() {
+        Pending carry = null;
+        while (!closed) {
+            List<Pending> batch = null;
+            int rows = 0;
+            try {
+                Pending first = carry != null ? carry : queue.take();
+                carry = null;
+                batch = new ArrayList<>();
+                batch.add(first);
+                rows = first.rows().rows;
+                long deadline = first.enqueued() + maxWaitNanos;
+                while (rows < maxRows) {
+                    long left = deadline - System.nanoTime();
+                    Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    if (rows + next.rows().rows > maxRows) { carry = next; break; }
+                    batch.add(next);
+                    rows += next.rows().rows;
+                }
+                dispatch(batch, rows);
+            } catch (InterruptedException e) {
+                // Requests already taken off the queue are only referenced from here
+                if (batch == null) continue;
+                if (closed) fail(batch);
+                else dispatch(batch, rows);
+            }
+        }
+        failPending(carry);
+    }
+
+    private void dispatch(List<Pending> batch, int rows) {
+        long now = System.nanoTime();
+        for (Pending p : batch) queueWait.record(now - p.enqueued(), TimeUnit.NANOSECONDS);
+        batchRows.record(rows);
+        batchRequests.record(batch.size());
+        try {
+            compute.execute(() -> run(batch, rows));
+        } catch (RuntimeException e) {
+            for (Pending p : batch) p.result().completeExceptionally(e);
+        }
+    }
+
+    private void run(List<Pending> batch, int rows) {
+        try {
+            Matrix x;
+            if (batch.size() == 1) x = batch.get(0).rows();
+            else {
+                x = new Matrix(rows, model.inputSize());
+                int off = 0;
+                for (Pending p : batch) {
+                    x.rows(off, off + p.rows().rows).copyFrom(p.rows());
+                    off += p.rows().rows;
+                }
+            }
+            Matrix probs = new Matrix(rows, model.outputSize());
+            long t0 = System.nanoTime();
+            model.predictInto(x, probs);
+            forwardTime.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            int off = 0;
+            for (Pending p : batch) {
+                int n = p.rows().rows;
+                p.result().complete(probs.rows(off, off + n));
+                off += n;
+            }
+        } catch (Throwable t) {
+            for (Pending p : batch) p.result().completeExceptionally(t);
+        }
+    }
+
+    private static void fail(List<Pending> batch) {
+        BatcherClosedException e = new BatcherClosedException();
+        for (Pending p : batch) p.result().completeExceptionally(e);
+    }
+
+    private void failPending(Pending carry) {
+        BatcherClosedException e = new BatcherClosedException();
+        if (carry != null) carry.result().completeExceptionally(e);
+        Pending p;
+        while ((p = queue.poll()) != null) p.result().completeExceptionally(e);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+    }
+}
@@ -0,0 +1,104 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Precision;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bridges the core {@link Instrumentation} events to Micrometer, installed process-wide unless
+ * {@code nnfs.metrics.instrument=false}. Meters are created on first use and then looked up
+ * without allocating: layer timers by kind and (index, pass) slot, the rest by precision or
+ * format.
+ * <ul>
+ *   <li>{@code nnfs.layer} timer, tags {@code layer} (index), {@code kind}, {@code pass}</li>
+ *   <li>{@code nnfs.gemm} timer and {@code nnfs.gemm.gflops} summary, tag {@code precision}</li>
+ *   <li>{@code nnfs.train.step} timer, {@code nnfs.train.step.allocated} (bytes) and
+ *       {@code nnfs.train.step.rows} summaries</li>
+ *   <li>{@code nnfs.model.load} timer, tag {@code format}</li>
+ * </ul>
+ */
+@Component
+public class MicrometerInstrumentation implements Instrumentation {
+    private final MeterRegistry registry;
+    private final Map<String, Timer[]> layers = new ConcurrentHashMap<>();
+    private final Timer[] gemm = new Timer[Precision.values().length];
+    private final DistributionSummary[] gflops = new DistributionSummary[Precision.values().length];
+    private final Timer trainStep;
+    private final DistributionSummary stepAllocated, stepRows;
+    private final Map<String, Timer> loads = new ConcurrentHashMap<>();
+
+    public MicrometerInstrumentation(MeterRegistry registry, @Value("${nnfs.metrics.instrument:true}") boolean enabled) {
+        this.registry = registry;
+        for (Precision p : Precision.values()) {
+            gemm[p.ordinal()] = Timer.builder("nnfs.gemm").description("Time per matrix multiply")
+                    .tags("precision", p.dtype()).publishPercentileHistogram().register(registry);
+            gflops[p.ordinal()] = DistributionSummary.builder("nnfs.gemm.gflops").description("Achieved GFLOP/s per matrix multiply")
+                    .tags("precision", p.dtype()).register(registry);
+        }
+        this.trainStep = Timer.builder("nnfs.train.step").description("Forward, backward and update of one training step")
+                .publishPercentileHistogram().register(registry);
+        this.stepAllocated = DistributionSummary.builder("nnfs.train.step.allocated").description("Bytes allocated by the training thread per step")
+                .baseUnit("bytes").register(registry);
+        this.stepRows = DistributionSummary.builder("nnfs.train.step.rows").description("Rows per training step")
+                .register(registry);
+        if (enabled) Instruments.install(this);
+    }
+
+    @PreDestroy
+    public void uninstall() {
+        if (Instruments.get() == this) Instruments.install(null);
+    }
+
+    @Override
+    public void layer(int index, String kind, boolean backward, int rows, long nanos) {
+        layerTimer(index, kind, backward).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void gemm(Precision precision, int m, int n, int k, long nanos) {
+        gemm[precision.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > 0) gflops[precision.ordinal()].record(2.0 * m * n * k / nanos);
+    }
+
+    @Override
+    public void trainStep(int rows, long nanos, long allocatedBytes) {
+        trainStep.record(nanos, TimeUnit.NANOSECONDS);
+        stepRows.record(rows);
+        if (allocatedBytes >= 0) stepAllocated.record(allocatedBytes);
+    }
+
+    @Override
+    public void modelLoad(String format, long nanos) {
+        loads.computeIfAbsent(format, f -> Timer.builder("nnfs.model.load").description("Time to read a weights file")
+                .tags("format", f).register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer layerTimer(int index, String kind, boolean backward) {
+        int slot = 2 * index + (backward ? 1 : 0);
+        Timer[] ts = layers.get(kind);
+        if (ts != null && slot < ts.length && ts[slot] != null) return ts[slot];
+        synchronized (layers) {
+            ts = layers.get(kind);
+            if (ts == null) ts = new Timer[slot + 1];
+            else if (slot >= ts.length) ts = Arrays.copyOf(ts, slot + 1);
+            if (ts[slot] == null) {
+                ts[slot] = Timer.builder("nnfs.layer").description("Time per layer pass")
+                        .tags("layer", String.valueOf(index), "kind", kind, "pass", backward ? "backward" : "forward")
+                        .publishPercentileHistogram().register(registry);
+            }
+            layers.put(kind, ts);
+            return ts[slot];
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.nn.InferencePlan;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Named, versioned models served by the API. Model files live under {@code nnfs.model.dir} as
+ * {@code <name>/<version>.bin} (or {@code .q8} / {@code .json}). A watcher thread picks up new and
+ * changed files; each is loaded off the request path, shape-checked against the version it
+ * replaces, warmed up and sanity-checked on synthetic rows, and only then published as the
+ * model's active version with a single volatile write. Requests already holding the old version
+ * finish on it; superseded versions stay routable via {@code ?version=} until evicted, and are
+ * closed only after a grace period.
+ */
+@Component
+@DependsOn("micrometerInstrumentation") // so the startup model load is timed
+public class ModelRegistry {
+    public static final String DEFAULT_MODEL = "default";
+    static final long RETIRE_GRACE_SECONDS = 30;
+    /** Checksum of a version that was not loaded from the model directory (bundled, untrained or just trained). */
+    static final String NOT_A_FILE = "-";
+
+    /**
+     * One loaded model file together with the batcher and prediction cache that serve it, the
+     * {@link InferencePlan} compiled from it (forward passes go through the plan; {@code model}
+     * itself is kept for shapes and reporting, and serves directly when it cannot be compiled), and its
+     * {@code nnfs.inference} timers: {@code stage=decode} (request body to input matrix),
+     * {@code predict} (cache lookup, queueing and forward pass) and {@code encode} (binary replies).
+     */
+    public final class Version {
+        public final String name, version, checksum;
+        public final Predictor model;
+        final Predictor engine;
+        public final Instant loadedAt = Instant.now();
+        final MicroBatcher batcher;
+        final PredictionCache cache;
+        final Timer decodeTime, predictTime, encodeTime;
+        /** Meters tagged with this name and version; removed on retirement so they stop pinning it. */
+        private final List<Meter> registered = new ArrayList<>();
+
+        Version(String name, String version, String checksum, Predictor model) {
+            this.name = name; this.version = version; this.checksum = checksum; this.model = model;
+            this.engine = compile(model);
+            List<Tag> tags = List.of(Tag.of("model", name), Tag.of("version", version));
+            this.batcher = batching ? new MicroBatcher(engine, maxRows, maxWaitMicros, maxPending, compute, meters, tags) : null;
+            this.cache = caching ? new PredictionCache(cacheEntries, cacheTtlSeconds, cacheQuantum) : null;
+            if (batcher != null) registered.addAll(batcher.meters());
+            if (cache != null) registered.addAll(cache.register(meters, tags));
+            this.decodeTime = stageTimer("decode", tags);
+            this.predictTime = stageTimer("predict", tags);
+            this.encodeTime = stageTimer("encode", tags);
+            registered.addAll(List.of(decodeTime, predictTime, encodeTime));
+        }
+
+        public CompletableFuture<double[][]> forward(double[][] x) {
+            return timed(forwardRows(x), System.nanoTime());
+        }
+
+        private CompletableFuture<double[][]> forwardRows(double[][] x) {
+            if (cache != null) {
+                for (int i = 0; i < x.length; i++) {
+                    if (x[i] == null || x[i].length != model.inputSize())
+                        return CompletableFuture.failedFuture(new IllegalArgumentException("row " + i + " must have " + model.inputSize() + " features"));
+                }
+                return lookup(x.length == 0 ? new Matrix(0, model.inputSize()) : Matrix.of(x)).thenApply(Matrix::toArray);
+            }
+            if (batcher != null) return batcher.submit(x);
+            return CompletableFuture.supplyAsync(() -> engine.forward(x), compute);
+        }
+
+        /**
+         * As above for rows already in a matrix, e.g. decoded from a binary request. With the cache
+         * on, every row is looked up first and only the misses go to the forward pass.
+         */
+        public CompletableFuture<Matrix> forward(Matrix x) {
+            return timed(lookup(x), System.nanoTime());
+        }
+
+        private CompletableFuture<Matrix> lookup(Matrix x) {
+            if (x.cols != model.inputSize())
+                return CompletableFuture.failedFuture(new IllegalArgumentException("rows must have " + model.inputSize() + " features"));
+            if (cache == null || x.rows == 0) return compute(x);
+            Matrix out = new Matrix(x.rows, model.outputSize());
+            long[] hashes = new long[x.rows];
+            int[] missed = new int[x.rows];
+            int misses = 0;
+            for (int r = 0; r < x.rows; r++) {
+                hashes[r] = cache.hash(x, r);
+                double[] p = cache.get(hashes[r], x, r);
+                if (p == null) missed[misses++] = r;
+                else System.arraycopy(p, 0, out.data, r * out.cols, out.cols);
+            }
+            if (misses == 0) return CompletableFuture.completedFuture(out);
+            Matrix xm = x;
+            if (misses < x.rows) {
+                xm = new Matrix(misses, x.cols);
+                for (int i = 0; i < misses; i++) xm.rows(i, i + 1).copyFrom(x.rows(missed[i], missed[i] + 1));
+            }
+            int n = misses;
+            return compute(xm).thenApply(pm -> {
+                for (int i = 0; i < n; i++) {
+                    int r = missed[i];
+                    out.rows(r, r + 1).copyFrom(pm.rows(i, i + 1));
+                    cache.put(hashes[r], x, r, pm, i);
+                }
+                return out;
+            });
+        }
+
+        private <T> CompletableFuture<T> timed(CompletableFuture<T> f, long t0) {
+            return f.whenComplete((r, e) -> {
+                if (e == null) predictTime.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            });
+        }
+
+        private CompletableFuture<Matrix> compute(Matrix x) {
+            if (batcher != null) return batcher.submit(x);
+            return CompletableFuture.supplyAsync(() -> {
+                Matrix probs = new Matrix(x.rows, model.outputSize());
+                engine.predictInto(x, probs);
+                return probs;
+            }, compute);
+        }
+
+        /**
+         * Removes this version's meters. Meters are keyed by name and tags, so a reload of the same
+         * version must unregister the old one before building its replacement, or it would get
+         * (and later remove) the old meters.
+         */
+        synchronized void unregister() {
+            for (Meter m : registered) meters.remove(m);
+            registered.clear();
+        }
+
+        void close() {
+            if (batcher != null) batcher.close();
+            if (cache != null) cache.clear();
+        }
+
+        public Map<String, Object> describe() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("model", name);
+            m.put("version", version);
+            m.put("precision", model.precision().dtype());
+            m.put("inputs", model.inputSize());
+            m.put("outputs", model.outputSize());
+            m.put("checksum", checksum);
+            m.put("loadedAt", loadedAt.toString());
+            if (engine instanceof InferencePlan plan) m.put("plan", plan.toString());
+            if (cache != null) m.put("cache", cache.describe());
+            return m;
+        }
+    }
+
+    /** The model compiled for {@code nnfs.plan.max-batch} rows, or the model itself when disabled or not compilable (int8). */
+    private Predictor compile(Predictor model) {
+        if (planMaxBatch <= 0) return model;
+        try {
+            return InferencePlan.compile(model, planMaxBatch);
+        } catch (IllegalArgumentException e) {
+            return model;
+        }
+    }
+
+    private Timer stageTimer(String stage, List<Tag> tags) {
+        return Timer.builder("nnfs.inference").description("Per-request inference time by stage")
+                .tags(tags).tags("stage", stage).publishPercentileHistogram().register(meters);
+    }
+
+    private static final class Entry {
+        final ConcurrentSkipListMap<String, Version> versions = new ConcurrentSkipListMap<>(VERSION_ORDER);
+        volatile Version active;
+    }
+
+    /** Numeric versions compare numerically, anything else lexicographically after them. */
+    static final Comparator<String> VERSION_ORDER = (a, b) -> {
+        Long x = parseLong(a), y = parseLong(b);
+        if (x != null && y != null) return Long.compare(x, y);
+        if (x != null) return -1;
+        if (y != null) return 1;
+        return a.compareTo(b);
+    };
+
+    private final boolean batching, caching;
+    private final int cacheEntries;
+    private final long cacheTtlSeconds;
+    private final double cacheQuantum;
+    private final int maxRows, maxPending, keepVersions, planMaxBatch;
+    private final long maxWaitMicros;
+    private final MeterRegistry meters;
+    private final ExecutorService compute;
+    private final Path dir;
+    private final String defaultName;
+    private final Map<String, Entry> models = new ConcurrentSkipListMap<>();
+    private final Map<Path, String> loadedChecksums = new ConcurrentHashMap<>();
+    private final Map<Path, String> rejectedChecksums = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "nnfs-model-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    private WatchService watcher;
+    private Thread watchThread;
+
+    public ModelRegistry(@Value("${nnfs.model.dir:}") String dir,
+                         @Value("${nnfs.model.default:" + DEFAULT_MODEL + "}") String defaultName,
+                         @Value("${nnfs.model.path:}") String path,
+                         @Value("${nnfs.model.int8:false}") boolean int8,
+                         @Value("${nnfs.model.keep-versions:3}") int keepVersions,
+                         @Value("${nnfs.batch.enabled:true}") boolean batching,
+                         @Value("${nnfs.batch.max-rows:64}") int maxRows,
+                         @Value("${nnfs.batch.max-wait-micros:2000}") long maxWaitMicros,
+                         @Value("${nnfs.compute.threads:0}") int threads,
+                         @Value("${nnfs.compute.max-pending:1024}") int maxPending,
+                         @Value("${nnfs.cache.enabled:false}") boolean caching,
+                         @Value("${nnfs.cache.max-entries:65536}") int cacheEntries,
+                         @Value("${nnfs.cache.ttl-seconds:300}") long cacheTtlSeconds,
+                         @Value("${nnfs.cache.quantum:1e-6}") double cacheQuantum,
+                         @Value("${nnfs.plan.max-batch:256}") int planMaxBatch,
+                         MeterRegistry meters) throws IOException {
+        this.defaultName = defaultName;
+        this.batching = batching;
+        this.caching = caching;
+        this.cacheEntries = cacheEntries;
+        this.cacheTtlSeconds = cacheTtlSeconds;
+        this.cacheQuantum = cacheQuantum;
+        this.maxRows = maxRows;
+        this.maxWaitMicros = maxWaitMicros;
+        this.maxPending = maxPending;
+        this.keepVersions = Math.max(1, keepVersions);
+        this.planMaxBatch = planMaxBatch;
+        this.meters = meters;
+        this.compute = computePool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), maxPending);
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+
+        loadInitial(path, int8);
+        if (this.dir != null) {
+            Files.createDirectories(this.dir);
+            scan();
+            startWatcher();
+        }
+        if (models.isEmpty()) {
+            // Nothing deployable found: serve an untrained model, but say so in /health
+            System.err.println("No model weights found; serving a randomly initialised model");
+            publish(defaultName, new Version(defaultName, "untrained", NOT_A_FILE, new Model(2, 64, 3, 1337L)));
+        }
+    }
+
+    /**
+     * Fixed, core-sized pool for forward passes. Its queue is bounded, so once it is full
+     * submissions are rejected (answered with 429) rather than piling up.
+     */
+    static ExecutorService computePool(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "nnfs-compute");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** The bundled int8 model (when enabled), {@code nnfs.model.path} or the bundled weights, registered as the default model. */
+    private void loadInitial(String path, boolean int8) {
+        try {
+            Predictor p = int8 ? WeightsLoader.loadQuantizedResource() : null;
+            String version = "bundled";
+            if (p == null && !path.isBlank()) {
+                Path file = Path.of(path);
+                p = WeightsLoader.loadFile(file);
+                version = stripExtension(file.getFileName().toString());
+            }
+            if (p == null) p = WeightsLoader.loadResource();
+            if (p != null) install(defaultName, version, NOT_A_FILE, p);
+        } catch (Exception e) {
+            System.err.println("Could not load the initial model: " + e);
+        }
+    }
+
+    /**
+     * The requested version of a model. A null name selects {@code nnfs.model.default} (or, when
+     * that is not loaded, the first model by name); a null version selects the active one.
+     */
+    public Version resolve(String name, String version) {
+        boolean byDefault = name == null || name.isBlank();
+        Entry e = models.get(byDefault ? defaultName : name);
+        if (e == null && byDefault && !models.isEmpty()) e = models.values().iterator().next();
+        if (e == null) throw new NoSuchElementException("Unknown model " + name);
+        if (version == null || version.isBlank()) return e.active;
+        Version v = e.versions.get(version);
+        if (v == null) throw new NoSuchElementException("Unknown version " + version + " of model " + e.active.name);
+        return v;
+    }
+
+    public Version active() { return resolve(null, null); }
+
+    /** Active version per model name. */
+    public Map<String, String> activeVersions() {
+        Map<String, String> m = new LinkedHashMap<>();
+        models.forEach((name, e) -> m.put(name, e.active.version));
+        return m;
+    }
+
+    /** Every loaded version of every model, oldest first, as {@link Version#describe()} plus whether it is the active one. */
+    public Map<String, List<Map<String, Object>>> describe() {
+        Map<String, List<Map<String, Object>>> m = new LinkedHashMap<>();
+        models.forEach((name, e) -> {
+            List<Map<String, Object>> vs = new java.util.ArrayList<>();
+            for (Version v : e.versions.values()) {
+                Map<String, Object> d = v.describe();
+                d.put("active", v == e.active);
+                vs.add(d);
+            }
+            m.put(name, vs);
+        });
+        return m;
+    }
+
+    public Map<String, List<String>> versions() {
+        Map<String, List<String>> m = new LinkedHashMap<>();
+        models.forEach((name, e) -> m.put(name, List.copyOf(e.versions.keySet())));
+        return m;
+    }
+
+    // --- loading ---
+
+    private void scan() {
+        try (DirectoryStream<Path> names = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path modelDir : names) {
+                List<Path> files = new java.util.ArrayList<>();
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(modelDir, ModelRegistry::isModelFile)) {
+                    ds.forEach(files::add);
+                }
+                files.sort(Comparator.comparing(f -> stripExtension(f.getFileName().toString()), VERSION_ORDER));
+                for (Path f : files) loadIfChanged(f);
+                if (watcher != null) register(modelDir);
+            }
+        } catch (IOException e) {
+            System.err.println("Model directory scan failed: " + e);
+        }
+        retireMissing();
+    }
+
+    private void loadIfChanged(Path file) {
+        try {
+            String sum = checksum(file);
+            if (sum.equals(loadedChecksums.get(file)) || sum.equals(rejectedChecksums.get(file))) return;
+            rejectedChecksums.put(file, sum);
+            String name = file.getParent().getFileName().toString();
+            String version = stripExtension(file.getFileName().toString());
+            install(name, version, sum, WeightsLoader.loadFile(file));
+            loadedChecksums.put(file, sum);
+            rejectedChecksums.remove(file);
+        } catch (Exception e) {
+            // Keep serving whatever is active; a bad file never replaces a good model
+            System.err.println("Rejected model file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validates and warms up a freshly loaded model, then registers it under {@code name}; it becomes the
+     * active version unless a newer file (by {@link #VERSION_ORDER}) is already active.
+     */
+    synchronized void install(String name, String version, String checksum, Predictor p) {
+        Entry e = models.get(name);
+        Version current = e == null ? null : e.active;
+        if (current != null && (current.model.inputSize() != p.inputSize() || current.model.outputSize() != p.outputSize()))
+            throw new IllegalArgumentException("shape " + p.inputSize() + "->" + p.outputSize() + " does not match active "
+                    + current.model.inputSize() + "->" + current.model.outputSize());
+        warmUp(p);
+        Version reloaded = e == null ? null : e.versions.get(version);
+        if (reloaded != null) reloaded.unregister();
+        publish(name, new Version(name, version, checksum, p));
+    }
+
+    private synchronized void publish(String name, Version v) {
+        Entry e = models.computeIfAbsent(name, k -> new Entry());
+        Version replaced = e.versions.put(v.version, v);
+        // An older file (restored, or touched after a newer one) is routable via ?version= but never rolls back
+        boolean activate = e.active == null || NOT_A_FILE.equals(e.active.checksum)
+                || VERSION_ORDER.compare(v.version, e.active.version) >= 0;
+        if (activate) e.active = v;
+        if (replaced != null) retire(replaced);
+        while (e.versions.size() > keepVersions) {
+            Map.Entry<String, Version> oldest = e.versions.firstEntry();
+            if (oldest.getValue() == e.active) break;
+            e.versions.remove(oldest.getKey(), oldest.getValue());
+            retire(oldest.getValue());
+        }
+        if (activate) System.out.println("Serving model " + name + " version " + v.version + " (" + v.model.precision().dtype() + ")");
+        else if (e.versions.get(v.version) == v)
+            System.out.println("Loaded model " + name + " version " + v.version + "; newer version " + e.active.version + " stays active");
+        else System.out.println("Model " + name + " version " + v.version + " is older than the " + keepVersions + " kept versions; not loaded");
+    }
+
+    /** Runs a full batch of synthetic rows through the model and rejects it if the output is not a distribution. */
+    static void warmUp(Predictor p) {
+        Random rnd = new Random(0);
+        double[][] x = new double[64][p.inputSize()];
+        for (double[] row : x) for (int j = 0; j < row.length; j++) row[j] = rnd.nextGaussian();
+        for (int i = 0; i < 3; i++) {
+            double[][] probs = p.forward(x);
+            for (double[] row : probs) {
+                double sum = 0.0;
+                for (double v : row) {
+                    if (!Double.isFinite(v)) throw new IllegalArgumentException("model produces non-finite outputs");
+                    sum += v;
+                }
+                if (Math.abs(sum - 1.0) > 1e-3) throw new IllegalArgumentException("model outputs do not sum to 1");
+            }
+        }
+    }
+
+    /** Drops versions whose file disappeared; the active version falls back to the newest remaining one. */
+    private void retireMissing() {
+        rejectedChecksums.keySet().removeIf(f -> !Files.exists(f));
+        for (Path f : List.copyOf(loadedChecksums.keySet())) {
+            if (Files.exists(f)) continue;
+            loadedChecksums.remove(f);
+            Entry e = models.get(f.getParent().getFileName().toString());
+            if (e == null) continue;
+            Version v = e.versions.get(stripExtension(f.getFileName().toString()));
+            if (v == null || e.versions.size() == 1) continue;
+            e.versions.remove(v.version, v);
+            if (e.active == v) e.active = e.versions.lastEntry().getValue();
+            retire(v);
+        }
+    }
+
+    /** In-flight requests may still hold {@code v}; close it once they have had time to drain. */
+    private void retire(Version v) {
+        v.unregister();
+        if (v.cache != null) v.cache.clear();
+        background.schedule(v::close, RETIRE_GRACE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // --- watching ---
+
+    private void startWatcher() throws IOException {
+        watcher = dir.getFileSystem().newWatchService();
+        register(dir);
+        try (DirectoryStream<Path> names = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path d : names) register(d);
+        }
+        watchThread = new Thread(this::watchLoop, "nnfs-model-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void register(Path d) throws IOException {
+        d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                key.pollEvents();
+                key.reset();
+                // Writers rename complete files into place; a short pause coalesces bursts of events
+                Thread.sleep(200);
+                WatchKey more;
+                while ((more = watcher.poll()) != null) { more.pollEvents(); more.reset(); }
+                background.execute(this::scan);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    static boolean isModelFile(Path p) {
+        String n = p.getFileName().toString();
+        return Files.isRegularFile(p) && (n.endsWith(".bin") || n.endsWith(".q8") || n.endsWith(".json"));
+    }
+
+    static String stripExtension(String file) {
+        int dot = file.lastIndexOf('.');
+        return dot < 0 ? file : file.substring(0, dot);
+    }
+
+    static String checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(file));
+        return String.format("%08x", crc.getValue());
+    }
+
+    private static Long parseLong(String s) {
+        try { return Long.parseLong(s.startsWith("v") ? s.substring(1) : s); } catch (NumberFormatException e) { return null; }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchThread != null) watchThread.interrupt();
+        if (watcher != null) watcher.close();
+        background.shutdownNow();
+        for (Entry e : models.values()) e.versions.values().forEach(Version::close);
+        compute.shutdown();
+    }
+}
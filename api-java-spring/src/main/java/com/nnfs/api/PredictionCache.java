@@ -0,0 +1,169 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of per-row predictions for one model version. A row is quantised to multiples of
+ * {@code quantum} (0 keeps the exact bits) and hashed to 64 bits; entries keep the quantised row,
+ * so a hash collision is a miss, never a wrong answer. Rows that do not quantise exactly (NaN,
+ * infinities, or magnitudes whose multiple of the quantum reaches 2^53) are never looked up or stored. Entries live in up to {@value #STRIPES} stripes, each an
+ * access-ordered map behind its own lock, evicted least recently used once a stripe holds its share
+ * of {@code maxEntries} and dropped on lookup once older than the TTL. The cache belongs to a
+ * {@link ModelRegistry.Version}, so a newly published version starts empty and its predecessor's
+ * entries go away with it.
+ */
+final class PredictionCache {
+    /** Upper bound on the stripe count; small caches use fewer so the size bound stays exact. */
+    static final int STRIPES = 16;
+
+    private static final class Entry {
+        final long[] row;
+        final double[] probs;
+        final long expiresAt;
+
+        Entry(long[] row, double[] probs, long expiresAt){
+            this.row = row; this.probs = probs; this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Stripe extends LinkedHashMap<Long, Entry> {
+        Stripe(){ super(16, 0.75f, true); }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest){
+            if (size() <= perStripe) return false;
+            evicted.increment();
+            return true;
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int perStripe, mask;
+    private final long ttlNanos;
+    private final double invQuantum;
+    final LongAdder hits = new LongAdder(), misses = new LongAdder(), evicted = new LongAdder(), expired = new LongAdder();
+
+    PredictionCache(int maxEntries, long ttlSeconds, double quantum){
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be >= 1");
+        if (quantum < 0) throw new IllegalArgumentException("quantum must be >= 0");
+        int n = Integer.highestOneBit(Math.min(STRIPES, maxEntries));
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) stripes[i] = new Stripe();
+        this.mask = n - 1;
+        this.perStripe = maxEntries / n;
+        this.ttlNanos = ttlSeconds > 0 ? TimeUnit.SECONDS.toNanos(ttlSeconds) : Long.MAX_VALUE;
+        this.invQuantum = quantum > 0 ? 1.0 / quantum : 0.0;
+    }
+
+    /** Registers the hit, miss, eviction and size meters and returns them so the owner can remove them. */
+    List<Meter> register(MeterRegistry registry, Iterable<Tag> tags){
+        return List.of(
+                FunctionCounter.builder("nnfs.cache.hits", this, c -> c.hits.sum())
+                        .description("Rows answered from the prediction cache").tags(tags).register(registry),
+                FunctionCounter.builder("nnfs.cache.misses", this, c -> c.misses.sum())
+                        .description("Rows that needed a forward pass").tags(tags).register(registry),
+                FunctionCounter.builder("nnfs.cache.evictions", this, c -> c.evicted.sum())
+                        .description("Entries dropped to stay within max-entries").tags(Tags.concat(tags, "cause", "size")).register(registry),
+                FunctionCounter.builder("nnfs.cache.evictions", this, c -> c.expired.sum())
+                        .description("Entries dropped after their TTL").tags(Tags.concat(tags, "cause", "expired")).register(registry),
+                Gauge.builder("nnfs.cache.size", this, PredictionCache::size)
+                        .description("Entries in the prediction cache").tags(tags).register(registry));
+    }
+
+    /** 2^53: beyond this, multiples of the quantum are no longer distinct longs (and round saturates). */
+    private static final double EXACT = 0x1.0p53;
+
+    /** True when every value of row r quantises to a key that only equal rows share. */
+    boolean cacheable(Matrix x, int r){
+        int base = x.offset + r * x.rowStride;
+        for (int j = 0; j < x.cols; j++) {
+            double v = x.data[base + j * x.colStride];
+            if (!Double.isFinite(v) || (invQuantum != 0.0 && !(Math.abs(v * invQuantum) < EXACT))) return false;
+        }
+        return true;
+    }
+
+    private long quantise(double v){
+        if (invQuantum == 0.0) return v == 0.0 ? 0L : Double.doubleToLongBits(v);
+        return Math.round(v * invQuantum);
+    }
+
+    /** 64-bit hash of the quantised row r of x. */
+    long hash(Matrix x, int r){
+        long h = 0x9E3779B97F4A7C15L ^ x.cols;
+        int base = x.offset + r * x.rowStride;
+        for (int j = 0; j < x.cols; j++) {
+            h = (h ^ quantise(x.data[base + j * x.colStride])) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    /** The cached probabilities of row r of x (do not modify), or null on a miss or an uncacheable row. */
+    double[] get(long hash, Matrix x, int r){
+        if (!cacheable(x, r)) { misses.increment(); return null; }
+        Stripe s = stripes[(int) hash & mask];
+        Entry e;
+        synchronized (s) {
+            e = s.get(hash);
+            if (e != null && ttlNanos != Long.MAX_VALUE && System.nanoTime() - e.expiresAt > 0) {
+                s.remove(hash);
+                expired.increment();
+                e = null;
+            }
+        }
+        if (e == null || !sameRow(e.row, x, r)) { misses.increment(); return null; }
+        hits.increment();
+        return e.probs;
+    }
+
+    /** Stores row pr of probs as the prediction for row r of x, unless the row is not cacheable. */
+    void put(long hash, Matrix x, int r, Matrix probs, int pr){
+        if (!cacheable(x, r)) return;
+        long[] row = new long[x.cols];
+        int base = x.offset + r * x.rowStride;
+        for (int j = 0; j < row.length; j++) row[j] = quantise(x.data[base + j * x.colStride]);
+        double[] p = new double[probs.cols];
+        for (int j = 0; j < p.length; j++) p[j] = probs.get(pr, j);
+        Entry e = new Entry(row, p, ttlNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + ttlNanos);
+        Stripe s = stripes[(int) hash & mask];
+        synchronized (s) { s.put(hash, e); }
+    }
+
+    private boolean sameRow(long[] row, Matrix x, int r){
+        if (row.length != x.cols) return false;
+        int base = x.offset + r * x.rowStride;
+        for (int j = 0; j < row.length; j++)
+            if (row[j] != quantise(x.data[base + j * x.colStride])) return false;
+        return true;
+    }
+
+    long size(){
+        long n = 0;
+        for (Stripe s : stripes) synchronized (s) { n += s.size(); }
+        return n;
+    }
+
+    void clear(){
+        for (Stripe s : stripes) synchronized (s) { s.clear(); }
+    }
+
+    Map<String, Object> describe(){
+        return Map.of("size", size(), "hits", hits.sum(), "misses", misses.sum(),
+                "evictions", evicted.sum() + expired.sum());
+    }
+}
@@ -0,0 +1,192 @@
+package com.nnfs.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fans server-sent events out to any number of subscribers. One scheduler thread produces and
+ * serializes each topic's payload once per tick; the blocking writes run on a writer pool, at
+ * most one per subscriber at a time. A subscriber still writing when the next event arrives keeps
+ * only the newest one (the backlog is a single event), and one whose write has not finished
+ * within {@code nnfs.sse.write-timeout-millis} is dropped, so a stalled client never holds up
+ * the other subscribers or topics.
+ */
+@Component
+public class SseBroadcaster {
+    private final ObjectMapper json;
+    private final long writeTimeoutNanos;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "nnfs-sse-broadcaster");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService writers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "nnfs-sse-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<Object>>> sinks = new ConcurrentHashMap<>();
+
+    public SseBroadcaster(ObjectMapper json, @Value("${nnfs.sse.write-timeout-millis:5000}") long writeTimeoutMillis) {
+        this.json = json;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+    }
+
+    /** Publishes {@code payload.get()} to the topic's subscribers every {@code periodMillis}; a null payload skips the tick. */
+    public void register(String topic, long periodMillis, Supplier<?> payload) {
+        topics.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet());
+        scheduler.scheduleAtFixedRate(() -> {
+            // An exception escaping here would cancel the topic for good
+            try {
+                dropStalled(topic);
+                if (subscribers(topic) == 0 && sinks.getOrDefault(topic, List.of()).isEmpty()) return;
+                Object data = payload.get();
+                if (data != null) publish(topic, data);
+            } catch (Throwable t) {
+                System.err.println("Stream " + topic + " skipped a tick: " + t);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Also hands every tick's payload for {@code topic} to {@code sink}, e.g. a STOMP destination. */
+    public void forward(String topic, Consumer<Object> sink) {
+        sinks.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(sink);
+    }
+
+    public SseEmitter subscribe(String topic) {
+        return subscribe(topic, new SseEmitter(Long.MAX_VALUE));
+    }
+
+    SseEmitter subscribe(String topic, SseEmitter emitter) {
+        Set<Subscriber> subs = topics.get(topic);
+        if (subs == null) throw new IllegalArgumentException("Unknown stream " + topic);
+        Subscriber s = new Subscriber(emitter, subs);
+        emitter.onCompletion(() -> subs.remove(s));
+        emitter.onTimeout(() -> subs.remove(s));
+        emitter.onError(e -> subs.remove(s));
+        subs.add(s);
+        return emitter;
+    }
+
+    public int subscribers(String topic) {
+        Set<Subscriber> subs = topics.get(topic);
+        return subs == null ? 0 : subs.size();
+    }
+
+    /** Serializes once and queues the event for every current subscriber. */
+    public void publish(String topic, Object data) {
+        for (Consumer<Object> sink : sinks.getOrDefault(topic, List.of())) {
+            try {
+                sink.accept(data);
+            } catch (RuntimeException e) {
+                System.err.println("Stream sink for " + topic + " failed: " + e);
+            }
+        }
+        Set<Subscriber> subs = topics.get(topic);
+        if (subs == null || subs.isEmpty()) return;
+        String body;
+        try {
+            body = json.writeValueAsString(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize " + topic + " event", e);
+        }
+        for (Subscriber s : subs) s.offer(body);
+    }
+
+    private void dropStalled(String topic) {
+        long now = System.nanoTime();
+        for (Subscriber s : topics.getOrDefault(topic, Set.of())) {
+            long since = s.writingSince;
+            if (since != 0 && now - since > writeTimeoutNanos)
+                s.drop(new TimeoutException("write did not finish within " + TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos) + " ms"));
+        }
+    }
+
+    /** One client: at most one write in flight and the newest event waiting behind it. */
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Set<Subscriber> topic;
+        final AtomicReference<String> next = new AtomicReference<>();
+        final AtomicBoolean writing = new AtomicBoolean();
+        /** nanoTime the current write started, 0 when idle. */
+        volatile long writingSince;
+        volatile boolean dropped;
+
+        Subscriber(SseEmitter emitter, Set<Subscriber> topic) {
+            this.emitter = emitter; this.topic = topic;
+        }
+
+        void offer(String body) {
+            next.set(body);
+            drain();
+        }
+
+        private void drain() {
+            while (!dropped && next.get() != null && writing.compareAndSet(false, true)) {
+                String body = next.getAndSet(null);
+                if (body == null) { writing.set(false); continue; }
+                writingSince = System.nanoTime();
+                try {
+                    writers.execute(() -> write(body));
+                } catch (RejectedExecutionException e) {
+                    writingSince = 0;
+                    writing.set(false);
+                }
+                return;
+            }
+        }
+
+        private void write(String body) {
+            try {
+                emitter.send(body, MediaType.APPLICATION_JSON);
+            } catch (IOException | RuntimeException e) {
+                drop(e);
+            } finally {
+                writingSince = 0;
+                writing.set(false);
+            }
+            drain();
+        }
+
+        /** Unsubscribes now; completing the emitter waits for a stalled send, so it happens on a writer. */
+        void drop(Throwable cause) {
+            if (dropped) return;
+            dropped = true;
+            topic.remove(this);
+            try {
+                writers.execute(() -> emitter.completeWithError(cause));
+            } catch (RejectedExecutionException e) {
+                emitter.completeWithError(cause);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        writers.shutdownNow();
+        for (Set<Subscriber> subs : topics.values()) subs.forEach(s -> s.emitter.complete());
+    }
+}
@@ -0,0 +1,137 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Binary tensor format for {@code application/octet-stream} requests to /predict and /inference.
+ * Everything is little-endian:
+ * <pre>
+ *   request:  int magic "NNTB"   int dtype (1 = float64, 2 = float32)   int rows   int cols
+ *             rows*cols values, row-major
+ *   response: the same header with cols = classes, then rows*classes probabilities
+ *   top-k:    int magic "NNTK"   int dtype   int rows   int k
+ *             rows*k int class indices (largest probability first), then rows*k probabilities
+ * </pre>
+ * The response uses the request's dtype. Rows are decoded straight into the backing array of the
+ * matrix that goes to the model (sized from the Content-Length, never from the header alone), and probabilities are encoded in fixed-size chunks onto the
+ * response stream, so neither side builds a per-row object graph or a whole-body byte array.
+ */
+public final class TensorCodec {
+    private TensorCodec(){}
+
+    public static final int MAGIC = 'N' | 'N' << 8 | 'T' << 16 | 'B' << 24;
+    public static final int MAGIC_TOPK = 'N' | 'N' << 8 | 'T' << 16 | 'K' << 24;
+    public static final int DTYPE_F64 = 1, DTYPE_F32 = 2;
+    static final int HEADER_BYTES = 16;
+    /** Largest rows*cols accepted in one request (128 MB of float64). */
+    static final long MAX_ELEMENTS = 1L << 24;
+    static final int CHUNK = 64 * 1024;
+
+    /** A decoded request: the rows and the dtype the response should use. */
+    public record Tensor(Matrix x, int dtype) {}
+
+    /** Reads a request body of unknown length; see {@link #read(InputStream, int, long)}. */
+    public static Tensor read(InputStream in, int features) throws IOException {
+        return read(in, features, -1);
+    }
+
+    /**
+     * Reads a request body, checking that every row has {@code features} columns. The header is
+     * not trusted for allocation: a known {@code length} (the Content-Length, -1 if unknown) must
+     * match the size the header declares before the matrix is allocated, and without one the
+     * matrix grows with the values that actually arrive, so a short body costs what it sent.
+     */
+    public static Tensor read(InputStream in, int features, long length) throws IOException {
+        ByteBuffer h = ByteBuffer.wrap(in.readNBytes(HEADER_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        if (h.remaining() < HEADER_BYTES || h.getInt() != MAGIC) throw new IllegalArgumentException("body is not an NNTB tensor");
+        int dtype = h.getInt(), rows = h.getInt(), cols = h.getInt();
+        if (dtype != DTYPE_F64 && dtype != DTYPE_F32) throw new IllegalArgumentException("unknown dtype " + dtype);
+        if (cols != features) throw new IllegalArgumentException("rows must have " + features + " features, got " + cols);
+        if (rows < 0 || (long) rows * cols > MAX_ELEMENTS)
+            throw new IllegalArgumentException("rows must be between 0 and " + MAX_ELEMENTS / Math.max(1, cols));
+        int width = dtype == DTYPE_F64 ? 8 : 4;
+        long total = (long) rows * cols;
+        if (length >= 0 && length != HEADER_BYTES + total * width)
+            throw new IllegalArgumentException("header declares " + total + " values (" + total * width + " bytes) but the body has "
+                    + Math.max(0, length - HEADER_BYTES) + " bytes after it");
+        byte[] chunk = new byte[(int) Math.min(CHUNK, Math.max(width, total * width))];
+        double[] data = new double[(int) (length >= 0 ? total : Math.min(total, chunk.length / width))];
+        ByteBuffer buf = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+        int off = 0;
+        while (off < total) {
+            int n = (int) Math.min(total - off, chunk.length / width);
+            if (in.readNBytes(chunk, 0, n * width) != n * width) throw new IllegalArgumentException("body truncated after " + off + " values");
+            if (off + n > data.length) data = Arrays.copyOf(data, (int) Math.min(total, Math.max(off + n, 2L * data.length)));
+            buf.clear();
+            if (dtype == DTYPE_F64) buf.asDoubleBuffer().get(data, off, n);
+            else for (int i = 0; i < n; i++) data[off + i] = buf.getFloat(i * 4);
+            off += n;
+        }
+        if (in.read() != -1) throw new IllegalArgumentException("body has trailing bytes after " + total + " values");
+        return new Tensor(Matrix.wrap(data, rows, cols), dtype);
+    }
+
+    /** Writes probs (rows x classes) as a response tensor. */
+    public static void write(Matrix probs, int dtype, OutputStream out) throws IOException {
+        Encoder e = new Encoder(out, dtype);
+        e.header(MAGIC, probs.rows, probs.cols);
+        for (int i = 0; i < probs.rows; i++)
+            for (int j = 0; j < probs.cols; j++) e.value(probs.get(i, j));
+        e.flush();
+    }
+
+    /** Writes the k most likely classes of each row and their probabilities. */
+    public static void writeTopK(Matrix probs, int[][] topk, int dtype, OutputStream out) throws IOException {
+        int k = topk.length == 0 ? 0 : topk[0].length;
+        Encoder e = new Encoder(out, dtype);
+        e.header(MAGIC_TOPK, probs.rows, k);
+        for (int[] row : topk) for (int c : row) e.index(c);
+        for (int i = 0; i < probs.rows; i++)
+            for (int c : topk[i]) e.value(probs.get(i, c));
+        e.flush();
+    }
+
+    /** Little-endian writer that fills one chunk at a time and hands it to the stream. */
+    private static final class Encoder {
+        final OutputStream out;
+        final int dtype;
+        final ByteBuffer buf = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+        Encoder(OutputStream out, int dtype){
+            if (dtype != DTYPE_F64 && dtype != DTYPE_F32) throw new IllegalArgumentException("unknown dtype " + dtype);
+            this.out = out; this.dtype = dtype;
+        }
+
+        void header(int magic, int rows, int cols){
+            buf.putInt(magic).putInt(dtype).putInt(rows).putInt(cols);
+        }
+
+        void index(int c) throws IOException {
+            if (buf.remaining() < 4) drain();
+            buf.putInt(c);
+        }
+
+        void value(double v) throws IOException {
+            if (buf.remaining() < 8) drain();
+            if (dtype == DTYPE_F64) buf.putDouble(v); else buf.putFloat((float) v);
+        }
+
+        void drain() throws IOException {
+            out.write(buf.array(), 0, buf.position());
+            buf.clear();
+        }
+
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+    }
+}
@@ -2,23 +2,25 @@ package com.nnfs.api;
 
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.util.Map;
 
 @Controller
 public class TrainWsController {
+    private final TrainingService training;
 
-   
+    public TrainWsController(TrainingService training, SseBroadcaster broadcaster, SimpMessagingTemplate template) {
+        this.training = training;
+        // Same sampled stream as /train/stream, pushed to STOMP subscribers of /topic/metrics
+        broadcaster.forward("train", data -> template.convertAndSend("/topic/metrics", data));
+    }
+
+    // Replies with the newest training step on request
     @MessageMapping("/train")
-    
     @SendTo("/topic/metrics")
-    public Map<String, Object> trainMetrics(String msg) throws Exception {
-       
-        return Map.of(
-            "epoch", (int)(Math.random() * 10),
-            "loss", Math.random(),
-            "accuracy", Math.random()
-        );
+    public Map<String, Object> trainMetrics(String msg) {
+        return training.latestMetrics();
     }
 }
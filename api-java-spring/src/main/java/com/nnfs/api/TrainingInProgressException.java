@@ -0,0 +1,10 @@
+package com.nnfs.api;
+
+/** POST /train while another run is pending or running; answered with 409 Conflict. */
+public class TrainingInProgressException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public TrainingInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,209 @@
+package com.nnfs.api;
+
+import com.nnfs.io.WeightsFile;
+import com.nnfs.nn.Predictor;
+import com.nnfs.train.TelemetryRing;
+import com.nnfs.train.TrainConfig;
+import com.nnfs.train.TrainingEngine;
+import com.nnfs.train.TrainingJob;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs {@link TrainingJob}s in the background, one at a time, and streams their telemetry.
+ * The training thread only writes into the job's {@link TelemetryRing}; the broadcaster thread
+ * samples the newest step on each tick (older steps are skipped, which is the decimation), so
+ * the stream rate is independent of the step rate and of the number of subscribers.
+ * A finished model is published to the registry as model {@value #MODEL_NAME}.
+ */
+@Component
+public class TrainingService {
+    static final String MODEL_NAME = "trained";
+    /**
+     * Trainer options a client may set on POST /train. Data, checkpoint and distributed settings
+     * read or write server paths and open sockets, so they only come from {@code nnfs.train.*}.
+     */
+    static final List<String> CLIENT_OPTIONS = List.of("epochs", "batchSize", "lr", "optimizer", "momentum", "beta1", "beta2",
+            "schedule", "lrEvery", "lrGamma", "minLr", "warmup", "seed", "shuffle", "precision");
+
+    private final ModelRegistry models;
+    private final Path modelDir;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "nnfs-trainer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final List<String> serverOptions = new ArrayList<>();
+    private final int maxEpochs, maxBatchSize;
+    private volatile TrainingJob job;
+
+    public TrainingService(ModelRegistry models, SseBroadcaster broadcaster,
+                           @Value("${nnfs.model.dir:}") String modelDir,
+                           @Value("${nnfs.train.stream-period-millis:250}") long period,
+                           @Value("${nnfs.train.data:}") String data,
+                           @Value("${nnfs.train.checkpoint-dir:}") String checkpointDir,
+                           @Value("${nnfs.train.checkpoint-every:0}") int checkpointEvery,
+                           @Value("${nnfs.train.resume:false}") boolean resume,
+                           @Value("${nnfs.train.max-epochs:20000}") int maxEpochs,
+                           @Value("${nnfs.train.max-batch-size:4096}") int maxBatchSize) {
+        this.models = models;
+        this.modelDir = modelDir.isBlank() ? null : Path.of(modelDir);
+        this.maxEpochs = maxEpochs;
+        this.maxBatchSize = maxBatchSize;
+        if (!data.isBlank()) serverOptions.add("--data=" + data);
+        if (!checkpointDir.isBlank() && checkpointEvery > 0) {
+            serverOptions.add("--checkpointDir=" + checkpointDir);
+            serverOptions.add("--checkpointEvery=" + checkpointEvery);
+            if (resume) serverOptions.add("--resume");
+        }
+        broadcaster.register("train", period, new Sampler() {
+            @Override Object payload(TelemetryRing.Snapshot s) { return metrics(s); }
+        });
+        broadcaster.register("activations", period, new Sampler() {
+            @Override Object payload(TelemetryRing.Snapshot s) { return activations(s); }
+        });
+        broadcaster.register("layers", period, new Sampler() {
+            @Override Object payload(TelemetryRing.Snapshot s) { return Map.of("activity", s.activeFraction); }
+        });
+    }
+
+    /** Per-topic cursor: yields the newest step once, then null until a newer one is published. */
+    private abstract class Sampler implements java.util.function.Supplier<Object> {
+        private TelemetryRing.Snapshot snap;
+        private TrainingJob seenJob;
+        private long seen = -1;
+
+        @Override
+        public Object get() {
+            TrainingJob j = job;
+            if (j == null) return null;
+            if (j != seenJob) { seenJob = j; seen = -1; snap = new TelemetryRing.Snapshot(j.telemetry().width()); }
+            long latest = j.telemetry().latest();
+            if (latest <= seen || !j.telemetry().read(latest, snap)) return null;
+            seen = latest;
+            return payload(snap);
+        }
+
+        abstract Object payload(TelemetryRing.Snapshot s);
+    }
+
+    static Map<String, Object> metrics(TelemetryRing.Snapshot s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("epoch", s.epoch);
+        m.put("step", s.step);
+        m.put("loss", s.loss);
+        m.put("accuracy", s.accuracy);
+        m.put("gradNorm", s.gradNorm);
+        m.put("samplesPerSec", s.samplesPerSec);
+        return m;
+    }
+
+    /** Hidden-unit means scaled to [0, 1] by the largest one (reported as "scale"), plus the fraction of active units. */
+    static Map<String, Object> activations(TelemetryRing.Snapshot s) {
+        double max = 0.0;
+        for (double v : s.activationMeans) max = Math.max(max, v);
+        double[] values = new double[s.activationMeans.length];
+        for (int i = 0; i < values.length; i++) values[i] = max > 0 ? s.activationMeans[i] / max : 0.0;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("values", values);
+        m.put("activity", s.activeFraction);
+        m.put("scale", max);
+        return m;
+    }
+
+    /**
+     * Starts a run configured by {@link #CLIENT_OPTIONS} ({@code {"epochs": "2000", "batchSize": "32"}});
+     * any other key, or a value out of bounds, is an IllegalArgumentException (400).
+     */
+    public synchronized Map<String, Object> start(Map<String, String> options) {
+        TrainConfig cfg = config(options, serverOptions, maxEpochs, maxBatchSize);
+        TrainingJob current = job;
+        if (current != null && (current.state() == TrainingJob.State.RUNNING || current.state() == TrainingJob.State.PENDING))
+            throw new TrainingInProgressException("A training run is already in progress");
+        TrainingJob next = new TrainingJob(cfg);
+        job = next;
+        runner.execute(() -> {
+            try {
+                next.run();
+                if (next.state() == TrainingJob.State.DONE) publish(next.result());
+            } catch (Throwable t) {
+                System.err.println("Training run failed: " + t);
+            }
+        });
+        return status();
+    }
+
+    /** The client's options (allow-listed and bounded) followed by the server's own. */
+    static TrainConfig config(Map<String, String> options, List<String> serverOptions, int maxEpochs, int maxBatchSize) {
+        List<String> args = new ArrayList<>();
+        if (options != null) {
+            for (Map.Entry<String, String> o : options.entrySet()) {
+                if (!CLIENT_OPTIONS.contains(o.getKey()))
+                    throw new IllegalArgumentException("'" + o.getKey() + "' cannot be set through /train (allowed: " + String.join(", ", CLIENT_OPTIONS) + ")");
+                args.add("--" + o.getKey() + "=" + o.getValue());
+            }
+        }
+        args.addAll(serverOptions);
+        TrainConfig c = TrainConfig.fromArgs(args.toArray(new String[0]));
+        if (c.epochs < 1 || c.epochs > maxEpochs) throw new IllegalArgumentException("epochs must be between 1 and " + maxEpochs);
+        if (c.batchSize > maxBatchSize) throw new IllegalArgumentException("batchSize must be between 0 and " + maxBatchSize);
+        if (!(c.lr > 0 && c.lr <= 10)) throw new IllegalArgumentException("lr must be in (0, 10]");
+        if (!(c.momentum >= 0 && c.momentum < 1 && c.beta1 >= 0 && c.beta1 < 1 && c.beta2 >= 0 && c.beta2 < 1))
+            throw new IllegalArgumentException("momentum, beta1 and beta2 must be in [0, 1)");
+        if (c.lrEvery < 1 || c.lrEvery > maxEpochs || !(c.lrGamma > 0 && c.lrGamma <= 1) || !(c.minLr >= 0 && c.minLr <= c.lr) || c.warmup > c.epochs)
+            throw new IllegalArgumentException("lrEvery must be in 1.." + maxEpochs + ", lrGamma in (0, 1], minLr in [0, lr] and warmup at most epochs");
+        return c;
+    }
+
+    /** Persists into the watched model directory when there is one, else installs directly. */
+    private void publish(Predictor trained) throws java.io.IOException {
+        String version = Long.toString(System.currentTimeMillis());
+        if (modelDir != null) WeightsFile.write(trained, modelDir.resolve(MODEL_NAME).resolve(version + ".bin"));
+        else models.install(MODEL_NAME, version, ModelRegistry.NOT_A_FILE, trained);
+    }
+
+    public void cancel() {
+        TrainingJob j = job;
+        if (j != null) j.cancel();
+    }
+
+    public Map<String, Object> status() {
+        TrainingJob j = job;
+        Map<String, Object> m = new LinkedHashMap<>();
+        if (j == null) { m.put("state", "IDLE"); return m; }
+        m.put("state", j.state().name());
+        m.put("epochs", j.config().epochs);
+        TrainingEngine.EpochResult r = j.lastEpoch();
+        if (r != null) {
+            m.put("epoch", r.epoch());
+            m.put("loss", r.loss());
+            m.put("accuracy", r.accuracy());
+        }
+        if (j.error() != null) m.put("error", String.valueOf(j.error()));
+        return m;
+    }
+
+    /** Newest step of the current run, or an empty map when nothing has been published yet. */
+    public Map<String, Object> latestMetrics() {
+        TrainingJob j = job;
+        if (j == null) return Map.of();
+        TelemetryRing.Snapshot s = new TelemetryRing.Snapshot(j.telemetry().width());
+        if (!j.telemetry().read(j.telemetry().latest(), s)) return Map.of();
+        return metrics(s);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+        runner.shutdownNow();
+    }
+}
@@ -1,97 +1,85 @@
 package com.nnfs.api;
 
+import com.nnfs.io.JsonWeights;
+import com.nnfs.io.WeightsFile;
+import com.nnfs.metrics.Instruments;
 import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+import com.nnfs.quant.QuantizedModel;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Reads weights files; every file and resource load is reported to {@link Instruments} by format. */
 public final class WeightsLoader {
     private WeightsLoader() {}
 
-    public static Model load(String json) {
-        if (json == null || json.isBlank()) {
-            throw new IllegalArgumentException("Weights JSON cannot be null or empty");
-        }
-
-        int idxW1 = json.indexOf("\"l1\":{\"W\":");
-        int idxB1 = json.indexOf("\"b\":", idxW1);
-        int idxW2 = json.indexOf("\"l2\":{\"W\":");
-        int idxB2 = json.indexOf("\"b\":", idxW2);
-
-        if (idxW1 == -1 || idxB1 == -1 || idxW2 == -1 || idxB2 == -1) {
-            throw new IllegalArgumentException("Invalid weights.json format: missing keys");
-        }
-
-        double[][] W1 = parseMatrix(
-                safeSubstring(json, json.indexOf('[', idxW1), json.indexOf(']', idxB1) + 1, "W1"));
-        double[] b1 = parseVector(
-                safeSubstring(json, json.indexOf('[', idxB1), json.indexOf(']', idxW2) + 1, "b1"));
-        double[][] W2 = parseMatrix(
-                safeSubstring(json, json.indexOf('[', idxW2), json.indexOf(']', idxB2) + 1, "W2"));
-        double[] b2 = parseVector(
-                safeSubstring(json, json.indexOf('[', idxB2), json.lastIndexOf(']') + 1, "b2"));
-
-        Model m = new Model(W1.length, b1.length, b2.length, 1);
-        m.l1.W = W1;
-        m.l1.b = b1;
-        m.l2.W = W2;
-        m.l2.b = b2;
-        return m;
+    /** Loads weights, returning a float32 model when the file declares {@code "dtype":"float32"}. */
+    public static Predictor loadPredictor(String json) {
+        return JsonWeights.parse(json);
     }
 
-    private static String safeSubstring(String s, int start, int end, String fieldName) {
-        if (start < 0 || end <= start || end > s.length()) {
-            throw new IllegalArgumentException("Invalid JSON structure for field: " + fieldName);
-        }
-        return s.substring(start, end);
+    public static Model load(String json) {
+        return JsonWeights.parseModel(json);
     }
 
-    static double[][] parseMatrix(String s) {
-        s = cleanPrefix(s);
-        int start = s.indexOf('[');
-        int end = s.lastIndexOf(']');
-        if (start == -1 || end == -1 || start >= end) {
-            return new double[0][0];
-        }
-        s = s.substring(start + 1, end).trim();
-        if (s.isEmpty()) return new double[0][0];
+    /** Memory-maps a binary weights file from disk. */
+    public static Predictor loadBinary(Path path) throws IOException {
+        return WeightsFile.read(path);
+    }
 
-        String[] rows = s.split("\\],\\[");
-        double[][] M = new double[rows.length][];
-        for (int i = 0; i < rows.length; i++) {
-            String row = rows[i].replace("[", "").replace("]", "").trim();
-            if (row.isEmpty()) {
-                M[i] = new double[0];
-                continue;
-            }
-            String[] parts = row.split(",");
-            M[i] = new double[parts.length];
-            for (int j = 0; j < parts.length; j++) {
-                M[i][j] = Double.parseDouble(parts[j].trim());
+    /** Loads a model file by extension: {@code .bin} (mapped), {@code .q8} (int8) or {@code .json}. */
+    public static Predictor loadFile(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        long t0 = System.nanoTime();
+        Predictor p;
+        if (name.endsWith(".bin")) p = WeightsFile.read(path);
+        else if (name.endsWith(".q8")) {
+            try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+                p = QuantizedModel.read(is);
             }
-        }
-        return M;
+        } else if (name.endsWith(".json")) p = JsonWeights.parse(Files.readString(path));
+        else throw new IllegalArgumentException("Unsupported model file " + name);
+        Instruments.get().modelLoad(name.substring(name.lastIndexOf('.') + 1), System.nanoTime() - t0);
+        return p;
     }
 
-    static double[] parseVector(String s) {
-        s = cleanPrefix(s);
-        int start = s.indexOf('[');
-        int end = s.indexOf(']', start);
-        if (start == -1 || end == -1 || start >= end) {
-            return new double[0];
-        }
-        s = s.substring(start + 1, end).trim();
-        if (s.isEmpty()) return new double[0];
-
-        String[] parts = s.split(",");
-        double[] v = new double[parts.length];
-        for (int i = 0; i < parts.length; i++) {
-            v[i] = Double.parseDouble(parts[i].trim());
+    /** The int8 {@code /model/weights.q8} resource, or null when it is not bundled. */
+    public static Predictor loadQuantizedResource() throws IOException {
+        long t0 = System.nanoTime();
+        try (InputStream is = WeightsLoader.class.getResourceAsStream("/model/weights.q8")) {
+            if (is == null) return null;
+            Predictor p = QuantizedModel.read(is);
+            Instruments.get().modelLoad("q8", System.nanoTime() - t0);
+            return p;
         }
-        return v;
     }
 
-    private static String cleanPrefix(String s) {
-        s = s.trim();
-        if (s.startsWith(",")) s = s.substring(1).trim();
-        if (s.startsWith(":")) s = s.substring(1).trim();
-        return s;
+    /**
+     * Loads {@code /model/weights.bin}, falling back to {@code /model/weights.json}, from the
+     * classpath; returns null when neither resource exists.
+     */
+    public static Predictor loadResource() throws IOException {
+        long t0 = System.nanoTime();
+        try (InputStream is = WeightsLoader.class.getResourceAsStream("/model/weights.bin")) {
+            if (is != null) {
+                Predictor p = WeightsFile.read(ByteBuffer.wrap(is.readAllBytes()));
+                Instruments.get().modelLoad("bin", System.nanoTime() - t0);
+                return p;
+            }
+        }
+        try (InputStream is = WeightsLoader.class.getResourceAsStream("/model/weights.json")) {
+            if (is != null) {
+                Predictor p = loadPredictor(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+                Instruments.get().modelLoad("json", System.nanoTime() - t0);
+                return p;
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,89 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.nn.Model;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class MicroBatcherTest {
+
+    private static MicroBatcher batcher(long maxWaitMicros, ExecutorService compute) {
+        return new MicroBatcher(new Model(2, 16, 3, 1L), 64, maxWaitMicros, 1_000_000, compute, new SimpleMeterRegistry(), List.of());
+    }
+
+    @Test
+    void closeFailsRequestsTheDispatcherIsStillCollecting() throws Exception {
+        ExecutorService compute = Executors.newFixedThreadPool(2);
+        try {
+            // a 10 s batching window keeps the first request in the dispatcher's batch when close() interrupts it
+            MicroBatcher b = batcher(10_000_000, compute);
+            CompletableFuture<Matrix> f = b.submit(new Matrix(1, 2));
+            Thread.sleep(100);
+            b.close();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(2, TimeUnit.SECONDS));
+            assertInstanceOf(BatcherClosedException.class, e.getCause());
+        } finally {
+            compute.shutdownNow();
+        }
+    }
+
+    @Test
+    void everyRequestCompletesWhenClosedUnderLoad() throws Exception {
+        ExecutorService compute = Executors.newFixedThreadPool(2);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                MicroBatcher b = batcher(200, compute);
+                AtomicBoolean stop = new AtomicBoolean();
+                List<List<CompletableFuture<Matrix>>> submitted = new ArrayList<>();
+                List<java.util.concurrent.Future<?>> loops = new ArrayList<>();
+                for (int c = 0; c < 4; c++) {
+                    List<CompletableFuture<Matrix>> mine = new ArrayList<>();
+                    submitted.add(mine);
+                    loops.add(clients.submit(() -> {
+                        // keep submitting until a few requests after close() have been refused
+                        int after = 0;
+                        while (after < 50) {
+                            if (stop.get()) after++;
+                            mine.add(b.submit(new Matrix(1 + mine.size() % 3, 2)));
+                        }
+                    }));
+                }
+                Thread.sleep(5);
+                b.close();
+                stop.set(true);
+                for (java.util.concurrent.Future<?> l : loops) l.get(10, TimeUnit.SECONDS);
+                for (List<CompletableFuture<Matrix>> mine : submitted) {
+                    for (CompletableFuture<Matrix> f : mine) {
+                        try {
+                            f.get(5, TimeUnit.SECONDS);
+                        } catch (ExecutionException e) {
+                            assertInstanceOf(BatcherClosedException.class, e.getCause());
+                        } catch (TimeoutException e) {
+                            fail("a request never completed after close() in round " + round);
+                        }
+                    }
+                }
+                assertTrue(b.pending() == 0, "pending=" + b.pending());
+            }
+        } finally {
+            clients.shutdownNow();
+            compute.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.nnfs.api;
+
+import com.nnfs.nn.Model;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModelRegistryTest {
+
+    private final ModelRegistry registry;
+
+    ModelRegistryTest() throws IOException {
+        registry = new ModelRegistry("", "default", "", false, 3, false, 64, 2000, 1, 16,
+                false, 0, 0, 0.0, 0, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        registry.shutdown();
+    }
+
+    private static Model model() {
+        return new Model(2, 8, 3, 1L);
+    }
+
+    @Test
+    void olderVersionIsRoutableButDoesNotBecomeActive() {
+        registry.install("m", "2", "aa", model());
+        registry.install("m", "1", "bb", model());
+        assertEquals("2", registry.resolve("m", null).version);
+        assertEquals("1", registry.resolve("m", "1").version);
+
+        registry.install("m", "3", "cc", model());
+        assertEquals("3", registry.resolve("m", null).version);
+        registry.install("m", "3", "dd", model());
+        assertEquals("dd", registry.resolve("m", null).checksum);
+    }
+
+    @Test
+    void versionOlderThanEveryKeptOneIsDropped() {
+        for (String v : new String[]{"2", "3", "4"}) registry.install("m", v, v, model());
+        registry.install("m", "1", "1", model());
+        assertEquals("4", registry.resolve("m", null).version);
+        assertThrows(java.util.NoSuchElementException.class, () -> registry.resolve("m", "1"));
+    }
+
+    @Test
+    void anyFileSupersedesTheStartupModel() {
+        assertEquals(ModelRegistry.NOT_A_FILE, registry.resolve("default", null).checksum);
+        registry.install("default", "1", "aa", model());
+        assertEquals("1", registry.resolve("default", null).version);
+    }
+}
@@ -0,0 +1,56 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PredictionCacheTest {
+
+    private static final Matrix PROBS = Matrix.wrap(new double[]{0.25, 0.75}, 1, 2);
+
+    private static Matrix row(double... v) {
+        return Matrix.wrap(v, 1, v.length);
+    }
+
+    /** Stores PROBS for {@code stored}, then looks up {@code probe}. */
+    private static double[] storeThenGet(PredictionCache c, Matrix stored, Matrix probe) {
+        c.put(c.hash(stored, 0), stored, 0, PROBS, 0);
+        return c.get(c.hash(probe, 0), probe, 0);
+    }
+
+    @Test
+    void equalRowsHit() {
+        PredictionCache c = new PredictionCache(64, 0, 1e-6);
+        assertArrayEquals(new double[]{0.25, 0.75}, storeThenGet(c, row(0.5, -1.0), row(0.5, -1.0)));
+        assertEquals(1L, c.hits.sum());
+    }
+
+    @Test
+    void nonFiniteRowsAreNeverStoredOrServed() {
+        for (double quantum : new double[]{1e-6, 0.0}) {
+            for (double bad : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+                PredictionCache c = new PredictionCache(64, 0, quantum);
+                assertFalse(c.cacheable(row(bad, 0.0), 0));
+                // NaN used to quantise like 0.0 and poison the all-zeros row
+                assertNull(storeThenGet(c, row(bad, 0.0), row(0.0, 0.0)));
+                assertNull(storeThenGet(c, row(bad, 0.0), row(bad, 0.0)));
+                assertEquals(0L, c.size());
+            }
+        }
+    }
+
+    @Test
+    void valuesBeyondExactQuantisationAreNotCached() {
+        PredictionCache c = new PredictionCache(64, 0, 1e-6);
+        // 1e13 / 1e-6 = 1e19 saturates Math.round to Long.MAX_VALUE, like every larger value
+        assertFalse(c.cacheable(row(1e13, 0.0), 0));
+        assertNull(storeThenGet(c, row(1e13, 0.0), row(5e13, 0.0)));
+        assertEquals(0L, c.size());
+        assertTrue(c.cacheable(row(1e9, -1e9), 0));
+    }
+}
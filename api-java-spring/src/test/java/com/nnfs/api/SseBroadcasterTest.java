@@ -0,0 +1,90 @@
+package com.nnfs.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseBroadcasterTest {
+
+    private final SseBroadcaster broadcaster = new SseBroadcaster(new ObjectMapper(), 200);
+
+    /** Records what it was sent; blocks in send until released when {@code stall} is set. */
+    private static final class Client extends SseEmitter {
+        final List<Object> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final boolean stall;
+        volatile Throwable error;
+
+        Client(boolean stall) { this.stall = stall; }
+
+        @Override
+        public void send(Object o, MediaType m) {
+            sent.add(o);
+            if (stall) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable t) { error = t; }
+    }
+
+    @AfterEach
+    void shutdown() {
+        broadcaster.shutdown();
+    }
+
+    private static void await(Client c, int events) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (c.sent.size() < events && System.nanoTime() < deadline) Thread.sleep(5);
+    }
+
+    @Test
+    void failingPayloadSkipsOnlyThatTick() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        broadcaster.register("t", 10, () -> {
+            if (ticks.incrementAndGet() % 2 == 1) throw new IllegalStateException("boom");
+            return ticks.get();
+        });
+        Client c = new Client(false);
+        broadcaster.subscribe("t", c);
+        await(c, 3);
+        assertTrue(c.sent.size() >= 3, "got " + c.sent);
+    }
+
+    @Test
+    void stalledClientDoesNotHoldUpOthersAndIsDropped() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        broadcaster.register("t", 10, ticks::incrementAndGet);
+        Client stalled = new Client(true), healthy = new Client(false);
+        broadcaster.subscribe("t", stalled);
+        broadcaster.subscribe("t", healthy);
+        await(healthy, 10);
+        assertTrue(healthy.sent.size() >= 10, "got " + healthy.sent);
+        assertEquals(1, stalled.sent.size());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (broadcaster.subscribers("t") > 1 && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(1, broadcaster.subscribers("t"));
+        stalled.release.countDown();
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stalled.error == null && System.nanoTime() < deadline) Thread.sleep(5);
+        assertTrue(stalled.error instanceof java.util.concurrent.TimeoutException, "error " + stalled.error);
+        assertEquals(1, stalled.sent.size());
+    }
+}
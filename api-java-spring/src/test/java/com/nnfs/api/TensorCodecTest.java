@@ -0,0 +1,95 @@
+package com.nnfs.api;
+
+import com.nnfs.math.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TensorCodecTest {
+
+    /** A header for rows x cols float64 values followed by only {@code values} of them. */
+    private static byte[] body(int rows, int cols, int values) {
+        ByteBuffer b = ByteBuffer.allocate(TensorCodec.HEADER_BYTES + 8 * values).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(TensorCodec.MAGIC).putInt(TensorCodec.DTYPE_F64).putInt(rows).putInt(cols);
+        for (int i = 0; i < values; i++) b.putDouble(i * 0.5);
+        return b.array();
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    void roundTripsWithAndWithoutLength() throws IOException {
+        byte[] req = body(3, 2, 6);
+        for (long length : new long[]{req.length, -1}) {
+            TensorCodec.Tensor t = TensorCodec.read(new ByteArrayInputStream(req), 2, length);
+            assertEquals(3, t.x().rows);
+            assertArrayEquals(new double[]{0, 0.5, 1, 1.5, 2, 2.5}, flat(t.x()));
+        }
+    }
+
+    @Test
+    void growsAcrossChunksWithoutLength() throws IOException {
+        int rows = 3 * TensorCodec.CHUNK / 8 / 2 + 7;
+        TensorCodec.Tensor t = TensorCodec.read(new ByteArrayInputStream(body(rows, 2, rows * 2)), 2);
+        assertEquals(rows * 2, t.x().data.length);
+        assertEquals((rows * 2 - 1) * 0.5, t.x().get(rows - 1, 1));
+    }
+
+    @Test
+    void largeHeaderWithShortBodyIsRejectedBeforeAllocating() {
+        int rows = (int) (TensorCodec.MAX_ELEMENTS / 2);
+        byte[] req = body(rows, 2, 2);
+        long before = allocated();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TensorCodec.read(new ByteArrayInputStream(req), 2, req.length));
+        assertTrue(e.getMessage().contains("header declares"), e.getMessage());
+        assertTrue(allocated() - before < 1 << 20, "allocated " + (allocated() - before) + " bytes");
+    }
+
+    @Test
+    void largeHeaderWithShortBodyOfUnknownLengthAllocatesWhatArrived() {
+        int rows = (int) (TensorCodec.MAX_ELEMENTS / 2);
+        byte[] req = body(rows, 2, 2);
+        long before = allocated();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TensorCodec.read(new ByteArrayInputStream(req), 2));
+        assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+        assertTrue(allocated() - before < 1 << 20, "allocated " + (allocated() - before) + " bytes");
+    }
+
+    @Test
+    void lengthMustMatchTheHeader() {
+        byte[] req = body(3, 2, 6);
+        assertThrows(IllegalArgumentException.class, () -> TensorCodec.read(new ByteArrayInputStream(req), 2, req.length + 8));
+        assertThrows(IllegalArgumentException.class, () -> TensorCodec.read(new ByteArrayInputStream(req), 2, req.length - 8));
+    }
+
+    @Test
+    void writesTheRequestDtype() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TensorCodec.write(Matrix.wrap(new double[]{0.25, 0.75}, 1, 2), TensorCodec.DTYPE_F32, out);
+        ByteBuffer b = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(TensorCodec.HEADER_BYTES + 8, b.remaining());
+        assertEquals(TensorCodec.MAGIC, b.getInt());
+        assertEquals(TensorCodec.DTYPE_F32, b.getInt());
+        assertEquals(0.75f, b.getFloat(TensorCodec.HEADER_BYTES + 4));
+    }
+
+    private static double[] flat(Matrix m) {
+        double[] d = new double[m.rows * m.cols];
+        for (int i = 0; i < m.rows; i++) for (int j = 0; j < m.cols; j++) d[i * m.cols + j] = m.get(i, j);
+        return d;
+    }
+}
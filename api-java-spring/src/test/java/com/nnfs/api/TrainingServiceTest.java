@@ -0,0 +1,51 @@
+package com.nnfs.api;
+
+import com.nnfs.train.TrainConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrainingServiceTest {
+
+    private static TrainConfig config(Map<String, String> options) {
+        return TrainingService.config(options, List.of(), 20000, 4096);
+    }
+
+    @Test
+    void acceptsHyperparameters() {
+        TrainConfig c = config(Map.of("epochs", "200", "batchSize", "32", "optimizer", "adam", "lr", "0.01", "seed", "7"));
+        assertEquals(200, c.epochs);
+        assertEquals(32, c.batchSize);
+        assertEquals("adam", c.optimizer);
+    }
+
+    @Test
+    void rejectsServerSideOptions() {
+        for (String key : List.of("data", "checkpointDir", "checkpointEvery", "keepCheckpoints", "resume",
+                "processes", "rank", "coordinator", "hidden", "workers", "json", "quantize"))
+            assertThrows(IllegalArgumentException.class, () -> config(Map.of(key, "1")), key);
+    }
+
+    @Test
+    void rejectsOutOfBoundValues() {
+        assertThrows(IllegalArgumentException.class, () -> config(Map.of("epochs", "20001")));
+        assertThrows(IllegalArgumentException.class, () -> config(Map.of("epochs", "0")));
+        assertThrows(IllegalArgumentException.class, () -> config(Map.of("batchSize", "100000")));
+        assertThrows(IllegalArgumentException.class, () -> config(Map.of("lr", "NaN")));
+        assertThrows(IllegalArgumentException.class, () -> config(Map.of("momentum", "1")));
+        assertThrows(IllegalArgumentException.class, () -> config(Map.of("epochs", "99999999999")));
+    }
+
+    @Test
+    void serverOptionsStillApply() {
+        TrainConfig c = TrainingService.config(Map.of("epochs", "10"), List.of("--checkpointDir=/srv/ckpt", "--checkpointEvery=5"), 20000, 4096);
+        assertEquals("/srv/ckpt", c.checkpointDir);
+        assertEquals(5, c.checkpointEvery);
+        assertFalse(c.resume);
+    }
+}
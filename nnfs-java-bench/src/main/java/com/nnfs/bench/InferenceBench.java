@@ -0,0 +1,104 @@
+package com.nnfs.bench;
+
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.Matrix;
+import com.nnfs.nn.FloatModel;
+import com.nnfs.nn.InferencePlan;
+import com.nnfs.nn.Model;
+import com.nnfs.quant.QuantizedModel;
+import com.nnfs.quant.Quantizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inference as the API performs it ({@code double[][]} in and out, per request) and through
+ * caller-owned buffers, for a single row and for a batch, in float64, float32 and int8, and
+ * through the compiled {@link InferencePlan} the API serves with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class InferenceBench {
+    @Param({"1", "64", "1024"}) public int batch;
+    @Param({"2", "784"}) public int input;
+    @Param({"64", "256"}) public int hidden;
+    @Param({"3", "10"}) public int classes;
+
+    Model model;
+    FloatModel fmodel;
+    QuantizedModel qmodel;
+    InferencePlan plan, fplan;
+    double[][] rows;
+    Matrix X, a1, probs;
+    FMatrix fX, fa1, fprobs;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        model = new Model(input, hidden, classes, 1);
+        fmodel = new FloatModel(model);
+        X = Shapes.gaussian(batch, input, 2);
+        rows = X.toArray();
+        qmodel = Quantizer.quantize(model, X);
+        a1 = new Matrix(batch, hidden); probs = new Matrix(batch, classes);
+        plan = InferencePlan.compile(model, batch);
+        fplan = InferencePlan.compile(fmodel, batch);
+        fX = FMatrix.of(X); fa1 = new FMatrix(batch, hidden); fprobs = new FMatrix(batch, classes);
+    }
+
+    /** The API path: copy rows in, allocate hidden/output, copy probabilities out. */
+    @Benchmark
+    public double[][] predictArray(){
+        return model.forward(rows);
+    }
+
+    @Benchmark
+    public double[][] predictArrayFloat32(){
+        return fmodel.forward(rows);
+    }
+
+    @Benchmark
+    public double[][] predictArrayInt8(){
+        return qmodel.forward(rows);
+    }
+
+    /** Forward into preallocated buffers (no allocation). */
+    @Benchmark
+    public Matrix forwardInto(){
+        model.forwardInto(X, a1, probs);
+        return probs;
+    }
+
+    @Benchmark
+    public FMatrix forwardIntoFloat32(){
+        fmodel.forwardInto(fX, fa1, fprobs);
+        return fprobs;
+    }
+
+    /** The compiled plan into a caller-owned output: per-thread scratch, no allocation. */
+    @Benchmark
+    public Matrix plan(){
+        plan.predictInto(X, probs);
+        return probs;
+    }
+
+    @Benchmark
+    public Matrix planFloat32(){
+        fplan.predictInto(X, probs);
+        return probs;
+    }
+}
@@ -0,0 +1,109 @@
+package com.nnfs.bench;
+
+import com.nnfs.loss.SoftmaxCrossEntropy;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.MatrixOps;
+import com.nnfs.optim.SGD;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The individual kernels of one Dense-ReLU-Dense training step, each writing into
+ * preallocated buffers exactly as {@code TrainingEngine} calls them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class KernelBench {
+    @Param({"1", "32", "256"}) public int batch;
+    @Param({"2", "784"}) public int input;
+    @Param({"64", "256"}) public int hidden;
+    @Param({"3", "10"}) public int classes;
+
+    Matrix X, W1, W2, a1, logits, probs, dZ2, dZ1, dW1, dW2;
+    double[] b1, b2, db1, db2;
+    int[] y;
+    SGD sgd;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        X = Shapes.gaussian(batch, input, 1);
+        W1 = Shapes.gaussian(input, hidden, 2); W2 = Shapes.gaussian(hidden, classes, 3);
+        b1 = new double[hidden]; b2 = new double[classes];
+        a1 = new Matrix(batch, hidden); logits = new Matrix(batch, classes); probs = new Matrix(batch, classes);
+        dZ2 = Shapes.gaussian(batch, classes, 4); dZ1 = new Matrix(batch, hidden);
+        dW1 = Shapes.gaussian(input, hidden, 5); dW2 = Shapes.gaussian(hidden, classes, 6);
+        db1 = new double[hidden]; db2 = new double[classes];
+        y = Shapes.labels(batch, classes, 7);
+        sgd = new SGD(1e-6, 1e-4);
+        MatrixOps.dotBiasReluInto(X, W1, b1, a1);
+    }
+
+    /** Hidden layer forward: ReLU(X*W1 + b1) with the fused epilogue. */
+    @Benchmark
+    public Matrix denseReluForward(){
+        MatrixOps.dotBiasReluInto(X, W1, b1, a1);
+        return a1;
+    }
+
+    /** Output layer forward: a1*W2 + b2. */
+    @Benchmark
+    public Matrix denseForward(){
+        MatrixOps.dotBiasInto(a1, W2, b2, logits);
+        return logits;
+    }
+
+    @Benchmark
+    public Matrix softmax(){
+        probs.copyFrom(logits);
+        MatrixOps.softmaxInPlace(probs);
+        return probs;
+    }
+
+    @Benchmark
+    public double softmaxCrossEntropy(){
+        return SoftmaxCrossEntropy.forwardBackward(logits, y, probs, dZ2);
+    }
+
+    /** Weight gradient dW1 = X^T * dZ1 / n (transposed-A GEMM). */
+    @Benchmark
+    public Matrix weightGradient(){
+        MatrixOps.dotTNInto(1.0 / batch, X, dZ1, dW1);
+        return dW1;
+    }
+
+    /** Backpropagated error dZ1 = dZ2 * W2^T (transposed-B GEMM) then ReLU backward. */
+    @Benchmark
+    public Matrix inputGradient(){
+        MatrixOps.dotNTInto(1.0, dZ2, W2, dZ1);
+        MatrixOps.reluBackwardInPlace(dZ1, a1);
+        return dZ1;
+    }
+
+    @Benchmark
+    public double[] biasGradient(){
+        MatrixOps.meanColsInto(dZ1, db1);
+        return db1;
+    }
+
+    @Benchmark
+    public Matrix sgdStep(){
+        sgd.step(W1, dW1, b1, db1);
+        return W1;
+    }
+}
@@ -0,0 +1,67 @@
+package com.nnfs.bench;
+
+import com.nnfs.io.JsonWeights;
+import com.nnfs.io.WeightsFile;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** Model load time from weights.json (parse) and weights.bin (mapped), i.e. API cold start. */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class LoadBench {
+    @Param({"2", "784"}) public int input;
+    @Param({"64", "1024"}) public int hidden;
+    @Param({"3", "10"}) public int classes;
+
+    Path dir, json, bin;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("nnfs-bench");
+        json = dir.resolve("weights.json"); bin = dir.resolve("weights.bin");
+        Model m = new Model(input, hidden, classes, 1);
+        Files.writeString(json, JsonWeights.toJson(m));
+        WeightsFile.write(m, bin);
+    }
+
+    @Benchmark
+    public Predictor loadJson() throws IOException {
+        return JsonWeights.parse(Files.readString(json));
+    }
+
+    @Benchmark
+    public Predictor loadBinary() throws IOException {
+        return WeightsFile.read(bin);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
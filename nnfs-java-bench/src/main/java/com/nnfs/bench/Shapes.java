@@ -0,0 +1,24 @@
+package com.nnfs.bench;
+
+import com.nnfs.math.Matrix;
+
+import java.util.Random;
+
+/** Synthetic inputs shared by the benchmarks. */
+final class Shapes {
+    private Shapes(){}
+
+    static Matrix gaussian(int rows, int cols, long seed){
+        Matrix M = new Matrix(rows, cols);
+        Random rnd = new Random(seed);
+        for (int i=0;i<M.data.length;i++) M.data[i] = rnd.nextGaussian();
+        return M;
+    }
+
+    static int[] labels(int n, int classes, long seed){
+        Random rnd = new Random(seed);
+        int[] y = new int[n];
+        for (int i=0;i<n;i++) y[i] = rnd.nextInt(classes);
+        return y;
+    }
+}
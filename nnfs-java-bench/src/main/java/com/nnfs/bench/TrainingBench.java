@@ -0,0 +1,66 @@
+package com.nnfs.bench;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+import com.nnfs.nn.FloatModel;
+import com.nnfs.nn.Model;
+import com.nnfs.optim.SGD;
+import com.nnfs.train.TrainConfig;
+import com.nnfs.train.TrainingEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** One full optimizer step (forward, loss, backward, reduce, update) over a dataset of exactly one batch. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class TrainingBench {
+    @Param({"32", "256"}) public int batch;
+    @Param({"2", "784"}) public int input;
+    @Param({"64", "256"}) public int hidden;
+    @Param({"3", "10"}) public int classes;
+    @Param({"1", "4"}) public int workers;
+    @Param({"float64", "float32"}) public String precision;
+
+    TrainingEngine engine;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        Matrix X = Shapes.gaussian(batch, input, 1);
+        int[] y = Shapes.labels(batch, classes, 2);
+        TrainConfig cfg = new TrainConfig();
+        cfg.workers = workers;
+        cfg.precision = Precision.parse(precision);
+        Model m = new Model(input, hidden, classes, 3);
+        SGD sgd = new SGD(1e-3, 1e-4);
+        engine = cfg.precision == Precision.FLOAT32
+                ? new TrainingEngine(new FloatModel(m), sgd, X, y, cfg)
+                : new TrainingEngine(m, sgd, X, y, cfg);
+    }
+
+    @Benchmark
+    public TrainingEngine.EpochResult step() throws InterruptedException {
+        return engine.runEpoch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        engine.close();
+    }
+}
@@ -0,0 +1,162 @@
+package com.nnfs.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-size records in a little-endian file:
+ * <pre>
+ *   int magic "NNDS"   int version   int dtype (1 = float64, 2 = float32)   int features
+ *   int classes        int reserved  long records
+ *   records: int label, then features values
+ * </pre>
+ * Passes map the file a window at a time (whole records, {@code windowBytes} at most), so files
+ * larger than the heap or than a single 2 GB mapping stream through a bounded address range.
+ */
+public final class BinaryDataset implements Dataset {
+    static final int MAGIC = 'N' | 'N' << 8 | 'D' << 16 | 'S' << 24;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    public static final int DTYPE_F64 = 1, DTYPE_F32 = 2;
+    public static final long DEFAULT_WINDOW = 64L << 20;
+
+    private final Path path;
+    private final int dtype, features, classes, recordBytes;
+    private final long records, windowRecords;
+
+    public BinaryDataset(Path path) throws IOException { this(path, DEFAULT_WINDOW); }
+
+    public BinaryDataset(Path path, long windowBytes) throws IOException {
+        this.path = path;
+        ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long fileSize;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)){
+            while (h.hasRemaining() && ch.read(h) >= 0) {}
+            fileSize = ch.size();
+        }
+        h.flip();
+        if (h.remaining() < HEADER_BYTES || h.getInt() != MAGIC) throw new IOException(path + " is not a dataset file");
+        int version = h.getInt();
+        if (version != VERSION) throw new IOException("Unsupported dataset version " + version);
+        dtype = h.getInt(); features = h.getInt(); classes = h.getInt(); h.getInt();
+        records = h.getLong();
+        if (dtype != DTYPE_F64 && dtype != DTYPE_F32) throw new IOException("Unknown dtype " + dtype);
+        if (features <= 0 || classes <= 0 || records < 0) throw new IOException("Corrupt dataset header");
+        recordBytes = 4 + features * (dtype == DTYPE_F64 ? 8 : 4);
+        if (fileSize != HEADER_BYTES + records * recordBytes)
+            throw new IOException(path + ": expected " + (HEADER_BYTES + records * recordBytes) + " bytes, file has " + fileSize);
+        windowRecords = Math.max(1, Math.min(Integer.MAX_VALUE, windowBytes) / recordBytes);
+    }
+
+    @Override public int features(){ return features; }
+    @Override public int classes(){ return classes; }
+    @Override public long size(){ return records; }
+
+    @Override
+    public Cursor open() throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        return new Cursor(){
+            MappedByteBuffer win;
+            long next, winEnd;
+            int pos;
+
+            @Override
+            public int next(double[] x, int off) throws IOException {
+                if (next == records) return -1;
+                if (next == winEnd){
+                    long n = Math.min(windowRecords, records - next);
+                    win = ch.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + next * recordBytes, n * recordBytes);
+                    win.order(ByteOrder.LITTLE_ENDIAN);
+                    winEnd = next + n;
+                    pos = 0;
+                }
+                int label = win.getInt(pos);
+                int p = pos + 4;
+                if (dtype == DTYPE_F64) for (int j=0;j<features;j++, p += 8) x[off + j] = win.getDouble(p);
+                else for (int j=0;j<features;j++, p += 4) x[off + j] = win.getFloat(p);
+                pos += recordBytes;
+                next++;
+                if (label < 0 || label >= classes) throw new IOException("Record " + (next - 1) + " has label " + label + ", expected 0.." + (classes - 1));
+                return label;
+            }
+
+            @Override public void close() throws IOException { win = null; ch.close(); }
+        };
+    }
+
+    /** Streams records into a new dataset file, written to a temporary sibling and renamed into place on close. */
+    public static final class Writer implements AutoCloseable {
+        private final Path path, tmp;
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final int dtype, features, classes;
+        private long records;
+
+        public Writer(Path path, int features, int classes, int dtype) throws IOException {
+            if (dtype != DTYPE_F64 && dtype != DTYPE_F32) throw new IllegalArgumentException("Unknown dtype " + dtype);
+            this.path = path; this.features = features; this.classes = classes; this.dtype = dtype;
+            Path dir = path.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            this.tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            this.ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ch.position(HEADER_BYTES);
+        }
+
+        public void add(double[] x, int off, int label) throws IOException {
+            if (label < 0 || label >= classes) throw new IllegalArgumentException("label " + label + " outside 0.." + (classes - 1));
+            int bytes = 4 + features * (dtype == DTYPE_F64 ? 8 : 4);
+            if (buf.remaining() < bytes) flush();
+            buf.putInt(label);
+            if (dtype == DTYPE_F64) for (int j=0;j<features;j++) buf.putDouble(x[off + j]);
+            else for (int j=0;j<features;j++) buf.putFloat((float) x[off + j]);
+            records++;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            h.putInt(MAGIC).putInt(VERSION).putInt(dtype).putInt(features).putInt(classes).putInt(0).putLong(records).flip();
+            while (h.hasRemaining()) ch.write(h, h.position());
+            ch.force(true);
+            ch.close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /** Copies every record of {@code src} into a dataset file at {@code out}. */
+    public static long write(Dataset src, Path out, int dtype) throws IOException {
+        double[] x = new double[src.features()];
+        long n = 0;
+        try (Writer w = new Writer(out, src.features(), src.classes(), dtype); Cursor c = src.open()){
+            for (int label; (label = c.next(x, 0)) >= 0; n++) w.add(x, 0, label);
+        }
+        return n;
+    }
+
+    /** {@code BinaryDataset in.csv out.bin classes [labelColumn] [float32]} converts a CSV file. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3){
+            System.err.println("usage: BinaryDataset <in.csv> <out.bin> <classes> [labelColumn (default last)] [float32]");
+            System.exit(2);
+        }
+        int labelColumn = args.length > 3 && !args[3].equals("float32") ? Integer.parseInt(args[3]) : -1;
+        boolean f32 = args[args.length - 1].equals("float32");
+        CsvDataset csv = new CsvDataset(Path.of(args[0]), Integer.parseInt(args[2]), labelColumn);
+        long n = write(csv, Path.of(args[1]), f32 ? DTYPE_F32 : DTYPE_F64);
+        System.out.println("Wrote " + n + " records of " + csv.features() + " features to " + args[1]);
+    }
+}
@@ -0,0 +1,177 @@
+package com.nnfs.data;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Comma-separated numeric records, one per line, with an integer class label in
+ * {@code labelColumn} (negative counts from the end; -1 is the last column). A first line that
+ * does not start with a number is taken as a header. Passes map the file a window at a time and
+ * parse numbers straight from the mapped bytes; values are converted exactly when they have at
+ * most 15 significant digits and a small exponent, and through {@link Double#parseDouble} otherwise.
+ */
+public final class CsvDataset implements Dataset {
+    public static final long DEFAULT_WINDOW = 64L << 20;
+    private static final double[] POW10 = new double[23];
+    static { POW10[0] = 1.0; for (int i=1;i<POW10.length;i++) POW10[i] = POW10[i-1] * 10.0; }
+
+    private final Path path;
+    private final int classes, columns, labelColumn, features;
+    private final long windowBytes;
+    private final boolean header;
+
+    public CsvDataset(Path path, int classes, int labelColumn) throws IOException {
+        this(path, classes, labelColumn, DEFAULT_WINDOW);
+    }
+
+    public CsvDataset(Path path, int classes, int labelColumn, long windowBytes) throws IOException {
+        if (classes <= 0) throw new IllegalArgumentException("classes must be > 0");
+        this.path = path; this.classes = classes; this.windowBytes = Math.min(Integer.MAX_VALUE, windowBytes);
+        String first, second;
+        try (java.io.BufferedReader r = java.nio.file.Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+            first = r.readLine(); second = r.readLine();
+        }
+        if (first == null) throw new IOException(path + " is empty");
+        this.header = !first.isEmpty() && !(Character.isDigit(first.charAt(0)) || "+-.".indexOf(first.charAt(0)) >= 0);
+        String row = header ? second : first;
+        if (row == null) throw new IOException(path + " has no records");
+        this.columns = row.split(",", -1).length;
+        if (columns < 2) throw new IOException(path + ": need at least one feature and a label per line");
+        this.labelColumn = labelColumn < 0 ? columns + labelColumn : labelColumn;
+        if (this.labelColumn < 0 || this.labelColumn >= columns) throw new IllegalArgumentException("labelColumn outside 0.." + (columns - 1));
+        this.features = columns - 1;
+    }
+
+    @Override public int features(){ return features; }
+    @Override public int classes(){ return classes; }
+    @Override public long size(){ return -1; }
+
+    @Override
+    public Cursor open() throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        long fileSize = ch.size();
+        return new Cursor(){
+            MappedByteBuffer win;
+            long base;          // file offset of win[0]
+            int pos, limit;     // parse position and size of the current window
+            long line;
+            boolean started;
+
+            @Override
+            public int next(double[] x, int off) throws IOException {
+                if (!started){ started = true; remap(0); if (header) skipLine(); }
+                while (true){
+                    int end = lineEnd();
+                    if (end < 0){
+                        if (base + pos >= fileSize) return -1;
+                        if (base + limit >= fileSize){ end = limit; }
+                        else {
+                            if (pos == 0) throw new IOException(path + ": line " + (line + 1) + " is longer than the " + windowBytes + "-byte window");
+                            remap(base + pos);
+                            continue;
+                        }
+                    }
+                    int start = pos;
+                    pos = Math.min(limit, end + 1);
+                    line++;
+                    int stop = end > start && win.get(end - 1) == '\r' ? end - 1 : end;
+                    if (stop == start) continue;
+                    return parse(start, stop, x, off);
+                }
+            }
+
+            private void remap(long at) throws IOException {
+                base = at;
+                limit = (int) Math.min(windowBytes, fileSize - at);
+                win = ch.map(FileChannel.MapMode.READ_ONLY, at, limit);
+                pos = 0;
+            }
+
+            private void skipLine() throws IOException {
+                int end = lineEnd();
+                if (end < 0) throw new IOException(path + ": header longer than the window");
+                pos = end + 1;
+                line++;
+            }
+
+            private int lineEnd(){
+                for (int i=pos;i<limit;i++) if (win.get(i) == '\n') return i;
+                return -1;
+            }
+
+            private int parse(int start, int stop, double[] x, int off) throws IOException {
+                int col = 0, f = 0, label = -1, i = start;
+                while (true){
+                    int comma = i;
+                    while (comma < stop && win.get(comma) != ',') comma++;
+                    if (col >= columns) throw new IOException(path + ": line " + line + " has more than " + columns + " columns");
+                    double v = number(i, comma);
+                    if (col == labelColumn){
+                        label = (int) v;
+                        if (label != v || label < 0 || label >= classes) throw new IOException(path + ": line " + line + " has label " + v + ", expected 0.." + (classes - 1));
+                    } else {
+                        x[off + f++] = v;
+                    }
+                    col++;
+                    if (comma >= stop) break;
+                    i = comma + 1;
+                }
+                if (col != columns) throw new IOException(path + ": line " + line + " has " + col + " columns, expected " + columns);
+                return label;
+            }
+
+            private double number(int from, int to) throws IOException {
+                int i = from;
+                while (i < to && win.get(i) == ' ') i++;
+                while (to > i && win.get(to - 1) == ' ') to--;
+                boolean neg = false;
+                if (i < to && (win.get(i) == '-' || win.get(i) == '+')) neg = win.get(i++) == '-';
+                long mant = 0; int digits = 0, scale = 0; boolean any = false;
+                for (; i < to; i++){
+                    byte c = win.get(i);
+                    if (c >= '0' && c <= '9'){ any = true; if (mant != 0 || c != '0') { if (digits < 18) { mant = mant*10 + (c - '0'); digits++; } else scale++; } }
+                    else break;
+                }
+                if (i < to && win.get(i) == '.'){
+                    for (i++; i < to; i++){
+                        byte c = win.get(i);
+                        if (c < '0' || c > '9') break;
+                        any = true;
+                        if (mant != 0 || c != '0'){ if (digits < 18){ mant = mant*10 + (c - '0'); digits++; scale--; } }
+                        else scale--;
+                    }
+                }
+                if (any && i < to && (win.get(i) == 'e' || win.get(i) == 'E')){
+                    int j = i + 1; boolean eneg = false; int e = 0; boolean edig = false;
+                    if (j < to && (win.get(j) == '-' || win.get(j) == '+')) eneg = win.get(j++) == '-';
+                    for (; j < to && win.get(j) >= '0' && win.get(j) <= '9'; j++){ edig = true; if (e < 100000) e = e*10 + (win.get(j) - '0'); }
+                    if (edig){ scale += eneg ? -e : e; i = j; }
+                }
+                if (!any || i != to) return slow(from, to);
+                if (mant == 0) return neg ? -0.0 : 0.0;
+                if (digits <= 15 && scale >= -22 && scale <= 22){
+                    double v = scale >= 0 ? mant * POW10[scale] : mant / POW10[-scale];
+                    return neg ? -v : v;
+                }
+                return slow(from, to);
+            }
+
+            private double slow(int from, int to) throws IOException {
+                byte[] b = new byte[to - from];
+                for (int k=0;k<b.length;k++) b[k] = win.get(from + k);
+                String s = new String(b, StandardCharsets.US_ASCII).trim();
+                try {
+                    return Double.parseDouble(s);
+                } catch (NumberFormatException e){
+                    throw new IOException(path + ": line " + line + ": '" + s + "' is not a number");
+                }
+            }
+
+            @Override public void close() throws IOException { win = null; ch.close(); }
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package com.nnfs.data;
+
+import com.nnfs.io.RandomState;
+import com.nnfs.io.SeededRandom;
+import com.nnfs.math.Matrix;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Batches from a {@link Dataset}, one epoch per pass. Records are shuffled through a bounded
+ * buffer of {@code shuffleBuffer} records (each batch row is drawn at random from the buffer and
+ * its slot refilled from the stream), so memory stays fixed however large the dataset is; 0 keeps
+ * file order. With {@code prefetch > 0} a background thread decodes up to that many batches
+ * ahead, carrying straight on into the next epoch, into a fixed set of reused batch buffers.
+ * <p>
+ * {@link #next()} returns the next batch, or null once per epoch at its end. A batch stays valid
+ * until the following call to {@code next()}; call from one thread only.
+ * <p>
+ * The shuffle buffer is empty between epochs, so the shuffle RNG is the only state one epoch
+ * hands to the next: {@link #epochState()} returns it as of the last epoch end seen by
+ * {@code next()}, and a loader constructed with it continues from that epoch boundary.
+ */
+public final class DataLoader implements AutoCloseable {
+    public static final class Batch {
+        final Matrix full;
+        public final int[] y;
+        /** The first {@link #rows} rows of the batch buffer. */
+        public Matrix x;
+        public int rows;
+        Throwable error;
+        /** Set on the end-of-epoch marker: the shuffle RNG the next epoch starts from. */
+        byte[] rng;
+
+        Batch(int capacity, int features){
+            full = new Matrix(capacity, features);
+            y = new int[capacity];
+        }
+
+        void seal(){ x = rows == full.rows ? full : rows == 0 ? null : full.rows(0, rows); }
+    }
+
+    private final Dataset ds;
+    private final int batchSize, features;
+    private final boolean dropLast;
+    private final Producer producer;
+    private final BlockingQueue<Batch> free, ready;
+    private final Thread thread;
+    private volatile boolean closed;
+    private Batch current;
+    private boolean endPending;
+    private long stallNanos;
+    private byte[] epochState;
+
+    public DataLoader(Dataset ds, int batchSize, int shuffleBuffer, long seed, boolean dropLast, int prefetch){
+        this(ds, batchSize, shuffleBuffer, seed, dropLast, prefetch, null);
+    }
+
+    /** As above, continuing from an {@link #epochState()} (null starts from {@code seed}). */
+    public DataLoader(Dataset ds, int batchSize, int shuffleBuffer, long seed, boolean dropLast, int prefetch, byte[] resume){
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        if (shuffleBuffer < 0 || prefetch < 0) throw new IllegalArgumentException("shuffleBuffer and prefetch must be >= 0");
+        this.ds = ds; this.batchSize = batchSize; this.features = ds.features(); this.dropLast = dropLast;
+        this.producer = new Producer(shuffleBuffer, resume == null ? new SeededRandom(seed) : RandomState.load(resume));
+        this.epochState = resume != null ? resume.clone() : RandomState.save(producer.rnd);
+        if (prefetch == 0){
+            free = ready = null;
+            thread = null;
+            current = new Batch(batchSize, features);
+        } else {
+            free = new ArrayBlockingQueue<>(prefetch + 1);
+            ready = new ArrayBlockingQueue<>(prefetch + 2);
+            for (int i=0;i<prefetch+1;i++) free.add(new Batch(batchSize, features));
+            thread = new Thread(this::produce, "nnfs-data-loader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public Dataset dataset(){ return ds; }
+    public int batchSize(){ return batchSize; }
+    public int features(){ return features; }
+
+    /** Total time {@link #next()} has spent waiting for the prefetch thread. */
+    public long stallNanos(){ return stallNanos; }
+
+    /** Shuffle RNG state at the most recent epoch boundary returned by {@link #next()} (or at the start). */
+    public byte[] epochState(){ return epochState; }
+
+    public Batch next(){
+        if (thread == null) return nextSync();
+        if (current != null){ free.add(current); current = null; }
+        Batch b = ready.poll();
+        if (b == null){
+            long t0 = System.nanoTime();
+            try {
+                b = ready.take();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for data", e);
+            }
+            stallNanos += System.nanoTime() - t0;
+        }
+        if (b.rng != null){ epochState = b.rng; return null; }
+        if (b.error != null) throw failure(b.error);
+        current = b;
+        return b;
+    }
+
+    private Batch nextSync(){
+        if (endPending){ endPending = false; epochState = producer.boundary; return null; }
+        try {
+            endPending = !producer.fill(current);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        if (current.rows > 0) return current;
+        endPending = false;
+        epochState = producer.boundary;
+        return null;
+    }
+
+    private void produce(){
+        try {
+            while (!closed){
+                Batch b = free.take();
+                boolean more;
+                try {
+                    more = producer.fill(b);
+                } catch (IOException | RuntimeException e){
+                    b.error = e;
+                    ready.put(b);
+                    return;
+                }
+                if (b.rows > 0) ready.put(b); else free.put(b);
+                if (!more){
+                    Batch end = new Batch(0, 0);
+                    end.rng = producer.boundary;
+                    ready.put(end);
+                }
+            }
+        } catch (InterruptedException e){
+            // closed
+        }
+    }
+
+    private static RuntimeException failure(Throwable t){
+        if (t instanceof IOException) return new UncheckedIOException((IOException) t);
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        return new IllegalStateException(t);
+    }
+
+    /** Reads passes over the dataset through the shuffle buffer; touched by one thread only. */
+    private final class Producer {
+        final int capacity;
+        final double[] bufX;
+        final int[] bufY;
+        final SeededRandom rnd;
+        /** {@link #rnd} as it was when the last epoch ended. */
+        byte[] boundary;
+        Dataset.Cursor cursor;
+        int count;
+        boolean eof;
+
+        Producer(int capacity, SeededRandom rnd){
+            this.capacity = capacity;
+            this.bufX = new double[capacity * features];
+            this.bufY = new int[capacity];
+            this.rnd = rnd;
+        }
+
+        /** Fills b with up to batchSize rows; returns false when this batch ends the epoch. */
+        boolean fill(Batch b) throws IOException {
+            if (cursor == null){
+                cursor = ds.open();
+                eof = false;
+                count = 0;
+                while (count < capacity && !eof) readInto(count);
+            }
+            double[] x = b.full.data;
+            int rows = 0;
+            while (rows < batchSize){
+                if (capacity == 0){
+                    int label = cursor.next(x, rows * features);
+                    if (label < 0){ eof = true; break; }
+                    b.y[rows++] = label;
+                    continue;
+                }
+                if (count == 0) break;
+                int j = rnd.nextInt(count);
+                System.arraycopy(bufX, j * features, x, rows * features, features);
+                b.y[rows++] = bufY[j];
+                if (!eof) readInto(j);
+                if (eof){
+                    count--;
+                    if (j != count){
+                        System.arraycopy(bufX, count * features, bufX, j * features, features);
+                        bufY[j] = bufY[count];
+                    }
+                }
+            }
+            boolean epochEnd = capacity == 0 ? eof : eof && count == 0;
+            if (epochEnd){
+                cursor.close();
+                cursor = null;
+                boundary = RandomState.save(rnd);
+                if (rows < batchSize && dropLast) rows = 0;
+            }
+            b.rows = rows;
+            b.seal();
+            return !epochEnd;
+        }
+
+        /** Replaces slot j with the next record, or marks end of stream (slot j unchanged). */
+        private void readInto(int j) throws IOException {
+            int label = cursor.next(bufX, j * features);
+            if (label < 0){ eof = true; return; }
+            bufY[j] = label;
+            if (j == count) count++;
+        }
+    }
+
+    @Override
+    public void close(){
+        closed = true;
+        if (thread != null){
+            thread.interrupt();
+            try { thread.join(1000); } catch (InterruptedException e){ Thread.currentThread().interrupt(); }
+        }
+        Dataset.Cursor c = producer.cursor;
+        if (c != null && (thread == null || !thread.isAlive())){
+            try { c.close(); } catch (IOException ignored){ }
+        }
+    }
+}
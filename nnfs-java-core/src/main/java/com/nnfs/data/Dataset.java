@@ -0,0 +1,22 @@
+package com.nnfs.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A labelled dataset read as a stream of records, so it never has to fit in memory. Each call to
+ * {@link #open()} starts a fresh sequential pass; {@link DataLoader} turns passes into shuffled,
+ * prefetched batches.
+ */
+public interface Dataset {
+    int features();
+    int classes();
+    /** Number of records, or -1 when it is only known after a full pass. */
+    long size();
+    Cursor open() throws IOException;
+
+    interface Cursor extends Closeable {
+        /** Decodes the next record's features into {@code x[off, off+features())} and returns its label, or -1 after the last record. */
+        int next(double[] x, int off) throws IOException;
+    }
+}
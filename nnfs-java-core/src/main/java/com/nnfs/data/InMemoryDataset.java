@@ -0,0 +1,34 @@
+package com.nnfs.data;
+
+import com.nnfs.math.Matrix;
+
+/** Rows of a matrix with their labels, e.g. the spiral set. */
+public final class InMemoryDataset implements Dataset {
+    public final Matrix X;
+    public final int[] y;
+    private final int classes;
+
+    public InMemoryDataset(Matrix X, int[] y, int classes){
+        if (X.rows != y.length) throw new IllegalArgumentException("X.rows must equal y.length");
+        this.X = X; this.y = y; this.classes = classes;
+    }
+
+    @Override public int features(){ return X.cols; }
+    @Override public int classes(){ return classes; }
+    @Override public long size(){ return y.length; }
+
+    @Override
+    public Cursor open(){
+        return new Cursor(){
+            int i;
+            @Override public int next(double[] x, int off){
+                if (i == y.length) return -1;
+                int base = X.offset + i*X.rowStride;
+                if (X.colStride == 1) System.arraycopy(X.data, base, x, off, X.cols);
+                else for (int j=0;j<X.cols;j++) x[off + j] = X.data[base + j*X.colStride];
+                return y[i++];
+            }
+            @Override public void close(){}
+        };
+    }
+}
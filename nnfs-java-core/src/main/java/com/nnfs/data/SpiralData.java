@@ -1,15 +1,26 @@
 package com.nnfs.data;
 
+import com.nnfs.math.Matrix;
+
 import java.util.Random;
 
 public final class SpiralData {
     private SpiralData(){}
 
     public static double[][][] make(int pointsPerClass, int classes, long seed){
+        int[] y = labels(pointsPerClass, classes);
+        return new double[][][]{ points(pointsPerClass, classes, seed), toOneHot(y, classes) };
+    }
+
+    /** The spiral points and their labels, without the one-hot matrix {@link #make} also builds. */
+    public static InMemoryDataset dataset(int pointsPerClass, int classes, long seed){
+        return new InMemoryDataset(Matrix.of(points(pointsPerClass, classes, seed)), labels(pointsPerClass, classes), classes);
+    }
+
+    static double[][] points(int pointsPerClass, int classes, long seed){
         java.util.Random rnd = new Random(seed);
         int n = pointsPerClass * classes;
         double[][] X = new double[n][2];
-        int[] y = new int[n];
         for (int classNumber=0; classNumber<classes; classNumber++){
             double r = 0.0;
             double t = classNumber * 4.0;
@@ -20,10 +31,9 @@ public final class SpiralData {
                 double theta = t + r * 4.0 + noise;
                 X[ix][0] = r * Math.sin(theta);
                 X[ix][1] = r * Math.cos(theta);
-                y[ix] = classNumber;
             }
         }
-        return new double[][][]{ X, toOneHot(y, classes) };
+        return X;
     }
 
     public static int[] labels(int pointsPerClass, int classes){
@@ -0,0 +1,134 @@
+package com.nnfs.dist;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Rendezvous for a distributed run, hosted by rank 0. Every process connects once and sends
+ * its rank, the process count it was started with, the address its {@link Ring} socket listens
+ * on and the {@link com.nnfs.train.TrainConfig#fingerprint()} of its settings. Once all ranks
+ * have arrived and agree, each gets the ring addresses of every rank and the coordinator shuts
+ * down; any mismatch, a duplicate rank or a rank missing at the timeout is sent to everyone who
+ * joined, so no process is left waiting.
+ * <pre>
+ *   join:  int magic "NNRV"   int rank   int size   utf host   int port   utf fingerprint
+ *   reply: int 0, then size x (utf host, int port)   |   int 1, utf error
+ * </pre>
+ */
+public final class Coordinator implements AutoCloseable {
+    static final int MAGIC = 'N' | 'N' << 8 | 'R' << 16 | 'V' << 24;
+
+    private final ServerSocket server;
+    private final int size;
+    private final long timeoutMillis;
+    private final Thread thread;
+
+    private Coordinator(ServerSocket server, int size, long timeoutMillis){
+        this.server = server; this.size = size; this.timeoutMillis = timeoutMillis;
+        this.thread = new Thread(this::serve, "nnfs-coordinator");
+        thread.setDaemon(true);
+    }
+
+    /** Listens on {@code address} and waits in the background for {@code size} ranks. */
+    public static Coordinator start(InetSocketAddress address, int size, long timeoutMillis) throws IOException {
+        ServerSocket server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(address, size);
+        Coordinator c = new Coordinator(server, size, timeoutMillis);
+        c.thread.start();
+        return c;
+    }
+
+    public int port(){ return server.getLocalPort(); }
+
+    private void serve(){
+        Socket[] peers = new Socket[size];
+        String[] hosts = new String[size], prints = new String[size];
+        int[] ports = new int[size];
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (int joined = 0; joined < size; ){
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) throw new IOException("timed out after " + timeoutMillis + " ms waiting for " + missing(peers));
+                server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, left));
+                Socket s;
+                try {
+                    s = server.accept();
+                } catch (SocketTimeoutException e){
+                    continue;
+                }
+                s.setSoTimeout((int) Math.min(Integer.MAX_VALUE, Math.max(1, left)));
+                DataInputStream in = new DataInputStream(s.getInputStream());
+                int rank, n, port;
+                String host, print;
+                try {
+                    if (in.readInt() != MAGIC){ s.close(); continue; }
+                    rank = in.readInt(); n = in.readInt(); host = in.readUTF(); port = in.readInt(); print = in.readUTF();
+                } catch (IOException e){
+                    s.close();
+                    continue;
+                }
+                String err = n != size ? "rank " + rank + " was started for " + n + " processes, the coordinator for " + size
+                        : rank < 0 || rank >= size ? "rank " + rank + " is out of range 0.." + (size - 1)
+                        : peers[rank] != null ? "rank " + rank + " joined twice" : null;
+                if (err != null){
+                    refuse(s, err);
+                    throw new IOException(err);
+                }
+                peers[rank] = s; hosts[rank] = host; ports[rank] = port; prints[rank] = print;
+                joined++;
+            }
+            for (int r = 1; r < size; r++){
+                if (!prints[r].equals(prints[0]))
+                    throw new IOException("rank " + r + " has different training settings than rank 0\n  rank 0: " + prints[0] + "\n  rank " + r + ": " + prints[r]);
+            }
+            for (Socket s : peers){
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                out.writeInt(0);
+                for (int r = 0; r < size; r++){ out.writeUTF(hosts[r]); out.writeInt(ports[r]); }
+                out.flush();
+            }
+        } catch (IOException e){
+            for (Socket s : peers) if (s != null) refuse(s, e.getMessage());
+        } finally {
+            for (Socket s : peers) closeQuietly(s);
+            closeQuietly(server);
+        }
+    }
+
+    private static String missing(Socket[] peers){
+        StringBuilder sb = new StringBuilder("rank(s)");
+        for (int r = 0; r < peers.length; r++) if (peers[r] == null) sb.append(' ').append(r);
+        return sb.toString();
+    }
+
+    private static void refuse(Socket s, String error){
+        try {
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            out.writeInt(1);
+            out.writeUTF(error);
+            out.flush();
+        } catch (IOException ignored){
+            // that process is gone anyway
+        }
+        closeQuietly(s);
+    }
+
+    private static void closeQuietly(AutoCloseable c){
+        try {
+            if (c != null) c.close();
+        } catch (Exception ignored){
+        }
+    }
+
+    @Override
+    public void close(){
+        closeQuietly(server);
+    }
+}
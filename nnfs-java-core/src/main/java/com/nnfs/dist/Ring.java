@@ -0,0 +1,207 @@
+package com.nnfs.dist;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One process's place in a ring of {@code size} training processes: a TCP connection to the next
+ * rank and one from the previous. {@link #allReduce} is the usual bandwidth-optimal ring: the
+ * vector is cut into {@code size} chunks, {@code size-1} reduce-scatter steps leave each rank
+ * with one fully summed chunk and {@code size-1} all-gather steps pass the sums around, so every
+ * rank sends and receives about {@code 2*(size-1)/size} of the vector regardless of the process
+ * count. Each step sends and receives at once over non-blocking channels.
+ * <p>
+ * Chunk c is always summed in ring order starting at rank c, and every rank ends up with the
+ * bytes the owning rank computed, so the result is identical on all ranks and from run to run,
+ * whatever the timing. A peer that neither sends nor receives anything for the timeout (a crashed
+ * or stalled process) fails the call with an IOException instead of hanging the run.
+ */
+public final class Ring implements AutoCloseable {
+    private final int rank, size;
+    private final long timeoutMillis;
+    private final SocketChannel next, prev;
+    private final Selector selector;
+    private final SelectionKey sendKey, recvKey;
+    private ByteBuffer out = ByteBuffer.allocateDirect(0), in = ByteBuffer.allocateDirect(0);
+    private long bytes;
+
+    private Ring(int rank, int size, long timeoutMillis, SocketChannel next, SocketChannel prev) throws IOException {
+        this.rank = rank; this.size = size; this.timeoutMillis = timeoutMillis;
+        this.next = next; this.prev = prev;
+        this.selector = Selector.open();
+        next.configureBlocking(false);
+        prev.configureBlocking(false);
+        this.sendKey = next.register(selector, 0);
+        this.recvKey = prev.register(selector, 0);
+    }
+
+    /**
+     * Registers with the {@link Coordinator} at {@code coordinator} ("host:port"; retried until it
+     * is up), then connects to the next rank and accepts the previous one. Fails when the
+     * rendezvous is refused or the ring is not complete within {@code timeoutMillis}.
+     */
+    public static Ring join(String coordinator, int rank, int size, String fingerprint, long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        InetSocketAddress coord = address(coordinator);
+        ServerSocketChannel server = ServerSocketChannel.open();
+        String[] hosts = new String[size];
+        int[] ports = new int[size];
+        try (Socket s = connect(coord, deadline)){
+            InetAddress local = s.getLocalAddress();
+            server.bind(new InetSocketAddress(local, 0), 1);
+            DataOutputStream o = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            o.writeInt(Coordinator.MAGIC); o.writeInt(rank); o.writeInt(size);
+            o.writeUTF(local.getHostAddress()); o.writeInt(server.socket().getLocalPort()); o.writeUTF(fingerprint);
+            o.flush();
+            s.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+            DataInputStream i = new DataInputStream(s.getInputStream());
+            if (i.readInt() != 0) throw new IOException("rendezvous refused: " + i.readUTF());
+            for (int r = 0; r < size; r++){ hosts[r] = i.readUTF(); ports[r] = i.readInt(); }
+        } catch (IOException e){
+            server.close();
+            throw e;
+        }
+        SocketChannel next = null, prev = null;
+        try (server){
+            InetSocketAddress to = new InetSocketAddress(hosts[(rank + 1) % size], ports[(rank + 1) % size]);
+            next = SocketChannel.open();
+            try {
+                next.socket().connect(to, (int) Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (SocketTimeoutException e){
+                throw new IOException("next rank at " + to + " did not accept the connection", e);
+            }
+            next.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            next.write(ByteBuffer.allocate(4).putInt(0, rank));
+            prev = accept(server, deadline);
+            prev.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer hello = ByteBuffer.allocate(4);
+            while (hello.hasRemaining()) if (prev.read(hello) < 0) throw new IOException("previous rank closed the ring");
+            int from = hello.getInt(0);
+            if (from != (rank + size - 1) % size) throw new IOException("expected rank " + (rank + size - 1) % size + " before us, got " + from);
+            return new Ring(rank, size, timeoutMillis, next, prev);
+        } catch (IOException e){
+            if (next != null) next.close();
+            if (prev != null) prev.close();
+            throw e;
+        }
+    }
+
+    public static InetSocketAddress address(String hostPort){
+        int colon = hostPort.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("expected host:port, got '" + hostPort + "'");
+        return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+
+    private static Socket connect(InetSocketAddress to, long deadline) throws IOException {
+        while (true){
+            Socket s = new Socket();
+            try {
+                s.connect(to, (int) Math.max(1, deadline - System.currentTimeMillis()));
+                return s;
+            } catch (ConnectException e){
+                s.close();
+                if (System.currentTimeMillis() >= deadline) throw new IOException("no coordinator at " + to, e);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie){
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for the coordinator", ie);
+                }
+            }
+        }
+    }
+
+    private static SocketChannel accept(ServerSocketChannel server, long deadline) throws IOException {
+        server.configureBlocking(false);
+        try (Selector sel = Selector.open()){
+            server.register(sel, SelectionKey.OP_ACCEPT);
+            while (true){
+                SocketChannel c = server.accept();
+                if (c != null){ c.configureBlocking(true); return c; }
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) throw new IOException("previous rank did not connect");
+                sel.select(left);
+                sel.selectedKeys().clear();
+            }
+        }
+    }
+
+    public int rank(){ return rank; }
+    public int size(){ return size; }
+    /** Bytes sent by this rank so far. */
+    public long bytesSent(){ return bytes; }
+
+    /** Replaces {@code v} on every rank by the element-wise sum of all ranks' {@code v}. */
+    public void allReduce(double[] v) throws IOException {
+        if (size == 1) return;
+        for (int s = 0; s < size - 1; s++) exchange(v, mod(rank - s), mod(rank - s - 1), true);
+        for (int s = 0; s < size - 1; s++) exchange(v, mod(rank + 1 - s), mod(rank - s), false);
+    }
+
+    private int mod(int c){ return ((c % size) + size) % size; }
+
+    private int chunkStart(int n, int c){ return (int) ((long) n * c / size); }
+
+    /** Sends chunk {@code sc} to the next rank while receiving chunk {@code rc} from the previous one. */
+    private void exchange(double[] v, int sc, int rc, boolean add) throws IOException {
+        int n = v.length;
+        int s0 = chunkStart(n, sc), s1 = chunkStart(n, sc + 1), r0 = chunkStart(n, rc), r1 = chunkStart(n, rc + 1);
+        out = fit(out, s1 - s0);
+        out.asDoubleBuffer().put(v, s0, s1 - s0);
+        out.limit(8 * (s1 - s0));
+        in = fit(in, r1 - r0);
+        in.limit(8 * (r1 - r0));
+        long quiet = System.currentTimeMillis() + timeoutMillis;
+        while (out.hasRemaining() || in.hasRemaining()){
+            int moved = 0;
+            if (out.hasRemaining()) moved += next.write(out);
+            if (in.hasRemaining()){
+                int got = prev.read(in);
+                if (got < 0) throw new IOException("rank " + mod(rank - 1) + " closed the ring");
+                moved += got;
+            }
+            if (moved > 0){ quiet = System.currentTimeMillis() + timeoutMillis; continue; }
+            long left = quiet - System.currentTimeMillis();
+            if (left <= 0)
+                throw new IOException("all-reduce timed out: nothing from rank " + mod(rank - 1) + " or to rank " + mod(rank + 1) + " for " + timeoutMillis + " ms");
+            sendKey.interestOps(out.hasRemaining() ? SelectionKey.OP_WRITE : 0);
+            recvKey.interestOps(in.hasRemaining() ? SelectionKey.OP_READ : 0);
+            selector.select(left);
+            selector.selectedKeys().clear();
+        }
+        bytes += 8L * (s1 - s0);
+        in.flip();
+        java.nio.DoubleBuffer d = in.asDoubleBuffer();
+        if (add) for (int i = r0; i < r1; i++) v[i] = d.get() + v[i];
+        else d.get(v, r0, r1 - r0);
+    }
+
+    private static ByteBuffer fit(ByteBuffer b, int doubles){
+        if (b.capacity() < 8 * doubles) b = ByteBuffer.allocateDirect(Math.max(8 * doubles, 2 * b.capacity()));
+        b.clear();
+        return b.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close(){
+        try (selector; next; prev){
+            // closes all three
+        } catch (IOException ignored){
+            // the peers see the ring close either way
+        }
+    }
+}
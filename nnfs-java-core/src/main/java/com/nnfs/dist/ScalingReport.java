@@ -0,0 +1,110 @@
+package com.nnfs.dist;
+
+import com.nnfs.train.TrainConfig;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trains the same configuration once per process count, each time as that many JVMs talking over
+ * loopback (1 is the plain single-process {@link com.nnfs.train.Trainer}), and prints wall time,
+ * throughput, speedup, scaling efficiency (speedup / processes) and the final loss and accuracy:
+ * <pre>
+ *   java -cp nnfs-java-core/target/classes com.nnfs.dist.ScalingReport --processes=1,2,4 --epochs=500 --batchSize=64
+ * </pre>
+ * Every other option is passed to each trainer. Runs go to temporary directories, so the
+ * model/ directory is left alone. The processes share this machine's cores, so efficiency here
+ * shows the communication overhead rather than what separate machines would gain.
+ */
+public final class ScalingReport {
+    private ScalingReport(){}
+
+    static final Pattern TRAINED = Pattern.compile("Trained (\\d+) epochs in ([0-9.]+) s \\(([0-9]+) rows/s");
+    static final Pattern EPOCH = Pattern.compile("Epoch (\\d+) loss=([0-9.]+|NaN) acc=([0-9.]+)");
+
+    record Run(int processes, double seconds, double rowsPerSecond, String loss, String accuracy){}
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = {1, 2, 4};
+        List<String> pass = new ArrayList<>();
+        for (String a : args){
+            if (a.startsWith("--processes=")){
+                String[] parts = a.substring("--processes=".length()).split(",");
+                counts = new int[parts.length];
+                for (int i=0;i<parts.length;i++) counts[i] = Integer.parseInt(parts[i].trim());
+            } else if (a.startsWith("--rank=") || a.startsWith("--coordinator=")){
+                throw new IllegalArgumentException(a + " is chosen by the report");
+            } else {
+                pass.add(a);
+            }
+        }
+        TrainConfig cfg = TrainConfig.fromArgs(pass.toArray(new String[0]));
+        pass.add("--logEvery=" + cfg.epochs);
+
+        System.out.printf("%d epochs, %d core(s) on this machine%n", cfg.epochs, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %9s %11s %8s %11s %8s %6s%n", "processes", "seconds", "rows/s", "speedup", "efficiency", "loss", "acc");
+        Run base = null;
+        for (int p : counts){
+            Run r = run(p, pass, cfg.timeoutSeconds);
+            if (base == null) base = r;
+            double speedup = r.rowsPerSecond / base.rowsPerSecond * base.processes;
+            System.out.printf(Locale.ROOT, "%-10d %9.2f %11.0f %7.2fx %10.0f%% %8s %6s%n",
+                    r.processes, r.seconds, r.rowsPerSecond, speedup, 100 * speedup / r.processes, r.loss, r.accuracy);
+        }
+    }
+
+    /** Launches {@code p} trainer JVMs on loopback and parses rank 0's summary. */
+    static Run run(int p, List<String> args, int timeoutSeconds) throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket s = new ServerSocket(0)){ port = s.getLocalPort(); }
+        List<Process> procs = new ArrayList<>();
+        List<Path> logs = new ArrayList<>();
+        try {
+            for (int rank = p - 1; rank >= 0; rank--){
+                Path dir = Files.createTempDirectory("nnfs-scaling-p" + p + "-r" + rank);
+                List<String> cmd = new ArrayList<>(jvm());
+                cmd.add("com.nnfs.train.Trainer");
+                cmd.addAll(args);
+                if (p > 1){
+                    cmd.add("--processes=" + p);
+                    cmd.add("--rank=" + rank);
+                    cmd.add("--coordinator=127.0.0.1:" + port);
+                }
+                Path log = dir.resolve("out.txt");
+                procs.add(0, new ProcessBuilder(cmd).directory(dir.toFile()).redirectErrorStream(true).redirectOutput(log.toFile()).start());
+                logs.add(0, log);
+            }
+            for (int rank = 0; rank < p; rank++){
+                if (procs.get(rank).waitFor() != 0)
+                    throw new IllegalStateException("rank " + rank + " of " + p + " failed:\n" + Files.readString(logs.get(rank)));
+            }
+        } finally {
+            for (Process pr : procs) pr.destroyForcibly();
+        }
+        String out = Files.readString(logs.get(0));
+        Matcher t = TRAINED.matcher(out), e = EPOCH.matcher(out);
+        if (!t.find()) throw new IllegalStateException("no timing in the output of rank 0:\n" + out);
+        String loss = "-", acc = "-";
+        while (e.find()){ loss = e.group(2); acc = e.group(3); }
+        return new Run(p, Double.parseDouble(t.group(2)), Double.parseDouble(t.group(3)), loss, acc);
+    }
+
+    /** This JVM's java binary, module and heap flags and class path. */
+    private static List<String> jvm(){
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ProcessHandle.current().info().command().orElse("java"));
+        for (String a : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (a.startsWith("--add-modules") || a.startsWith("-Xm") || a.startsWith("-Dnnfs.")) cmd.add(a);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        return cmd;
+    }
+}
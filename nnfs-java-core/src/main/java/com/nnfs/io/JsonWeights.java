@@ -0,0 +1,181 @@
+package com.nnfs.io;
+
+import com.nnfs.layers.Dense;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+import com.nnfs.nn.FloatModel;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+
+/**
+ * The original {@code weights.json} layout, {@code {"l1":{"W":[[..]],"b":[..]},"l2":{...}}} with an
+ * optional {@code "dtype":"float32"}. Kept for import/export; {@link WeightsFile} is the serving format.
+ */
+public final class JsonWeights {
+    private JsonWeights(){}
+
+    /** Parses weights, returning a float32 model when the file declares {@code "dtype":"float32"}. */
+    public static Predictor parse(String json){
+        Model m = parseModel(json);
+        return isFloat32(json) ? new FloatModel(m) : m;
+    }
+
+    public static boolean isFloat32(String json){
+        int idx = json.indexOf("\"dtype\"");
+        if (idx == -1) return false;
+        int colon = json.indexOf(':', idx);
+        int q1 = json.indexOf('"', colon + 1);
+        int q2 = json.indexOf('"', q1 + 1);
+        if (colon == -1 || q1 == -1 || q2 == -1) throw new IllegalArgumentException("Invalid dtype entry");
+        return Precision.parse(json.substring(q1 + 1, q2)) == Precision.FLOAT32;
+    }
+
+    public static Model parseModel(String json){
+        if (json == null || json.isBlank()) {
+            throw new IllegalArgumentException("Weights JSON cannot be null or empty");
+        }
+
+        int idxW1 = json.indexOf("\"l1\":{\"W\":");
+        int idxB1 = json.indexOf("\"b\":", idxW1);
+        int idxW2 = json.indexOf("\"l2\":{\"W\":");
+        int idxB2 = json.indexOf("\"b\":", idxW2);
+
+        if (idxW1 == -1 || idxB1 == -1 || idxW2 == -1 || idxB2 == -1) {
+            throw new IllegalArgumentException("Invalid weights.json format: missing keys");
+        }
+
+        double[][] W1 = parseMatrix(
+                safeSubstring(json, json.indexOf('[', idxW1), json.lastIndexOf(']', idxB1) + 1, "W1"));
+        double[] b1 = parseVector(
+                safeSubstring(json, json.indexOf('[', idxB1), json.indexOf(']', idxB1) + 1, "b1"));
+        double[][] W2 = parseMatrix(
+                safeSubstring(json, json.indexOf('[', idxW2), json.lastIndexOf(']', idxB2) + 1, "W2"));
+        double[] b2 = parseVector(
+                safeSubstring(json, json.indexOf('[', idxB2), json.indexOf(']', idxB2) + 1, "b2"));
+
+        return new Model(new Dense(Matrix.of(W1), b1), new Dense(Matrix.of(W2), b2));
+    }
+
+    public static String toJson(Predictor p){
+        if (p instanceof Model) return toJson((Model) p);
+        if (p instanceof FloatModel) return toJson((FloatModel) p);
+        throw new IllegalArgumentException("JSON export covers the two-layer models only, not " + p.getClass().getSimpleName());
+    }
+
+    public static String toJson(Model model){
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"l1\":{\"W\":").append(toJson(model.l1.W)).append(",\"b\":").append(toJson(model.l1.b))
+          .append("},\"l2\":{\"W\":").append(toJson(model.l2.W)).append(",\"b\":").append(toJson(model.l2.b)).append("}}");
+        return sb.toString();
+    }
+
+    public static String toJson(FloatModel model){
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"dtype\":\"float32\",\"l1\":{\"W\":").append(toJson(model.l1.W)).append(",\"b\":").append(toJson(model.l1.b))
+          .append("},\"l2\":{\"W\":").append(toJson(model.l2.W)).append(",\"b\":").append(toJson(model.l2.b)).append("}}");
+        return sb.toString();
+    }
+
+    static String toJson(FMatrix A){
+        StringBuilder sb = new StringBuilder("[");
+        for (int i=0;i<A.rows;i++){
+            if (i>0) sb.append(',');
+            sb.append('[');
+            for (int j=0;j<A.cols;j++){
+                if (j>0) sb.append(',');
+                sb.append(A.get(i, j));
+            }
+            sb.append(']');
+        }
+        sb.append(']'); return sb.toString();
+    }
+    static String toJson(float[] b){
+        StringBuilder sb = new StringBuilder("[");
+        for (int j=0;j<b.length;j++){
+            if (j>0) sb.append(',');
+            sb.append(b[j]);
+        }
+        sb.append(']'); return sb.toString();
+    }
+    static String toJson(Matrix A){
+        StringBuilder sb = new StringBuilder("[");
+        for (int i=0;i<A.rows;i++){
+            if (i>0) sb.append(',');
+            sb.append('[');
+            for (int j=0;j<A.cols;j++){
+                if (j>0) sb.append(',');
+                sb.append(String.format("%.10f", A.get(i, j)));
+            }
+            sb.append(']');
+        }
+        sb.append(']'); return sb.toString();
+    }
+    static String toJson(double[] b){
+        StringBuilder sb = new StringBuilder("[");
+        for (int j=0;j<b.length;j++){
+            if (j>0) sb.append(',');
+            sb.append(String.format("%.10f", b[j]));
+        }
+        sb.append(']'); return sb.toString();
+    }
+
+    private static String safeSubstring(String s, int start, int end, String fieldName) {
+        if (start < 0 || end <= start || end > s.length()) {
+            throw new IllegalArgumentException("Invalid JSON structure for field: " + fieldName);
+        }
+        return s.substring(start, end);
+    }
+
+    static double[][] parseMatrix(String s) {
+        s = cleanPrefix(s);
+        int start = s.indexOf('[');
+        int end = s.lastIndexOf(']');
+        if (start == -1 || end == -1 || start >= end) {
+            return new double[0][0];
+        }
+        s = s.substring(start + 1, end).trim();
+        if (s.isEmpty()) return new double[0][0];
+
+        String[] rows = s.split("\\],\\[");
+        double[][] M = new double[rows.length][];
+        for (int i = 0; i < rows.length; i++) {
+            String row = rows[i].replace("[", "").replace("]", "").trim();
+            if (row.isEmpty()) {
+                M[i] = new double[0];
+                continue;
+            }
+            String[] parts = row.split(",");
+            M[i] = new double[parts.length];
+            for (int j = 0; j < parts.length; j++) {
+                M[i][j] = Double.parseDouble(parts[j].trim());
+            }
+        }
+        return M;
+    }
+
+    static double[] parseVector(String s) {
+        s = cleanPrefix(s);
+        int start = s.indexOf('[');
+        int end = s.indexOf(']', start);
+        if (start == -1 || end == -1 || start >= end) {
+            return new double[0];
+        }
+        s = s.substring(start + 1, end).trim();
+        if (s.isEmpty()) return new double[0];
+
+        String[] parts = s.split(",");
+        double[] v = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            v[i] = Double.parseDouble(parts[i].trim());
+        }
+        return v;
+    }
+
+    private static String cleanPrefix(String s) {
+        s = s.trim();
+        if (s.startsWith(",")) s = s.substring(1).trim();
+        if (s.startsWith(":")) s = s.substring(1).trim();
+        return s;
+    }
+}
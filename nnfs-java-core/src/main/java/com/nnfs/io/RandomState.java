@@ -0,0 +1,31 @@
+package com.nnfs.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The exact state of a {@link SeededRandom} as 17 little-endian bytes: the 48-bit LCG seed
+ * (long), whether a Gaussian is cached (byte) and that Gaussian (double). A restored generator
+ * continues the same sequence. The bytes are plain numbers, never deserialized objects, so a
+ * tampered checkpoint can at worst change the shuffle order.
+ */
+public final class RandomState {
+    private RandomState(){}
+
+    static final int BYTES = 8 + 1 + 8;
+
+    public static byte[] save(SeededRandom rnd){
+        ByteBuffer b = ByteBuffer.allocate(BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        b.putLong(rnd.seed).put((byte) (rnd.haveNextNextGaussian ? 1 : 0)).putDouble(rnd.nextNextGaussian);
+        return b.array();
+    }
+
+    public static SeededRandom load(byte[] state){
+        if (state.length != BYTES) throw new IllegalArgumentException("corrupt random state: " + state.length + " bytes, expected " + BYTES);
+        ByteBuffer b = ByteBuffer.wrap(state).order(ByteOrder.LITTLE_ENDIAN);
+        long seed = b.getLong();
+        byte have = b.get();
+        if ((seed & ~((1L << 48) - 1)) != 0 || (have & ~1) != 0) throw new IllegalArgumentException("corrupt random state");
+        return new SeededRandom(seed, have == 1, b.getDouble());
+    }
+}
@@ -0,0 +1,66 @@
+package com.nnfs.io;
+
+import java.util.Random;
+
+/**
+ * {@link java.util.Random} with its state in plain fields, so {@link RandomState} can save and
+ * restore it without Java serialization. Same 48-bit LCG and Gaussian pairing as the JDK class,
+ * so {@code new SeededRandom(s)} yields exactly the sequence of {@code new Random(s)}.
+ * Not thread safe; each training thread owns its generator.
+ */
+public final class SeededRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    // no initializers: Random's constructor calls setSeed before they would run
+    long seed;
+    double nextNextGaussian;
+    boolean haveNextNextGaussian;
+
+    public SeededRandom(long seed){
+        super(seed);
+    }
+
+    SeededRandom(long state, boolean haveGaussian, double gaussian){
+        super(0L);
+        this.seed = state & MASK;
+        this.haveNextNextGaussian = haveGaussian;
+        this.nextNextGaussian = gaussian;
+    }
+
+    @Override
+    public void setSeed(long seed){
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected int next(int bits){
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+
+    @Override
+    public double nextDouble(){
+        return (((long) next(26) << 27) + next(27)) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public double nextGaussian(){
+        if (haveNextNextGaussian){
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+}
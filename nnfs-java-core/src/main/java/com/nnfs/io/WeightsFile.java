@@ -0,0 +1,268 @@
+package com.nnfs.io;
+
+import com.nnfs.layers.Activation;
+import com.nnfs.layers.Dense;
+import com.nnfs.layers.FloatDense;
+import com.nnfs.layers.GELU;
+import com.nnfs.layers.Layer;
+import com.nnfs.layers.LeakyReLU;
+import com.nnfs.layers.ReLU;
+import com.nnfs.layers.Sigmoid;
+import com.nnfs.layers.Tanh;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.Matrix;
+import com.nnfs.nn.FloatModel;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+import com.nnfs.nn.Sequential;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary weights file ({@code weights.bin}). Everything is little-endian:
+ * <pre>
+ *   int   magic "NNFW"      int version      int dtype (1 = float64, 2 = float32)   int layers
+ *   int[] nIn, nOut per layer
+ *   long  payload bytes     int CRC32 of the payload                               int reserved
+ *   payload: per layer W (nIn x nOut, row-major) then b (nOut)
+ * </pre>
+ * Version 2 holds a {@link Sequential} of Dense layers, each optionally followed by an activation:
+ * the per-layer shape becomes {@code int nIn, nOut, activation, reserved; double activationParam} with
+ * activation 0 = none, 1 = relu, 2 = leaky_relu (param alpha), 3 = gelu, 4 = sigmoid, 5 = tanh.
+ * The two-layer models are still written as version 1.
+ * The header is a multiple of 8 bytes so the payload stays aligned for bulk copies. Files are
+ * written through a channel to a temporary sibling and renamed into place, and read by mapping
+ * the file and copying the payload straight into the layers' backing arrays.
+ */
+public final class WeightsFile {
+    private WeightsFile(){}
+
+    static final int MAGIC = 'N' | 'N' << 8 | 'F' << 16 | 'W' << 24;
+    static final int VERSION = 1, VERSION_LAYERS = 2;
+    static final int DTYPE_F64 = 1, DTYPE_F32 = 2;
+    static final int LAYERS = 2;
+    static final int HEADER_BYTES = 16 + 8*LAYERS + 16;
+    /** Header ints per layer in version 2. */
+    static final int LAYER_INTS = 6;
+
+    public static void write(Model m, Path path) throws IOException {
+        Matrix W1 = contiguous(m.l1.W), W2 = contiguous(m.l2.W);
+        long n = (long) W1.data.length + m.l1.b.length + W2.data.length + m.l2.b.length;
+        ByteBuffer payload = allocate(n * 8);
+        payload.asDoubleBuffer().put(W1.data, 0, W1.rows*W1.cols).put(m.l1.b).put(W2.data, 0, W2.rows*W2.cols).put(m.l2.b);
+        write(path, DTYPE_F64, new int[]{m.l1.nIn, m.l1.nOut, m.l2.nIn, m.l2.nOut}, payload);
+    }
+
+    public static void write(FloatModel m, Path path) throws IOException {
+        FMatrix W1 = m.l1.W, W2 = m.l2.W;
+        long n = (long) W1.rows*W1.cols + m.l1.b.length + W2.rows*W2.cols + m.l2.b.length;
+        ByteBuffer payload = allocate(n * 4);
+        payload.asFloatBuffer().put(flat(W1), 0, W1.rows*W1.cols).put(m.l1.b).put(flat(W2), 0, W2.rows*W2.cols).put(m.l2.b);
+        write(path, DTYPE_F32, new int[]{m.l1.nIn, m.l1.nOut, m.l2.nIn, m.l2.nOut}, payload);
+    }
+
+    public static void write(Sequential net, Path path) throws IOException {
+        List<Layer> ls = net.layers();
+        List<Dense> dense = new ArrayList<>();
+        List<Integer> shapes = new ArrayList<>();
+        long n = 0;
+        for (int i=0;i<ls.size();i++){
+            if (!(ls.get(i) instanceof Dense)) throw new IllegalArgumentException("Cannot write " + net + ": expected Dense at layer " + i);
+            Dense d = (Dense) ls.get(i);
+            Activation act = i + 1 < ls.size() && ls.get(i+1) instanceof Activation ? (Activation) ls.get(++i) : null;
+            dense.add(d);
+            shapes.add(d.nIn); shapes.add(d.nOut); shapes.add(activationCode(act));
+            long param = Double.doubleToLongBits(act instanceof LeakyReLU ? ((LeakyReLU) act).alpha : 0.0);
+            shapes.add(0); shapes.add((int) param); shapes.add((int) (param >>> 32));
+            n += (long) d.nIn*d.nOut + d.nOut;
+        }
+        ByteBuffer payload = allocate(n * 8);
+        java.nio.DoubleBuffer db = payload.asDoubleBuffer();
+        for (Dense d : dense){
+            Matrix W = contiguous(d.W);
+            db.put(W.data, 0, W.rows*W.cols).put(d.b);
+        }
+        write(path, VERSION_LAYERS, DTYPE_F64, shapes.stream().mapToInt(Integer::intValue).toArray(), payload);
+    }
+
+    private static void write(Path path, int dtype, int[] shapes, ByteBuffer payload) throws IOException {
+        write(path, VERSION, dtype, shapes, payload);
+    }
+
+    private static void write(Path path, int version, int dtype, int[] shapes, ByteBuffer payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        int layers = version == VERSION ? LAYERS : shapes.length / LAYER_INTS;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes(version, layers)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(version).putInt(dtype).putInt(layers);
+        for (int s : shapes) header.putInt(s);
+        header.putLong(payload.remaining()).putInt((int) crc.getValue()).putInt(0).flip();
+
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            while (header.hasRemaining()) ch.write(header);
+            while (payload.hasRemaining()) ch.write(payload);
+            ch.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Maps {@code path} read-only and loads the model it holds. */
+    public static Predictor read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)){
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return read(buf);
+        }
+    }
+
+    /** Loads a model from the bytes of a weights file, e.g. a classpath resource read into memory. */
+    public static Predictor read(ByteBuffer buf) throws IOException {
+        buf = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.remaining() < HEADER_BYTES) throw new IOException("Truncated weights file header");
+        if (buf.getInt() != MAGIC) throw new IOException("Not a weights file (bad magic)");
+        int version = buf.getInt();
+        if (version != VERSION && version != VERSION_LAYERS) throw new IOException("Unsupported weights file version " + version);
+        int dtype = buf.getInt(), layers = buf.getInt();
+        if (dtype != DTYPE_F64 && dtype != DTYPE_F32) throw new IOException("Unknown dtype " + dtype);
+        if (version == VERSION_LAYERS) return readLayers(buf, dtype, layers);
+        if (layers != LAYERS) throw new IOException("Expected " + LAYERS + " layers, found " + layers);
+        int in1 = buf.getInt(), out1 = buf.getInt(), in2 = buf.getInt(), out2 = buf.getInt();
+        if (in1 <= 0 || out1 <= 0 || out2 <= 0 || in2 != out1) throw new IOException("Inconsistent layer shapes");
+        long bytes = buf.getLong();
+        int crc = buf.getInt();
+        buf.getInt();
+        int width = dtype == DTYPE_F64 ? 8 : 4;
+        long expected = ((long) in1*out1 + out1 + (long) in2*out2 + out2) * width;
+        if (bytes != expected || buf.remaining() < bytes) throw new IOException("Payload size mismatch: header says " + bytes + ", shapes need " + expected + ", file has " + buf.remaining());
+        ByteBuffer payload = buf.slice().limit((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 check = new CRC32();
+        check.update(payload.duplicate());
+        if ((int) check.getValue() != crc) throw new IOException("Weights checksum mismatch");
+
+        if (dtype == DTYPE_F64){
+            java.nio.DoubleBuffer d = payload.asDoubleBuffer();
+            Matrix W1 = new Matrix(in1, out1), W2 = new Matrix(in2, out2);
+            double[] b1 = new double[out1], b2 = new double[out2];
+            d.get(W1.data).get(b1).get(W2.data).get(b2);
+            return new Model(new Dense(W1, b1), new Dense(W2, b2));
+        }
+        java.nio.FloatBuffer f = payload.asFloatBuffer();
+        FMatrix W1 = new FMatrix(in1, out1), W2 = new FMatrix(in2, out2);
+        float[] b1 = new float[out1], b2 = new float[out2];
+        f.get(W1.data).get(b1).get(W2.data).get(b2);
+        return new FloatModel(new FloatDense(W1, b1), new FloatDense(W2, b2));
+    }
+
+    private static Sequential readLayers(ByteBuffer buf, int dtype, int layers) throws IOException {
+        if (dtype != DTYPE_F64) throw new IOException("Layered weights files are float64 only");
+        if (layers <= 0 || layers > 1024 || buf.remaining() < headerBytes(VERSION_LAYERS, layers) - 16)
+            throw new IOException("Truncated or corrupt layered header (" + layers + " layers)");
+        int[] shape = new int[layers * LAYER_INTS];
+        long expected = 0;
+        for (int i=0;i<shape.length;i++) shape[i] = buf.getInt();
+        for (int l=0;l<layers;l++){
+            int in = shape[LAYER_INTS*l], out = shape[LAYER_INTS*l+1];
+            if (in <= 0 || out <= 0 || (l > 0 && in != shape[LAYER_INTS*(l-1)+1])) throw new IOException("Inconsistent layer shapes");
+            expected += ((long) in*out + out) * 8;
+        }
+        long bytes = buf.getLong();
+        int crc = buf.getInt();
+        buf.getInt();
+        if (bytes != expected || buf.remaining() < bytes) throw new IOException("Payload size mismatch: header says " + bytes + ", shapes need " + expected + ", file has " + buf.remaining());
+        ByteBuffer payload = buf.slice().limit((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 check = new CRC32();
+        check.update(payload.duplicate());
+        if ((int) check.getValue() != crc) throw new IOException("Weights checksum mismatch");
+        java.nio.DoubleBuffer d = payload.asDoubleBuffer();
+        List<Layer> ls = new ArrayList<>();
+        for (int l=0;l<layers;l++){
+            int s = LAYER_INTS*l;
+            Matrix W = new Matrix(shape[s], shape[s+1]);
+            double[] b = new double[shape[s+1]];
+            d.get(W.data).get(b);
+            ls.add(new Dense(W, b));
+            Activation act = activation(shape[s+2], Double.longBitsToDouble((shape[s+4] & 0xffffffffL) | (long) shape[s+5] << 32));
+            if (act != null) ls.add(act);
+        }
+        return new Sequential(shape[0], ls.toArray(new Layer[0]));
+    }
+
+    static int headerBytes(int version, int layers){
+        return version == VERSION ? HEADER_BYTES : 16 + 4*LAYER_INTS*layers + 16;
+    }
+
+    static int activationCode(Activation a){
+        if (a == null) return 0;
+        if (a instanceof ReLU) return 1;
+        if (a instanceof LeakyReLU) return 2;
+        if (a instanceof GELU) return 3;
+        if (a instanceof Sigmoid) return 4;
+        if (a instanceof Tanh) return 5;
+        throw new IllegalArgumentException("No weights file code for activation " + a.name());
+    }
+
+    static Activation activation(int code, double param) throws IOException {
+        switch (code){
+            case 0: return null;
+            case 1: return new ReLU();
+            case 2: return new LeakyReLU(param);
+            case 3: return new GELU();
+            case 4: return new Sigmoid();
+            case 5: return new Tanh();
+            default: throw new IOException("Unknown activation code " + code);
+        }
+    }
+
+    public static void write(Predictor p, Path path) throws IOException {
+        if (p instanceof Model) write((Model) p, path);
+        else if (p instanceof Sequential) write((Sequential) p, path);
+        else if (p instanceof FloatModel) write((FloatModel) p, path);
+        else throw new IllegalArgumentException("Cannot write " + p.precision().dtype() + " models as " + path.getFileName());
+    }
+
+    /**
+     * Converts between formats by file extension:
+     * {@code WeightsFile weights.json weights.bin} or {@code WeightsFile weights.bin weights.json}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: WeightsFile <in.json|in.bin> <out.bin|out.json>");
+            System.exit(2);
+        }
+        Path in = Path.of(args[0]), out = Path.of(args[1]);
+        Predictor p = in.toString().endsWith(".json")
+                ? JsonWeights.parse(Files.readString(in))
+                : read(in);
+        if (out.toString().endsWith(".json")) Files.writeString(out, JsonWeights.toJson(p));
+        else write(p, out);
+        System.out.println("Wrote " + p.precision().dtype() + " model " + p.inputSize() + "->" + p.outputSize() + " to " + out);
+    }
+
+    private static ByteBuffer allocate(long bytes){
+        if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Model too large for a single weights file");
+        return ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static Matrix contiguous(Matrix M){ return M.offset == 0 && M.isContiguous() ? M : M.copy(); }
+
+    private static float[] flat(FMatrix M){
+        if (M.offset == 0 && M.isContiguous()) return M.data;
+        float[] f = new float[M.rows*M.cols];
+        for (int i=0;i<M.rows;i++)
+            for (int j=0;j<M.cols;j++) f[i*M.cols + j] = M.get(i, j);
+        return f;
+    }
+}
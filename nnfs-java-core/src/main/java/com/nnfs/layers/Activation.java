@@ -0,0 +1,67 @@
+package com.nnfs.layers;
+
+import com.nnfs.math.Matrix;
+
+/**
+ * Element-wise nonlinearity. Subclasses supply the row kernels; the backward pass scales dY in
+ * place by f'(x), so activations need no gradient buffer of their own.
+ */
+public abstract class Activation implements Layer {
+    private final Rows out = new Rows();
+    protected Matrix in, y;
+
+    /** Parses {@code relu}, {@code leaky_relu}, {@code gelu}, {@code sigmoid} or {@code tanh}. */
+    public static Activation of(String name){
+        switch (name.trim().toLowerCase(java.util.Locale.ROOT)){
+            case "relu": return new ReLU();
+            case "leaky_relu": case "leakyrelu": return new LeakyReLU(LeakyReLU.DEFAULT_ALPHA);
+            case "gelu": return new GELU();
+            case "sigmoid": return new Sigmoid();
+            case "tanh": return new Tanh();
+            default: throw new IllegalArgumentException("Unknown activation '" + name + "' (relu, leaky_relu, gelu, sigmoid, tanh)");
+        }
+    }
+
+    public abstract String name();
+
+    @Override public String kind(){ return name(); }
+
+    /** y[yo..yo+n) = f(x[xo..xo+n)). */
+    protected abstract void apply(int n, double[] x, int xo, double[] y, int yo);
+
+    /** g[go..go+n) *= f'(x) given both the input x and the output y of the forward pass. */
+    protected abstract void gradient(int n, double[] x, int xo, double[] y, int yo, double[] g, int go);
+
+    @Override
+    public int outputSize(int inputSize){ return inputSize; }
+
+    @Override
+    public Matrix forward(Matrix X){
+        if (X.colStride != 1) throw new IllegalArgumentException(name() + " needs unit column stride");
+        in = X;
+        y = out.get(X.rows, X.cols);
+        for (int i=0;i<X.rows;i++)
+            apply(X.cols, X.data, X.offset + i*X.rowStride, y.data, y.offset + i*y.rowStride);
+        return y;
+    }
+
+    /** Y = f(X) without touching this layer's buffers, so it is safe from any thread; Y may be X. */
+    public void applyInto(Matrix X, Matrix Y){
+        if (X.colStride != 1 || Y.colStride != 1 || !X.sameShape(Y)) throw new IllegalArgumentException(name() + " needs equal shapes with unit column stride");
+        for (int i=0;i<X.rows;i++)
+            apply(X.cols, X.data, X.offset + i*X.rowStride, Y.data, Y.offset + i*Y.rowStride);
+    }
+
+    @Override
+    public Matrix backward(Matrix dY, boolean inputGrad){
+        if (!inputGrad) return null;
+        if (!dY.sameShape(y) || dY.colStride != 1) throw new IllegalArgumentException(name() + ": dY does not match the last forward batch");
+        for (int i=0;i<dY.rows;i++)
+            gradient(dY.cols, in.data, in.offset + i*in.rowStride, y.data, y.offset + i*y.rowStride,
+                     dY.data, dY.offset + i*dY.rowStride);
+        return dY;
+    }
+
+    @Override
+    public String toString(){ return name(); }
+}
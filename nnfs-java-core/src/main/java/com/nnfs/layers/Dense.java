@@ -1,19 +1,85 @@
 package com.nnfs.layers;
 
+import com.nnfs.math.Matrix;
+import com.nnfs.math.MatrixOps;
+
+import java.util.List;
 import java.util.Random;
 
-public class Dense {
+public class Dense implements Layer {
     public final int nIn, nOut;
-    public double[][] W;
+    public Matrix W;
     public double[] b;
+    /** Gradients from the last backward pass; allocated on first use so inference-only layers do not carry them. */
+    public Matrix dW;
+    public double[] db;
+
+    private final Rows out = new Rows(), dIn = new Rows();
+    private Matrix x;
 
     public Dense(int nIn, int nOut, double weightScale, long seed){
         this.nIn = nIn; this.nOut = nOut;
-        W = new double[nIn][nOut];
+        W = new Matrix(nIn, nOut);
         b = new double[nOut];
         Random rnd = new Random(seed);
-        for (int i=0;i<nIn;i++)
-            for (int j=0;j<nOut;j++)
-                W[i][j] = rnd.nextGaussian() * weightScale;
+        for (int i=0;i<nIn*nOut;i++)
+            W.data[i] = rnd.nextGaussian() * weightScale;
+    }
+
+    /** Wraps already-trained parameters; W is nIn x nOut. */
+    public Dense(Matrix W, double[] b){
+        if (b.length != W.cols) throw new IllegalArgumentException("b.size must equal W.cols");
+        this.nIn = W.rows; this.nOut = W.cols;
+        this.W = W; this.b = b;
+    }
+
+    @Override public String kind(){ return "dense"; }
+
+    @Override
+    public int outputSize(int inputSize){
+        if (inputSize != nIn) throw new IllegalArgumentException("Dense " + nIn + "->" + nOut + " cannot take " + inputSize + " inputs");
+        return nOut;
+    }
+
+    @Override
+    public Matrix forward(Matrix X){
+        return forward(X, false);
+    }
+
+    /** X*W + b, rectified in the same pass when {@code relu} is set (see {@link ReLU#forwardApplied}). */
+    public Matrix forward(Matrix X, boolean relu){
+        x = X;
+        Matrix y = out.get(X.rows, nOut);
+        if (relu) MatrixOps.dotBiasReluInto(X, W, b, y);
+        else MatrixOps.dotBiasInto(X, W, b, y);
+        return y;
+    }
+
+    @Override
+    public Matrix backward(Matrix dY, boolean inputGrad){
+        grads();
+        MatrixOps.dotTNInto(1.0/dY.rows, x, dY, dW);
+        MatrixOps.meanColsInto(dY, db);
+        if (!inputGrad) return null;
+        Matrix dX = dIn.get(dY.rows, nIn);
+        MatrixOps.dotNTInto(1.0, dY, W, dX);
+        return dX;
+    }
+
+    @Override
+    public List<Param> params(){
+        grads();
+        if (W.offset != 0 || !W.isContiguous() || W.data.length != nIn*nOut)
+            throw new IllegalStateException("Dense weights must be a contiguous matrix to be trained");
+        return List.of(new Param("W", W.data, dW.data, true), new Param("b", b, db, false));
+    }
+
+    @Override
+    public Dense replica(){
+        return new Dense(W, b);
+    }
+
+    private void grads(){
+        if (dW == null){ dW = new Matrix(nIn, nOut); db = new double[nOut]; }
     }
-}
\ No newline at end of file
+}
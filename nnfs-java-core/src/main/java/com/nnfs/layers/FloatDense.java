@@ -0,0 +1,33 @@
+package com.nnfs.layers;
+
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.FloatOps;
+
+import java.util.Random;
+
+public class FloatDense {
+    public final int nIn, nOut;
+    public FMatrix W;
+    public float[] b;
+
+    public FloatDense(int nIn, int nOut, double weightScale, long seed){
+        this.nIn = nIn; this.nOut = nOut;
+        W = new FMatrix(nIn, nOut);
+        b = new float[nOut];
+        Random rnd = new Random(seed);
+        for (int i=0;i<nIn*nOut;i++)
+            W.data[i] = (float) (rnd.nextGaussian() * weightScale);
+    }
+
+    public FloatDense(FMatrix W, float[] b){
+        if (b.length != W.cols) throw new IllegalArgumentException("b.size must equal W.cols");
+        this.nIn = W.rows; this.nOut = W.cols;
+        this.W = W; this.b = b;
+    }
+
+    public FloatDense(Dense d){
+        this.nIn = d.nIn; this.nOut = d.nOut;
+        W = FMatrix.of(d.W);
+        b = FloatOps.toFloat(d.b);
+    }
+}
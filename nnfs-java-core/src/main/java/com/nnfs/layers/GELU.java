@@ -0,0 +1,27 @@
+package com.nnfs.layers;
+
+/** GELU with the usual tanh approximation: 0.5x(1 + tanh(sqrt(2/pi)(x + 0.044715x^3))). */
+public final class GELU extends Activation {
+    private static final double C = Math.sqrt(2.0 / Math.PI), A = 0.044715;
+
+    @Override public String name(){ return "gelu"; }
+
+    @Override
+    protected void apply(int n, double[] x, int xo, double[] y, int yo){
+        for (int j=0;j<n;j++){
+            double v = x[xo + j];
+            y[yo + j] = 0.5 * v * (1.0 + Math.tanh(C * (v + A*v*v*v)));
+        }
+    }
+
+    @Override
+    protected void gradient(int n, double[] x, int xo, double[] y, int yo, double[] g, int go){
+        for (int j=0;j<n;j++){
+            double v = x[xo + j];
+            double t = Math.tanh(C * (v + A*v*v*v));
+            g[go + j] *= 0.5 * (1.0 + t) + 0.5 * v * (1.0 - t*t) * C * (1.0 + 3.0*A*v*v);
+        }
+    }
+
+    @Override public GELU replica(){ return new GELU(); }
+}
@@ -0,0 +1,33 @@
+package com.nnfs.layers;
+
+import com.nnfs.math.Matrix;
+
+import java.util.List;
+
+/**
+ * One stage of a {@link com.nnfs.nn.Sequential} network. Matrices returned by {@link #forward}
+ * and {@link #backward} belong to the layer and are reused by the next call, so a training step
+ * allocates nothing once every buffer has grown to the batch size. A layer keeps a reference to
+ * its last input for the backward pass; that input must stay untouched until then.
+ */
+public interface Layer {
+    /** Output width for an input of width {@code inputSize}; throws if the layer cannot take it. */
+    int outputSize(int inputSize);
+
+    Matrix forward(Matrix X);
+
+    /**
+     * Given dL/dY for the last forward batch (one row per sample, not averaged), overwrites the
+     * parameter gradients with their batch means and returns dL/dX, or null when
+     * {@code inputGrad} is false. May overwrite dY and return it.
+     */
+    Matrix backward(Matrix dY, boolean inputGrad);
+
+    default List<Param> params(){ return List.of(); }
+
+    /** Short constant name reported to {@link com.nnfs.metrics.Instrumentation}, e.g. "dense" or "relu". */
+    default String kind(){ return getClass().getSimpleName(); }
+
+    /** A layer sharing this one's parameters but with its own buffers and gradients, for use on another thread. */
+    Layer replica();
+}
@@ -0,0 +1,25 @@
+package com.nnfs.layers;
+
+public final class LeakyReLU extends Activation {
+    public static final double DEFAULT_ALPHA = 0.01;
+    public final double alpha;
+
+    public LeakyReLU(double alpha){
+        if (!(alpha >= 0.0 && alpha < 1.0)) throw new IllegalArgumentException("alpha must be in [0, 1)");
+        this.alpha = alpha;
+    }
+
+    @Override public String name(){ return "leaky_relu"; }
+
+    @Override
+    protected void apply(int n, double[] x, int xo, double[] y, int yo){
+        for (int j=0;j<n;j++){ double v = x[xo + j]; y[yo + j] = v > 0.0 ? v : alpha * v; }
+    }
+
+    @Override
+    protected void gradient(int n, double[] x, int xo, double[] y, int yo, double[] g, int go){
+        for (int j=0;j<n;j++) if (x[xo + j] <= 0.0) g[go + j] *= alpha;
+    }
+
+    @Override public LeakyReLU replica(){ return new LeakyReLU(alpha); }
+}
@@ -0,0 +1,21 @@
+package com.nnfs.layers;
+
+/** A trainable array and its gradient, flat and contiguous so optimizers can update it in one pass. */
+public final class Param {
+    public final String name;
+    public final double[] value, grad;
+    /** Whether L2 weight decay applies (weights yes, biases no). */
+    public final boolean decay;
+
+    public Param(String name, double[] value, double[] grad, boolean decay){
+        if (value.length != grad.length) throw new IllegalArgumentException(name + ": value and grad lengths differ");
+        this.name = name; this.value = value; this.grad = grad; this.decay = decay;
+    }
+
+    /** Same values, fresh gradient array; used to hold a reduction of several replicas' gradients. */
+    public Param withOwnGrad(){
+        return new Param(name, value, new double[value.length], decay);
+    }
+
+    public int size(){ return value.length; }
+}
@@ -0,0 +1,31 @@
+package com.nnfs.layers;
+
+import com.nnfs.math.Kernels;
+import com.nnfs.math.Matrix;
+
+public final class ReLU extends Activation {
+    private static final Kernels K = Kernels.get();
+
+    @Override public String name(){ return "relu"; }
+
+    /**
+     * Records Y, already rectified by {@link Dense#forward(Matrix, boolean)}, as this layer's
+     * input and output, so the Dense+ReLU pair costs one pass over the activations.
+     */
+    public Matrix forwardApplied(Matrix Y){
+        in = Y; y = Y;
+        return Y;
+    }
+
+    @Override
+    protected void apply(int n, double[] x, int xo, double[] y, int yo){
+        for (int j=0;j<n;j++){ double v = x[xo + j]; y[yo + j] = v > 0.0 ? v : 0.0; }
+    }
+
+    @Override
+    protected void gradient(int n, double[] x, int xo, double[] y, int yo, double[] g, int go){
+        K.reluBackward(n, g, go, y, yo);
+    }
+
+    @Override public ReLU replica(){ return new ReLU(); }
+}
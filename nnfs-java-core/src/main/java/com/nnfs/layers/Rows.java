@@ -0,0 +1,17 @@
+package com.nnfs.layers;
+
+import com.nnfs.math.Matrix;
+
+/** A growable batch buffer: hands out an n x cols view, reallocating only when it needs more rows. */
+final class Rows {
+    private Matrix full, view;
+
+    Matrix get(int n, int cols){
+        if (full == null || full.rows < n || full.cols != cols){
+            full = new Matrix(n, cols);
+            view = full;
+        }
+        if (view.rows != n) view = full.rows(0, n);
+        return view;
+    }
+}
@@ -0,0 +1,17 @@
+package com.nnfs.layers;
+
+public final class Sigmoid extends Activation {
+    @Override public String name(){ return "sigmoid"; }
+
+    @Override
+    protected void apply(int n, double[] x, int xo, double[] y, int yo){
+        for (int j=0;j<n;j++) y[yo + j] = 1.0 / (1.0 + Math.exp(-x[xo + j]));
+    }
+
+    @Override
+    protected void gradient(int n, double[] x, int xo, double[] y, int yo, double[] g, int go){
+        for (int j=0;j<n;j++){ double s = y[yo + j]; g[go + j] *= s * (1.0 - s); }
+    }
+
+    @Override public Sigmoid replica(){ return new Sigmoid(); }
+}
@@ -0,0 +1,17 @@
+package com.nnfs.layers;
+
+public final class Tanh extends Activation {
+    @Override public String name(){ return "tanh"; }
+
+    @Override
+    protected void apply(int n, double[] x, int xo, double[] y, int yo){
+        for (int j=0;j<n;j++) y[yo + j] = Math.tanh(x[xo + j]);
+    }
+
+    @Override
+    protected void gradient(int n, double[] x, int xo, double[] y, int yo, double[] g, int go){
+        for (int j=0;j<n;j++){ double t = y[yo + j]; g[go + j] *= 1.0 - t*t; }
+    }
+
+    @Override public Tanh replica(){ return new Tanh(); }
+}
@@ -1,13 +1,18 @@
 package com.nnfs.loss;
 
+import com.nnfs.math.Matrix;
+
 public final class CategoricalCrossEntropy {
     private CategoricalCrossEntropy(){}
-    public static double loss(double[][] yPred, int[] yTrue){
-        int n = yPred.length; double sum = 0.0;
+    public static double loss(Matrix yPred, int[] yTrue){
+        int n = yPred.rows; double sum = 0.0;
         for (int i=0;i<n;i++){
-            double p = Math.max(1e-12, yPred[i][yTrue[i]]);
+            double p = Math.max(1e-12, yPred.get(i, yTrue[i]));
             sum += -Math.log(p);
         }
         return sum / n;
     }
-}
\ No newline at end of file
+    public static double loss(double[][] yPred, int[] yTrue){
+        return loss(Matrix.of(yPred), yTrue);
+    }
+}
@@ -0,0 +1,77 @@
+package com.nnfs.loss;
+
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.Kernels;
+import com.nnfs.math.Matrix;
+
+/**
+ * Softmax followed by categorical cross-entropy, computed together so each row of logits is
+ * read once to produce the probabilities, the loss term and the {@code probs - onehot} gradient.
+ */
+public final class SoftmaxCrossEntropy {
+    private SoftmaxCrossEntropy(){}
+
+    private static final Kernels K = Kernels.get();
+
+    /**
+     * Writes softmax(logits) into probs (which may alias logits) and probs - onehot(yTrue) into
+     * dLogits, and returns the mean cross-entropy loss.
+     */
+    public static double forwardBackward(Matrix logits, int[] yTrue, Matrix probs, Matrix dLogits){
+        int n = logits.rows, m = logits.cols;
+        if (!logits.sameShape(probs) || !logits.sameShape(dLogits)) throw new IllegalArgumentException("shape mismatch");
+        if (yTrue.length != n) throw new IllegalArgumentException("yTrue.length must equal rows");
+        double[] z = logits.data, p = probs.data, d = dLogits.data;
+        double sum = 0.0;
+        for (int i=0;i<n;i++){
+            int zi = logits.offset + i*logits.rowStride, zc = logits.colStride;
+            int pi = probs.offset + i*probs.rowStride, pc = probs.colStride;
+            int di = dLogits.offset + i*dLogits.rowStride, dc = dLogits.colStride;
+            int y = yTrue[i];
+            if (pc == 1){
+                if (z != p || zi != pi || zc != 1) for (int j=0;j<m;j++) p[pi + j] = z[zi + j*zc];
+                K.softmax(m, p, pi);
+                for (int j=0;j<m;j++) d[di + j*dc] = p[pi + j];
+                d[di + y*dc] -= 1.0;
+            } else {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int j=0;j<m;j++) max = Math.max(max, z[zi + j*zc]);
+                double s = 0.0;
+                for (int j=0;j<m;j++){ double e = Math.exp(z[zi + j*zc] - max); p[pi + j*pc] = e; s += e; }
+                double inv = 1.0 / (s + 1e-12);
+                for (int j=0;j<m;j++){
+                    double q = p[pi + j*pc] * inv;
+                    p[pi + j*pc] = q;
+                    d[di + j*dc] = j == y ? q - 1.0 : q;
+                }
+            }
+            sum += -Math.log(Math.max(1e-12, p[pi + y*pc]));
+        }
+        return sum / n;
+    }
+
+    /** float32 variant; exp, the row sums and the loss are accumulated in double. */
+    public static double forwardBackward(FMatrix logits, int[] yTrue, FMatrix probs, FMatrix dLogits){
+        int n = logits.rows, m = logits.cols;
+        if (!logits.sameShape(probs) || !logits.sameShape(dLogits)) throw new IllegalArgumentException("shape mismatch");
+        if (yTrue.length != n) throw new IllegalArgumentException("yTrue.length must equal rows");
+        double sum = 0.0;
+        for (int i=0;i<n;i++){
+            float max = Float.NEGATIVE_INFINITY;
+            for (int j=0;j<m;j++) max = Math.max(max, logits.get(i, j));
+            double s = 0.0;
+            for (int j=0;j<m;j++){ double e = Math.exp(logits.get(i, j) - max); probs.set(i, j, (float) e); s += e; }
+            double inv = 1.0 / (s + 1e-12);
+            int y = yTrue[i];
+            double py = 0.0;
+            for (int j=0;j<m;j++){
+                double q = probs.get(i, j) * inv;
+                if (j == y) py = q;
+                probs.set(i, j, (float) q);
+                dLogits.set(i, j, (float) (j == y ? q - 1.0 : q));
+            }
+            sum += -Math.log(Math.max(1e-12, py));
+        }
+        return sum / n;
+    }
+}
@@ -0,0 +1,91 @@
+package com.nnfs.math;
+
+/** Float counterpart of {@link Matrix}: row-major, single {@code float[]}, strided views. */
+public final class FMatrix {
+    public final float[] data;
+    public final int rows, cols;
+    public final int offset, rowStride, colStride;
+
+    public FMatrix(int rows, int cols){
+        this(new float[rows * cols], 0, rows, cols, cols, 1);
+    }
+
+    public FMatrix(float[] data, int offset, int rows, int cols, int rowStride, int colStride){
+        if (rows < 0 || cols < 0) throw new IllegalArgumentException("negative shape " + rows + "x" + cols);
+        this.data = data; this.offset = offset;
+        this.rows = rows; this.cols = cols;
+        this.rowStride = rowStride; this.colStride = colStride;
+    }
+
+    public static FMatrix wrap(float[] data, int rows, int cols){
+        if (data.length < rows * cols) throw new IllegalArgumentException("data too small for " + rows + "x" + cols);
+        return new FMatrix(data, 0, rows, cols, cols, 1);
+    }
+
+    public static FMatrix of(double[][] A){
+        int n = A.length, m = n == 0 ? 0 : A[0].length;
+        FMatrix M = new FMatrix(n, m);
+        for (int i=0;i<n;i++){
+            if (A[i].length != m) throw new IllegalArgumentException("ragged row " + i);
+            for (int j=0;j<m;j++) M.data[i*m + j] = (float) A[i][j];
+        }
+        return M;
+    }
+
+    public static FMatrix of(Matrix A){
+        FMatrix M = new FMatrix(A.rows, A.cols);
+        for (int i=0;i<A.rows;i++)
+            for (int j=0;j<A.cols;j++) M.data[i*A.cols + j] = (float) A.get(i, j);
+        return M;
+    }
+
+    public Matrix toMatrix(){
+        Matrix M = new Matrix(rows, cols);
+        for (int i=0;i<rows;i++)
+            for (int j=0;j<cols;j++) M.data[i*cols + j] = get(i, j);
+        return M;
+    }
+
+    public double[][] toArray(){
+        double[][] A = new double[rows][cols];
+        for (int i=0;i<rows;i++)
+            for (int j=0;j<cols;j++) A[i][j] = get(i, j);
+        return A;
+    }
+
+    public int index(int i, int j){ return offset + i*rowStride + j*colStride; }
+    public float get(int i, int j){ return data[offset + i*rowStride + j*colStride]; }
+    public void set(int i, int j, float v){ data[offset + i*rowStride + j*colStride] = v; }
+
+    public boolean isContiguous(){ return colStride == 1 && (rowStride == cols || rows <= 1); }
+
+    public FMatrix rows(int from, int to){
+        if (from < 0 || to > rows || from > to) throw new IndexOutOfBoundsException("rows " + from + ".." + to + " of " + rows);
+        return new FMatrix(data, offset + from*rowStride, to - from, cols, rowStride, colStride);
+    }
+
+    public FMatrix transpose(){
+        return new FMatrix(data, offset, cols, rows, colStride, rowStride);
+    }
+
+    public void copyFrom(FMatrix src){
+        if (src.rows != rows || src.cols != cols) throw new IllegalArgumentException("shape mismatch");
+        for (int i=0;i<rows;i++){
+            int s = src.offset + i*src.rowStride, d = offset + i*rowStride;
+            if (colStride == 1 && src.colStride == 1) System.arraycopy(src.data, s, data, d, cols);
+            else for (int j=0;j<cols;j++) data[d + j*colStride] = src.data[s + j*src.colStride];
+        }
+    }
+
+    public void fill(float v){
+        for (int i=0;i<rows;i++){
+            int base = offset + i*rowStride;
+            for (int j=0;j<cols;j++) data[base + j*colStride] = v;
+        }
+    }
+
+    public boolean sameShape(FMatrix o){ return rows == o.rows && cols == o.cols; }
+
+    @Override
+    public String toString(){ return "FMatrix[" + rows + "x" + cols + "]"; }
+}
@@ -0,0 +1,177 @@
+package com.nnfs.math;
+
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * float32 kernels. Products accumulate in float over contiguous rows (which C2 vectorises at
+ * twice the double lane count); reductions that lose precision in float - softmax sums,
+ * column means, the loss - accumulate in double.
+ */
+public final class FloatOps {
+    private FloatOps(){}
+
+    static final long PARALLEL_FLOPS = 128L * 128 * 128;
+    static final int ROW_CHUNK = 16;
+
+    /** C = alpha*op(A)*op(B) + beta*C, then optional bias row and ReLU. */
+    public static void gemm(float alpha, FMatrix A, boolean transA, FMatrix B, boolean transB, float beta, FMatrix C,
+                            float[] bias, boolean relu){
+        Instrumentation ins = Instruments.get();
+        if (ins == Instrumentation.NONE) { multiply(alpha, A, transA, B, transB, beta, C, bias, relu); return; }
+        long t0 = System.nanoTime();
+        multiply(alpha, A, transA, B, transB, beta, C, bias, relu);
+        ins.gemm(Precision.FLOAT32, C.rows, C.cols, transA ? A.rows : A.cols, System.nanoTime() - t0);
+    }
+
+    private static void multiply(float alpha, FMatrix A, boolean transA, FMatrix B, boolean transB, float beta, FMatrix C,
+                                 float[] bias, boolean relu){
+        int m = transA ? A.cols : A.rows, k = transA ? A.rows : A.cols;
+        int kb = transB ? B.cols : B.rows, n = transB ? B.rows : B.cols;
+        if (kb != k) throw new IllegalArgumentException("op(A).cols must equal op(B).rows");
+        if (C.rows != m || C.cols != n) throw new IllegalArgumentException("C must be " + m + "x" + n);
+        if (bias != null && bias.length != n) throw new IllegalArgumentException("bias.size must equal C.cols");
+        if ((long) m * n * k >= PARALLEL_FLOPS && m > ROW_CHUNK && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            ForkJoinPool.commonPool().invoke(new Rows(alpha, A, transA, B, transB, beta, C, bias, relu, 0, m));
+        } else {
+            rows(alpha, A, transA, B, transB, beta, C, bias, relu, 0, m);
+        }
+    }
+
+    public static void dotInto(FMatrix A, FMatrix B, FMatrix C){ gemm(1f, A, false, B, false, 0f, C, null, false); }
+    public static void dotTNInto(float alpha, FMatrix A, FMatrix B, FMatrix C){ gemm(alpha, A, true, B, false, 0f, C, null, false); }
+    public static void dotNTInto(float alpha, FMatrix A, FMatrix B, FMatrix C){ gemm(alpha, A, false, B, true, 0f, C, null, false); }
+    public static void dotBiasInto(FMatrix A, FMatrix B, float[] b, FMatrix C){ gemm(1f, A, false, B, false, 0f, C, b, false); }
+    public static void dotBiasReluInto(FMatrix A, FMatrix B, float[] b, FMatrix C){ gemm(1f, A, false, B, false, 0f, C, b, true); }
+
+    private static final class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final float alpha, beta; final FMatrix A, B, C; final boolean transA, transB, relu; final float[] bias;
+        final int from, to;
+
+        Rows(float alpha, FMatrix A, boolean transA, FMatrix B, boolean transB, float beta, FMatrix C,
+             float[] bias, boolean relu, int from, int to){
+            this.alpha = alpha; this.A = A; this.transA = transA; this.B = B; this.transB = transB;
+            this.beta = beta; this.C = C; this.bias = bias; this.relu = relu; this.from = from; this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= ROW_CHUNK) { rows(alpha, A, transA, B, transB, beta, C, bias, relu, from, to); return; }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Rows(alpha, A, transA, B, transB, beta, C, bias, relu, from, mid),
+                      new Rows(alpha, A, transA, B, transB, beta, C, bias, relu, mid, to));
+        }
+    }
+
+    private static void rows(float alpha, FMatrix A, boolean transA, FMatrix B, boolean transB, float beta, FMatrix C,
+                             float[] bias, boolean relu, int i0, int i1){
+        int k = transA ? A.rows : A.cols, n = C.cols;
+        int ars = transA ? A.colStride : A.rowStride, acs = transA ? A.rowStride : A.colStride;
+        int brs = transB ? B.colStride : B.rowStride, bcs = transB ? B.rowStride : B.colStride;
+        float[] a = A.data, b = B.data, c = C.data;
+        int ccs = C.colStride;
+        for (int i = i0; i < i1; i++) {
+            int aRow = A.offset + i*ars, cRow = C.offset + i*C.rowStride;
+            if (transB && brs == 1) {
+                // C[i][j] = dot(A row i, B row j): both operands walk contiguous memory
+                for (int j = 0; j < n; j++) {
+                    int bRow = B.offset + j*bcs;
+                    float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+                    int p = 0;
+                    if (acs == 1) {
+                        for (; p + 3 < k; p += 4) {
+                            s0 += a[aRow + p] * b[bRow + p];     s1 += a[aRow + p + 1] * b[bRow + p + 1];
+                            s2 += a[aRow + p + 2] * b[bRow + p + 2]; s3 += a[aRow + p + 3] * b[bRow + p + 3];
+                        }
+                    }
+                    for (; p < k; p++) s0 += a[aRow + p*acs] * b[bRow + p];
+                    int ci = cRow + j*ccs;
+                    float prev = beta == 0f ? 0f : beta * c[ci];
+                    c[ci] = prev + alpha * ((s0 + s1) + (s2 + s3));
+                }
+            } else {
+                if (beta == 0f) for (int j = 0; j < n; j++) c[cRow + j*ccs] = 0f;
+                else if (beta != 1f) for (int j = 0; j < n; j++) c[cRow + j*ccs] *= beta;
+                for (int p = 0; p < k; p++) {
+                    float aip = alpha * a[aRow + p*acs];
+                    if (aip == 0f) continue;
+                    int bRow = B.offset + p*brs;
+                    if (bcs == 1 && ccs == 1) {
+                        for (int j = 0; j < n; j++) c[cRow + j] += aip * b[bRow + j];
+                    } else {
+                        for (int j = 0; j < n; j++) c[cRow + j*ccs] += aip * b[bRow + j*bcs];
+                    }
+                }
+            }
+            if (bias != null || relu) {
+                for (int j = 0; j < n; j++) {
+                    int ci = cRow + j*ccs;
+                    float v = bias != null ? c[ci] + bias[j] : c[ci];
+                    c[ci] = relu && v < 0f ? 0f : v;
+                }
+            }
+        }
+    }
+
+    public static void reluBackwardInPlace(FMatrix dA, FMatrix act){
+        if (!dA.sameShape(act)) throw new IllegalArgumentException("dA and act shapes differ");
+        for (int i = 0; i < dA.rows; i++) {
+            int g = dA.offset + i*dA.rowStride, a = act.offset + i*act.rowStride;
+            for (int j = 0; j < dA.cols; j++)
+                if (act.data[a + j*act.colStride] <= 0f) dA.data[g + j*dA.colStride] = 0f;
+        }
+    }
+
+    /** Row softmax in place; exp and the row sum are evaluated in double. */
+    public static void softmaxInPlace(FMatrix X){
+        float[] x = X.data;
+        for (int i = 0; i < X.rows; i++) {
+            int s = X.offset + i*X.rowStride, cs = X.colStride;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int j = 0; j < X.cols; j++) max = Math.max(max, x[s + j*cs]);
+            double sum = 0.0;
+            for (int j = 0; j < X.cols; j++) { double e = Math.exp(x[s + j*cs] - max); x[s + j*cs] = (float) e; sum += e; }
+            float inv = (float) (1.0 / (sum + 1e-12));
+            for (int j = 0; j < X.cols; j++) x[s + j*cs] *= inv;
+        }
+    }
+
+    public static void meanColsInto(FMatrix A, float[] out){
+        int n = A.rows, m = A.cols;
+        if (out.length != m) throw new IllegalArgumentException("out.size must equal A.cols");
+        for (int j = 0; j < m; j++) {
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) sum += A.data[A.offset + i*A.rowStride + j*A.colStride];
+            out[j] = (float) (sum / n);
+        }
+    }
+
+    public static int[] argmax(FMatrix X){
+        int[] idx = new int[X.rows];
+        for (int i = 0; i < X.rows; i++) {
+            float max = Float.NEGATIVE_INFINITY; int arg = -1;
+            for (int j = 0; j < X.cols; j++) {
+                float v = X.get(i, j);
+                if (v > max) { max = v; arg = j; }
+            }
+            idx[i] = arg;
+        }
+        return idx;
+    }
+
+    public static float[] toFloat(double[] v){
+        float[] f = new float[v.length];
+        for (int i = 0; i < v.length; i++) f[i] = (float) v[i];
+        return f;
+    }
+
+    public static double[] toDouble(float[] v){
+        double[] d = new double[v.length];
+        for (int i = 0; i < v.length; i++) d[i] = v[i];
+        return d;
+    }
+}
@@ -0,0 +1,259 @@
+package com.nnfs.math;
+
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * General matrix multiply {@code C = alpha*A*B + beta*C} on strided {@link Matrix} views.
+ *
+ * Small products use a plain i-k-j loop. Larger ones use the usual Goto-style blocking:
+ * a KC x NC panel of B and an MC x KC block of A are packed into contiguous buffers sized for
+ * L2/L1, and an MR x NR register-tiled micro-kernel walks them. Above {@link #PARALLEL_FLOPS}
+ * the MC row blocks of each packed B panel are split across the common fork-join pool; that path
+ * packs B into a per-call buffer, since a waiting pool thread may run a nested gemm meanwhile.
+ * An optional epilogue (row-vector bias, then ReLU) is applied to each C block right after its
+ * last K panel, while the block is still cache resident.
+ */
+public final class Gemm {
+    private Gemm(){}
+
+    static final int MR = 4, NR = 4;
+    static final Kernels K = Kernels.get();
+    static final int MC = 128, KC = 256, NC = 2048;
+
+    /** m*n*k below which packing is not worth it. */
+    static final long BLOCKED_FLOPS = 32L * 32 * 32;
+    /** m*n*k above which row panels are computed in parallel. */
+    static final long PARALLEL_FLOPS = 128L * 128 * 128;
+
+    private static final class Scratch {
+        double[] aPack = new double[0];
+        double[] bPack = new double[0];
+        final double[] tile = new double[MR * NR];
+        final Operand a = new Operand(), b = new Operand();
+
+        double[] aPack(int n){ if (aPack.length < n) aPack = new double[n]; return aPack; }
+        double[] bPack(int n){ if (bPack.length < n) bPack = new double[n]; return bPack; }
+    }
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    public static void gemm(double alpha, Matrix A, Matrix B, double beta, Matrix C){
+        gemm(alpha, A, false, B, false, beta, C);
+    }
+
+    /**
+     * {@code C = alpha*op(A)*op(B) + beta*C} where op transposes when the flag is set.
+     * Transposition only swaps strides, so no copies or view objects are created; the
+     * sequential path allocates nothing once the calling thread's pack buffers have grown.
+     */
+    public static void gemm(double alpha, Matrix A, boolean transA, Matrix B, boolean transB, double beta, Matrix C){
+        gemm(alpha, A, transA, B, transB, beta, C, null, false);
+    }
+
+    /** As above, then {@code C[i][j] += bias[j]} (when bias is non-null) and {@code C = max(C, 0)} (when relu). */
+    public static void gemm(double alpha, Matrix A, boolean transA, Matrix B, boolean transB, double beta, Matrix C,
+                            double[] bias, boolean relu){
+        Instrumentation ins = Instruments.get();
+        if (ins == Instrumentation.NONE) { multiply(alpha, A, transA, B, transB, beta, C, bias, relu); return; }
+        long t0 = System.nanoTime();
+        multiply(alpha, A, transA, B, transB, beta, C, bias, relu);
+        ins.gemm(Precision.FLOAT64, C.rows, C.cols, transA ? A.rows : A.cols, System.nanoTime() - t0);
+    }
+
+    private static void multiply(double alpha, Matrix A, boolean transA, Matrix B, boolean transB, double beta, Matrix C,
+                                 double[] bias, boolean relu){
+        Scratch s = SCRATCH.get();
+        Operand a = s.a.set(A, transA), b = s.b.set(B, transB);
+        int m = a.rows, k = a.cols, n = b.cols;
+        if (b.rows != k) throw new IllegalArgumentException("op(A).cols must equal op(B).rows");
+        if (C.rows != m || C.cols != n) throw new IllegalArgumentException("C must be " + m + "x" + n);
+        if (bias != null && bias.length != n) throw new IllegalArgumentException("bias.size must equal C.cols");
+        scale(C, beta);
+        if (m == 0 || n == 0 || k == 0 || alpha == 0.0) { epilogue(C, 0, m, 0, n, bias, relu); return; }
+        long flops = (long) m * n * k;
+        if (flops < BLOCKED_FLOPS) { naive(alpha, a, b, C, bias, relu); return; }
+        if (flops < PARALLEL_FLOPS || ForkJoinPool.getCommonPoolParallelism() == 1) { blocked(alpha, a, b, C, false, s, bias, relu); return; }
+        // While it waits for its row panels a pool thread may run other tasks whose gemms take this
+        // thread's scratch, so the operands and packed B that outlive the fork are per call
+        blocked(alpha, new Operand().set(A, transA), new Operand().set(B, transB), C, true, null, bias, relu);
+    }
+
+    /** Strided operand with an optional logical transpose, reused per thread. */
+    static final class Operand {
+        double[] data; int offset, rows, cols, rs, cs;
+        Operand set(Matrix M, boolean trans){
+            data = M.data; offset = M.offset;
+            rows = trans ? M.cols : M.rows; cols = trans ? M.rows : M.cols;
+            rs = trans ? M.colStride : M.rowStride; cs = trans ? M.rowStride : M.colStride;
+            return this;
+        }
+    }
+
+    static void scale(Matrix C, double beta){
+        if (beta == 1.0) return;
+        if (beta == 0.0) { C.fill(0.0); return; }
+        for (int i=0;i<C.rows;i++){
+            int base = C.offset + i*C.rowStride;
+            for (int j=0;j<C.cols;j++) C.data[base + j*C.colStride] *= beta;
+        }
+    }
+
+    static void epilogue(Matrix C, int i0, int i1, int j0, int j1, double[] bias, boolean relu){
+        if (bias == null && !relu) return;
+        double[] c = C.data;
+        for (int i = i0; i < i1; i++) {
+            int base = C.offset + i*C.rowStride;
+            if (C.colStride == 1) { K.biasRelu(j1 - j0, c, base + j0, bias, j0, relu); continue; }
+            for (int j = j0; j < j1; j++) {
+                int idx = base + j*C.colStride;
+                double v = bias != null ? c[idx] + bias[j] : c[idx];
+                c[idx] = relu && v < 0.0 ? 0.0 : v;
+            }
+        }
+    }
+
+    static void naive(double alpha, Operand A, Operand B, Matrix C, double[] bias, boolean relu){
+        double[] a = A.data, b = B.data, c = C.data;
+        int k = A.cols, n = B.cols;
+        for (int i = 0; i < A.rows; i++) {
+            int aRow = A.offset + i*A.rs, cRow = C.offset + i*C.rowStride;
+            for (int p = 0; p < k; p++) {
+                double aip = alpha * a[aRow + p*A.cs];
+                if (aip == 0.0) continue;
+                int bRow = B.offset + p*B.rs;
+                if (B.cs == 1 && C.colStride == 1) {
+                    K.axpy(n, aip, b, bRow, c, cRow);
+                } else {
+                    for (int j = 0; j < n; j++) c[cRow + j*C.colStride] += aip * b[bRow + j*B.cs];
+                }
+            }
+            epilogue(C, i, i + 1, 0, n, bias, relu);
+        }
+    }
+
+    static void blocked(double alpha, Operand A, Operand B, Matrix C, boolean parallel, Scratch s,
+                        double[] bias, boolean relu){
+        int m = A.rows, k = A.cols, n = B.cols;
+        double[] shared = parallel ? new double[roundUp(Math.min(NC, n), NR) * Math.min(KC, k)] : null;
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                double[] bPack = parallel ? shared : s.bPack(roundUp(nc, NR) * kc);
+                packB(B, pc, kc, jc, nc, bPack);
+                boolean last = pc + kc == k;
+                double[] eb = last ? bias : null;
+                boolean er = last && relu;
+                if (parallel && m > MR) {
+                    int chunk = rowChunk(m);
+                    ForkJoinPool.commonPool().invoke(new RowPanels(alpha, A, C, bPack, pc, kc, jc, nc, 0, m, chunk, eb, er));
+                } else {
+                    Scratch rs = s != null ? s : SCRATCH.get();
+                    for (int ic = 0; ic < m; ic += MC)
+                        rowBlock(alpha, A, C, bPack, ic, Math.min(MC, m - ic), pc, kc, jc, nc, rs, eb, er);
+                }
+            }
+        }
+    }
+
+    private static int rowChunk(int m){
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        int chunk = roundUp((m + 2*workers - 1) / (2*workers), MR);
+        return Math.max(MR, Math.min(MC, chunk));
+    }
+
+    private static final class RowPanels extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final double alpha; final Operand A; final Matrix C; final double[] bPack;
+        final int pc, kc, jc, nc, from, to, chunk;
+        final double[] bias; final boolean relu;
+
+        RowPanels(double alpha, Operand A, Matrix C, double[] bPack, int pc, int kc, int jc, int nc,
+                  int from, int to, int chunk, double[] bias, boolean relu){
+            this.alpha = alpha; this.A = A; this.C = C; this.bPack = bPack;
+            this.pc = pc; this.kc = kc; this.jc = jc; this.nc = nc;
+            this.from = from; this.to = to; this.chunk = chunk;
+            this.bias = bias; this.relu = relu;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= chunk) {
+                rowBlock(alpha, A, C, bPack, from, to - from, pc, kc, jc, nc, SCRATCH.get(), bias, relu);
+                return;
+            }
+            int mid = from + roundUp((to - from) / 2, chunk);
+            if (mid >= to) mid = from + chunk;
+            invokeAll(new RowPanels(alpha, A, C, bPack, pc, kc, jc, nc, from, mid, chunk, bias, relu),
+                      new RowPanels(alpha, A, C, bPack, pc, kc, jc, nc, mid, to, chunk, bias, relu));
+        }
+    }
+
+    private static void rowBlock(double alpha, Operand A, Matrix C, double[] bPack,
+                                 int ic, int mc, int pc, int kc, int jc, int nc, Scratch s,
+                                 double[] bias, boolean relu){
+        for (int i0 = ic; i0 < ic + mc; i0 += MC) {
+            int mb = Math.min(MC, ic + mc - i0);
+            double[] aPack = s.aPack(roundUp(mb, MR) * kc);
+            packA(alpha, A, i0, mb, pc, kc, aPack);
+            for (int jr = 0; jr < nc; jr += NR) {
+                int nr = Math.min(NR, nc - jr);
+                int bOff = (jr / NR) * NR * kc;
+                for (int ir = 0; ir < mb; ir += MR) {
+                    int mr = Math.min(MR, mb - ir);
+                    int aOff = (ir / MR) * MR * kc;
+                    if (mr == MR && nr == NR && C.colStride == 1) {
+                        K.kernel4x4(kc, aPack, aOff, bPack, bOff, C.data, C.index(i0 + ir, jc + jr), C.rowStride);
+                    } else {
+                        double[] t = s.tile;
+                        java.util.Arrays.fill(t, 0.0);
+                        K.kernel4x4(kc, aPack, aOff, bPack, bOff, t, 0, NR);
+                        for (int r = 0; r < mr; r++)
+                            for (int c = 0; c < nr; c++)
+                                C.data[C.index(i0 + ir + r, jc + jr + c)] += t[r*NR + c];
+                    }
+                }
+            }
+            epilogue(C, i0, i0 + mb, jc, jc + nc, bias, relu);
+        }
+    }
+
+    /** Packs alpha*A[i0:i0+mb, pc:pc+kc] into MR-row panels, each stored k-major and zero padded. */
+    static void packA(double alpha, Operand A, int i0, int mb, int pc, int kc, double[] dst){
+        double[] a = A.data;
+        int d = 0;
+        for (int ir = 0; ir < mb; ir += MR) {
+            int mr = Math.min(MR, mb - ir);
+            for (int p = 0; p < kc; p++) {
+                int col = A.offset + (pc + p)*A.cs;
+                for (int r = 0; r < MR; r++)
+                    dst[d++] = r < mr ? alpha * a[col + (i0 + ir + r)*A.rs] : 0.0;
+            }
+        }
+    }
+
+    /** Packs B[pc:pc+kc, jc:jc+nc] into NR-column panels, each stored k-major and zero padded. */
+    static void packB(Operand B, int pc, int kc, int jc, int nc, double[] dst){
+        double[] b = B.data;
+        int d = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int nr = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p++) {
+                int row = B.offset + (pc + p)*B.rs;
+                if (nr == NR && B.cs == 1) {
+                    int src = row + jc + jr;
+                    dst[d] = b[src]; dst[d+1] = b[src+1]; dst[d+2] = b[src+2]; dst[d+3] = b[src+3];
+                    d += NR;
+                } else {
+                    for (int c = 0; c < NR; c++)
+                        dst[d++] = c < nr ? b[row + (jc + jr + c)*B.cs] : 0.0;
+                }
+            }
+        }
+    }
+
+    static int roundUp(int x, int to){ return (x + to - 1) / to * to; }
+}
@@ -0,0 +1,18 @@
+package com.nnfs.math;
+
+final class KernelSelection {
+    private KernelSelection(){}
+
+    static final Kernels VECTOR = loadVector();
+    static final Kernels ACTIVE =
+            VECTOR != null && !"false".equalsIgnoreCase(System.getProperty("nnfs.simd")) ? VECTOR : ScalarKernels.INSTANCE;
+
+    private static Kernels loadVector(){
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            return (Kernels) Class.forName("com.nnfs.math.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.nnfs.math;
+
+/**
+ * Inner loops shared by {@link Gemm}, {@link MatrixOps}, the loss and the optimizer, all over
+ * contiguous ranges of a {@code double[]}. {@link #get()} returns the SIMD implementation when
+ * the JVM was started with {@code --add-modules jdk.incubator.vector}, else the scalar one.
+ * Set {@code -Dnnfs.simd=false} to force the scalar path.
+ */
+public interface Kernels {
+    String name();
+
+    /** c[4x4] (row stride ldc) += a-panel[4 x kc] * b-panel[kc x 4], both packed k-major. */
+    void kernel4x4(int kc, double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int ldc);
+
+    /** y += alpha * x */
+    void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff);
+
+    /** y += bias (when non-null), then y = max(y, 0) when relu. */
+    void biasRelu(int n, double[] y, int yOff, double[] bias, int bOff, boolean relu);
+
+    /** g = act > 0 ? g : 0 */
+    void reluBackward(int n, double[] g, int gOff, double[] act, int aOff);
+
+    /** In-place, max-shifted softmax of one row. */
+    void softmax(int n, double[] x, int off);
+
+    /** w -= lr * (g + l2 * w) */
+    void sgd(int n, double[] w, int wOff, double[] g, int gOff, double lr, double l2);
+
+    static Kernels get(){ return KernelSelection.ACTIVE; }
+    static Kernels scalar(){ return ScalarKernels.INSTANCE; }
+    /** The SIMD kernels, or null when the vector module is not available. */
+    static Kernels vector(){ return KernelSelection.VECTOR; }
+}
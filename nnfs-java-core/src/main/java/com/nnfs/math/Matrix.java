@@ -0,0 +1,93 @@
+package com.nnfs.math;
+
+/**
+ * Row-major matrix backed by a single {@code double[]}.
+ * Element (i, j) lives at {@code offset + i*rowStride + j*colStride}, so row slices and
+ * transposes are views over the same array rather than copies.
+ */
+public final class Matrix {
+    public final double[] data;
+    public final int rows, cols;
+    public final int offset, rowStride, colStride;
+
+    public Matrix(int rows, int cols){
+        this(new double[rows * cols], 0, rows, cols, cols, 1);
+    }
+
+    public Matrix(double[] data, int offset, int rows, int cols, int rowStride, int colStride){
+        if (rows < 0 || cols < 0) throw new IllegalArgumentException("negative shape " + rows + "x" + cols);
+        this.data = data; this.offset = offset;
+        this.rows = rows; this.cols = cols;
+        this.rowStride = rowStride; this.colStride = colStride;
+    }
+
+    public static Matrix wrap(double[] data, int rows, int cols){
+        if (data.length < rows * cols) throw new IllegalArgumentException("data too small for " + rows + "x" + cols);
+        return new Matrix(data, 0, rows, cols, cols, 1);
+    }
+
+    /** Copies a jagged array into a contiguous matrix. */
+    public static Matrix of(double[][] A){
+        int n = A.length, m = n == 0 ? 0 : A[0].length;
+        Matrix M = new Matrix(n, m);
+        for (int i=0;i<n;i++){
+            if (A[i].length != m) throw new IllegalArgumentException("ragged row " + i);
+            System.arraycopy(A[i], 0, M.data, i*m, m);
+        }
+        return M;
+    }
+
+    public double[][] toArray(){
+        double[][] A = new double[rows][cols];
+        for (int i=0;i<rows;i++){
+            if (colStride == 1) System.arraycopy(data, offset + i*rowStride, A[i], 0, cols);
+            else for (int j=0;j<cols;j++) A[i][j] = get(i, j);
+        }
+        return A;
+    }
+
+    public int index(int i, int j){ return offset + i*rowStride + j*colStride; }
+    public double get(int i, int j){ return data[offset + i*rowStride + j*colStride]; }
+    public void set(int i, int j, double v){ data[offset + i*rowStride + j*colStride] = v; }
+
+    /** True when rows are packed back to back with unit column stride. */
+    public boolean isContiguous(){ return colStride == 1 && (rowStride == cols || rows <= 1); }
+
+    /** View of rows {@code [from, to)}. */
+    public Matrix rows(int from, int to){
+        if (from < 0 || to > rows || from > to) throw new IndexOutOfBoundsException("rows " + from + ".." + to + " of " + rows);
+        return new Matrix(data, offset + from*rowStride, to - from, cols, rowStride, colStride);
+    }
+
+    /** Transposed view; no data is copied. */
+    public Matrix transpose(){
+        return new Matrix(data, offset, cols, rows, colStride, rowStride);
+    }
+
+    public Matrix copy(){
+        Matrix M = new Matrix(rows, cols);
+        M.copyFrom(this);
+        return M;
+    }
+
+    public void copyFrom(Matrix src){
+        if (src.rows != rows || src.cols != cols) throw new IllegalArgumentException("shape mismatch");
+        for (int i=0;i<rows;i++){
+            int s = src.offset + i*src.rowStride, d = offset + i*rowStride;
+            if (colStride == 1 && src.colStride == 1) System.arraycopy(src.data, s, data, d, cols);
+            else for (int j=0;j<cols;j++) data[d + j*colStride] = src.data[s + j*src.colStride];
+        }
+    }
+
+    public void fill(double v){
+        for (int i=0;i<rows;i++){
+            int base = offset + i*rowStride;
+            for (int j=0;j<cols;j++) data[base + j*colStride] = v;
+        }
+    }
+
+    public boolean sameShape(Matrix o){ return rows == o.rows && cols == o.cols; }
+
+    @Override
+    public String toString(){ return "Matrix[" + rows + "x" + cols + "]"; }
+}
@@ -3,59 +3,192 @@ package com.nnfs.math;
 public final class MatrixOps {
     private MatrixOps(){}
 
-    public static double[][] dot(double[][] A, double[][] B) {
-        int n = A.length, m = A[0].length, p = B[0].length;
-        if (B.length != m) throw new IllegalArgumentException("A.cols must equal B.rows");
-        double[][] C = new double[n][p];
-        for (int i = 0; i < n; i++) {
-            for (int k = 0; k < m; k++) {
-                double a = A[i][k];
-                for (int j = 0; j < p; j++) {
-                    C[i][j] += a * B[k][j];
-                }
-            }
-        }
+    private static final Kernels K = Kernels.get();
+
+    public static Matrix dot(Matrix A, Matrix B) {
+        if (B.rows != A.cols) throw new IllegalArgumentException("A.cols must equal B.rows");
+        Matrix C = new Matrix(A.rows, B.cols);
+        Gemm.gemm(1.0, A, B, 0.0, C);
         return C;
     }
-    public static double[][] addRowVector(double[][] A, double[] b) {
-        int n = A.length, m = A[0].length;
+    /** alpha * A^T * B without materialising A^T. */
+    public static Matrix dotTN(double alpha, Matrix A, Matrix B) {
+        if (B.rows != A.rows) throw new IllegalArgumentException("A.rows must equal B.rows");
+        Matrix C = new Matrix(A.cols, B.cols);
+        Gemm.gemm(alpha, A, true, B, false, 0.0, C);
+        return C;
+    }
+    public static Matrix dotTN(Matrix A, Matrix B) {
+        return dotTN(1.0, A, B);
+    }
+    /** alpha * A * B^T without materialising B^T. */
+    public static Matrix dotNT(double alpha, Matrix A, Matrix B) {
+        if (B.cols != A.cols) throw new IllegalArgumentException("A.cols must equal B.cols");
+        Matrix C = new Matrix(A.rows, B.rows);
+        Gemm.gemm(alpha, A, false, B, true, 0.0, C);
+        return C;
+    }
+    public static Matrix dotNT(Matrix A, Matrix B) {
+        return dotNT(1.0, A, B);
+    }
+    public static Matrix addRowVector(Matrix A, double[] b) {
+        int n = A.rows, m = A.cols;
         if (b.length != m) throw new IllegalArgumentException("b.size must equal A.cols");
-        double[][] C = new double[n][m];
+        Matrix C = new Matrix(n, m);
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < m; j++) C[i][j] = A[i][j] + b[j];
+            int s = A.offset + i*A.rowStride, d = i*m;
+            for (int j = 0; j < m; j++) C.data[d + j] = A.data[s + j*A.colStride] + b[j];
         }
         return C;
     }
-    public static double[][] relu(double[][] X) {
-        int n = X.length, m = X[0].length;
-        double[][] Y = new double[n][m];
-        for (int i = 0; i < n; i++)
-            for (int j = 0; j < m; j++)
-                Y[i][j] = Math.max(0.0, X[i][j]);
+    public static Matrix relu(Matrix X) {
+        int n = X.rows, m = X.cols;
+        Matrix Y = new Matrix(n, m);
+        for (int i = 0; i < n; i++) {
+            int s = X.offset + i*X.rowStride, d = i*m;
+            for (int j = 0; j < m; j++) Y.data[d + j] = Math.max(0.0, X.data[s + j*X.colStride]);
+        }
         return Y;
     }
-    public static double[][] softmax(double[][] X) {
-        int n = X.length, m = X[0].length;
-        double[][] Y = new double[n][m];
+    public static Matrix softmax(Matrix X) {
+        int n = X.rows, m = X.cols;
+        Matrix Y = new Matrix(n, m);
+        double[] x = X.data, y = Y.data;
         for (int i = 0; i < n; i++) {
+            int s = X.offset + i*X.rowStride, d = i*m;
             double max = Double.NEGATIVE_INFINITY;
-            for (int j = 0; j < m; j++) max = Math.max(max, X[i][j]);
+            for (int j = 0; j < m; j++) max = Math.max(max, x[s + j*X.colStride]);
             double sum = 0.0;
-            for (int j = 0; j < m; j++) { Y[i][j] = Math.exp(X[i][j] - max); sum += Y[i][j]; }
-            for (int j = 0; j < m; j++) Y[i][j] /= (sum + 1e-12);
+            for (int j = 0; j < m; j++) { y[d + j] = Math.exp(x[s + j*X.colStride] - max); sum += y[d + j]; }
+            for (int j = 0; j < m; j++) y[d + j] /= (sum + 1e-12);
         }
         return Y;
     }
-    public static int[] argmax(double[][] X){
-        int n = X.length, m = X[0].length;
+
+    // --- in-place / into variants: write into caller-owned buffers, allocate nothing ---
+    public static void dotInto(Matrix A, Matrix B, Matrix C) {
+        Gemm.gemm(1.0, A, false, B, false, 0.0, C);
+    }
+    public static void dotTNInto(double alpha, Matrix A, Matrix B, Matrix C) {
+        Gemm.gemm(alpha, A, true, B, false, 0.0, C);
+    }
+    public static void dotNTInto(double alpha, Matrix A, Matrix B, Matrix C) {
+        Gemm.gemm(alpha, A, false, B, true, 0.0, C);
+    }
+    /** C = A*B + b, with the bias added in the GEMM epilogue. */
+    public static void dotBiasInto(Matrix A, Matrix B, double[] b, Matrix C) {
+        Gemm.gemm(1.0, A, false, B, false, 0.0, C, b, false);
+    }
+    /** C = ReLU(A*B + b) in a single pass over C. */
+    public static void dotBiasReluInto(Matrix A, Matrix B, double[] b, Matrix C) {
+        Gemm.gemm(1.0, A, false, B, false, 0.0, C, b, true);
+    }
+    public static void addRowVectorInPlace(Matrix A, double[] b) {
+        int n = A.rows, m = A.cols;
+        if (b.length != m) throw new IllegalArgumentException("b.size must equal A.cols");
+        for (int i = 0; i < n; i++) {
+            int base = A.offset + i*A.rowStride;
+            if (A.colStride == 1) { K.biasRelu(m, A.data, base, b, 0, false); continue; }
+            for (int j = 0; j < m; j++) A.data[base + j*A.colStride] += b[j];
+        }
+    }
+    public static void reluInPlace(Matrix X) {
+        for (int i = 0; i < X.rows; i++) {
+            int base = X.offset + i*X.rowStride;
+            if (X.colStride == 1) { K.biasRelu(X.cols, X.data, base, null, 0, true); continue; }
+            for (int j = 0; j < X.cols; j++) {
+                int k = base + j*X.colStride;
+                if (X.data[k] < 0.0) X.data[k] = 0.0;
+            }
+        }
+    }
+    /** Zeroes dA wherever the forward activation was not positive (ReLU backward). */
+    public static void reluBackwardInPlace(Matrix dA, Matrix act) {
+        if (!dA.sameShape(act)) throw new IllegalArgumentException("dA and act shapes differ");
+        for (int i = 0; i < dA.rows; i++) {
+            int g = dA.offset + i*dA.rowStride, a = act.offset + i*act.rowStride;
+            if (dA.colStride == 1 && act.colStride == 1) { K.reluBackward(dA.cols, dA.data, g, act.data, a); continue; }
+            for (int j = 0; j < dA.cols; j++)
+                if (act.data[a + j*act.colStride] <= 0.0) dA.data[g + j*dA.colStride] = 0.0;
+        }
+    }
+    public static void softmaxInPlace(Matrix X) {
+        int n = X.rows, m = X.cols;
+        double[] x = X.data;
+        for (int i = 0; i < n; i++) {
+            int s = X.offset + i*X.rowStride, cs = X.colStride;
+            if (cs == 1) { K.softmax(m, x, s); continue; }
+            double max = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < m; j++) max = Math.max(max, x[s + j*cs]);
+            double sum = 0.0;
+            for (int j = 0; j < m; j++) { double e = Math.exp(x[s + j*cs] - max); x[s + j*cs] = e; sum += e; }
+            double inv = 1.0 / (sum + 1e-12);
+            for (int j = 0; j < m; j++) x[s + j*cs] *= inv;
+        }
+    }
+    public static void meanColsInto(Matrix A, double[] out){
+        int n=A.rows, m=A.cols;
+        if (out.length != m) throw new IllegalArgumentException("out.size must equal A.cols");
+        java.util.Arrays.fill(out, 0.0);
+        for (int i=0;i<n;i++){
+            int base = A.offset + i*A.rowStride;
+            for (int j=0;j<m;j++) out[j]+=A.data[base + j*A.colStride];
+        }
+        for (int j=0;j<m;j++) out[j]/=n;
+    }
+
+    public static int[] argmax(Matrix X){
+        int n = X.rows, m = X.cols;
         int[] idx = new int[n];
         for (int i=0;i<n;i++){
+            int base = X.offset + i*X.rowStride;
             double max = -1; int arg=-1;
             for (int j=0;j<m;j++){
-                if (X[i][j] > max){ max = X[i][j]; arg = j; }
+                double v = X.data[base + j*X.colStride];
+                if (v > max){ max = v; arg = j; }
             }
             idx[i]=arg;
         }
         return idx;
     }
-}
\ No newline at end of file
+    /** Column indices of the k largest entries of each row, largest first (ties keep the lower index first). */
+    public static int[][] topk(Matrix X, int k){
+        if (k < 1 || k > X.cols) throw new IllegalArgumentException("k must be between 1 and " + X.cols);
+        int[][] idx = new int[X.rows][k];
+        for (int i=0;i<X.rows;i++){
+            int base = X.offset + i*X.rowStride;
+            int[] top = idx[i];
+            int n = 0;
+            for (int j=0;j<X.cols;j++){
+                double v = X.data[base + j*X.colStride];
+                if (n == k && v <= X.data[base + top[k-1]*X.colStride]) continue;
+                int p = n < k ? n++ : k - 1;
+                while (p > 0 && v > X.data[base + top[p-1]*X.colStride]) { top[p] = top[p-1]; p--; }
+                top[p] = j;
+            }
+        }
+        return idx;
+    }
+    public static double[] meanCols(Matrix A){
+        double[] b = new double[A.cols];
+        meanColsInto(A, b);
+        return b;
+    }
+
+    // --- double[][] adapters ---
+    public static double[][] dot(double[][] A, double[][] B) {
+        return dot(Matrix.of(A), Matrix.of(B)).toArray();
+    }
+    public static double[][] addRowVector(double[][] A, double[] b) {
+        return addRowVector(Matrix.of(A), b).toArray();
+    }
+    public static double[][] relu(double[][] X) {
+        return relu(Matrix.of(X)).toArray();
+    }
+    public static double[][] softmax(double[][] X) {
+        return softmax(Matrix.of(X)).toArray();
+    }
+    public static int[] argmax(double[][] X){
+        return argmax(Matrix.of(X));
+    }
+}
@@ -0,0 +1,24 @@
+package com.nnfs.math;
+
+import java.util.Locale;
+
+public enum Precision {
+    FLOAT64, FLOAT32, INT8;
+
+    public static Precision parse(String s){
+        switch (s.toLowerCase(Locale.ROOT)){
+            case "float64": case "double": case "f64": return FLOAT64;
+            case "float32": case "float": case "f32": return FLOAT32;
+            case "int8": case "i8": return INT8;
+            default: throw new IllegalArgumentException("Unknown precision: " + s);
+        }
+    }
+
+    public String dtype(){
+        switch (this){
+            case FLOAT32: return "float32";
+            case INT8: return "int8";
+            default: return "float64";
+        }
+    }
+}
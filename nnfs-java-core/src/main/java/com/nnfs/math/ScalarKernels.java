@@ -0,0 +1,65 @@
+package com.nnfs.math;
+
+final class ScalarKernels implements Kernels {
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels(){}
+
+    @Override public String name(){ return "scalar"; }
+
+    @Override
+    public void kernel4x4(int kc, double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int ldc){
+        double c00=0,c01=0,c02=0,c03=0, c10=0,c11=0,c12=0,c13=0,
+               c20=0,c21=0,c22=0,c23=0, c30=0,c31=0,c32=0,c33=0;
+        for (int p = 0; p < kc; p++) {
+            int ai = aOff + p*4, bi = bOff + p*4;
+            double a0 = a[ai], a1 = a[ai+1], a2 = a[ai+2], a3 = a[ai+3];
+            double b0 = b[bi], b1 = b[bi+1], b2 = b[bi+2], b3 = b[bi+3];
+            c00 += a0*b0; c01 += a0*b1; c02 += a0*b2; c03 += a0*b3;
+            c10 += a1*b0; c11 += a1*b1; c12 += a1*b2; c13 += a1*b3;
+            c20 += a2*b0; c21 += a2*b1; c22 += a2*b2; c23 += a2*b3;
+            c30 += a3*b0; c31 += a3*b1; c32 += a3*b2; c33 += a3*b3;
+        }
+        int r0 = cOff, r1 = r0 + ldc, r2 = r1 + ldc, r3 = r2 + ldc;
+        c[r0] += c00; c[r0+1] += c01; c[r0+2] += c02; c[r0+3] += c03;
+        c[r1] += c10; c[r1+1] += c11; c[r1+2] += c12; c[r1+3] += c13;
+        c[r2] += c20; c[r2+1] += c21; c[r2+2] += c22; c[r2+3] += c23;
+        c[r3] += c30; c[r3+1] += c31; c[r3+2] += c32; c[r3+3] += c33;
+    }
+
+    @Override
+    public void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff){
+        for (int j = 0; j < n; j++) y[yOff + j] += alpha * x[xOff + j];
+    }
+
+    @Override
+    public void biasRelu(int n, double[] y, int yOff, double[] bias, int bOff, boolean relu){
+        for (int j = 0; j < n; j++) {
+            double v = bias != null ? y[yOff + j] + bias[bOff + j] : y[yOff + j];
+            y[yOff + j] = relu && v < 0.0 ? 0.0 : v;
+        }
+    }
+
+    @Override
+    public void reluBackward(int n, double[] g, int gOff, double[] act, int aOff){
+        for (int j = 0; j < n; j++) if (act[aOff + j] <= 0.0) g[gOff + j] = 0.0;
+    }
+
+    @Override
+    public void softmax(int n, double[] x, int off){
+        double max = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < n; j++) max = Math.max(max, x[off + j]);
+        double sum = 0.0;
+        for (int j = 0; j < n; j++) { double e = Math.exp(x[off + j] - max); x[off + j] = e; sum += e; }
+        double inv = 1.0 / (sum + 1e-12);
+        for (int j = 0; j < n; j++) x[off + j] *= inv;
+    }
+
+    @Override
+    public void sgd(int n, double[] w, int wOff, double[] g, int gOff, double lr, double l2){
+        for (int j = 0; j < n; j++) {
+            double reg = l2 * w[wOff + j];
+            w[wOff + j] -= lr * (g[gOff + j] + reg);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.nnfs.math;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link Kernels} on the incubating Vector API. Only loaded reflectively by
+ * {@link KernelSelection}, so the rest of the library runs without the module.
+ * Rows shorter than one vector go to the scalar kernels, which are cheaper there.
+ */
+final class VectorKernels implements Kernels {
+    private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> S4 = DoubleVector.SPECIES_256;
+    /** A 4-lane tile only pays off when the hardware has 256-bit registers. */
+    private static final boolean TILE4 = S.vectorBitSize() >= 256;
+    /** Shorter K panels are dominated by per-call vector setup; the scalar tile is faster there. */
+    static final int MIN_KC = 32;
+
+    // exp(x) = 2^k * exp(r), x = k*ln2 + r, |r| <= ln2/2; Cody-Waite split of ln2.
+    private static final double LOG2E = 1.4426950408889634;
+    private static final double LN2_HI = 6.93147180369123816490e-01;
+    private static final double LN2_LO = 1.90821492927058770002e-10;
+    private static final double EXP_MIN = -708.0, EXP_MAX = 709.0;
+    /** 1.5 * 2^52: adding and subtracting it rounds a double to the nearest integer. */
+    private static final double ROUND = 6755399441055744.0;
+
+    @Override public String name(){ return "vector-" + S.vectorBitSize(); }
+
+    /**
+     * Works through K eight steps at a time, adding each block's products into {@code c}. No vector is
+     * live across the loop's back edge and nothing is passed to a call: JDK 17's C2 boxes vectors that
+     * merge at a loop phi (the four running accumulators cost 256 B per tile) or cross a call it did not
+     * inline, while straight-line vector code stays in registers.
+     */
+    @Override
+    public void kernel4x4(int kc, double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int ldc){
+        if (!TILE4 || kc < MIN_KC) { ScalarKernels.INSTANCE.kernel4x4(kc, a, aOff, b, bOff, c, cOff, ldc); return; }
+        int r0 = cOff, r1 = r0 + ldc, r2 = r1 + ldc, r3 = r2 + ldc;
+        int p = 0;
+        for (; p + 8 <= kc; p += 8) {
+            int ai = aOff + p*4, bi = bOff + p*4;
+            DoubleVector b0 = DoubleVector.fromArray(S4, b, bi),      b1 = DoubleVector.fromArray(S4, b, bi + 4),
+                         b2 = DoubleVector.fromArray(S4, b, bi + 8),  b3 = DoubleVector.fromArray(S4, b, bi + 12),
+                         b4 = DoubleVector.fromArray(S4, b, bi + 16), b5 = DoubleVector.fromArray(S4, b, bi + 20),
+                         b6 = DoubleVector.fromArray(S4, b, bi + 24), b7 = DoubleVector.fromArray(S4, b, bi + 28);
+            DoubleVector s0 = b0.mul(DoubleVector.broadcast(S4, a[ai]));
+            DoubleVector s1 = b0.mul(DoubleVector.broadcast(S4, a[ai+1]));
+            DoubleVector s2 = b0.mul(DoubleVector.broadcast(S4, a[ai+2]));
+            DoubleVector s3 = b0.mul(DoubleVector.broadcast(S4, a[ai+3]));
+            s0 = b1.fma(DoubleVector.broadcast(S4, a[ai+4]), s0); s1 = b1.fma(DoubleVector.broadcast(S4, a[ai+5]), s1);
+            s2 = b1.fma(DoubleVector.broadcast(S4, a[ai+6]), s2); s3 = b1.fma(DoubleVector.broadcast(S4, a[ai+7]), s3);
+            s0 = b2.fma(DoubleVector.broadcast(S4, a[ai+8]), s0); s1 = b2.fma(DoubleVector.broadcast(S4, a[ai+9]), s1);
+            s2 = b2.fma(DoubleVector.broadcast(S4, a[ai+10]), s2); s3 = b2.fma(DoubleVector.broadcast(S4, a[ai+11]), s3);
+            s0 = b3.fma(DoubleVector.broadcast(S4, a[ai+12]), s0); s1 = b3.fma(DoubleVector.broadcast(S4, a[ai+13]), s1);
+            s2 = b3.fma(DoubleVector.broadcast(S4, a[ai+14]), s2); s3 = b3.fma(DoubleVector.broadcast(S4, a[ai+15]), s3);
+            s0 = b4.fma(DoubleVector.broadcast(S4, a[ai+16]), s0); s1 = b4.fma(DoubleVector.broadcast(S4, a[ai+17]), s1);
+            s2 = b4.fma(DoubleVector.broadcast(S4, a[ai+18]), s2); s3 = b4.fma(DoubleVector.broadcast(S4, a[ai+19]), s3);
+            s0 = b5.fma(DoubleVector.broadcast(S4, a[ai+20]), s0); s1 = b5.fma(DoubleVector.broadcast(S4, a[ai+21]), s1);
+            s2 = b5.fma(DoubleVector.broadcast(S4, a[ai+22]), s2); s3 = b5.fma(DoubleVector.broadcast(S4, a[ai+23]), s3);
+            s0 = b6.fma(DoubleVector.broadcast(S4, a[ai+24]), s0); s1 = b6.fma(DoubleVector.broadcast(S4, a[ai+25]), s1);
+            s2 = b6.fma(DoubleVector.broadcast(S4, a[ai+26]), s2); s3 = b6.fma(DoubleVector.broadcast(S4, a[ai+27]), s3);
+            s0 = b7.fma(DoubleVector.broadcast(S4, a[ai+28]), s0); s1 = b7.fma(DoubleVector.broadcast(S4, a[ai+29]), s1);
+            s2 = b7.fma(DoubleVector.broadcast(S4, a[ai+30]), s2); s3 = b7.fma(DoubleVector.broadcast(S4, a[ai+31]), s3);
+            DoubleVector.fromArray(S4, c, r0).add(s0).intoArray(c, r0);
+            DoubleVector.fromArray(S4, c, r1).add(s1).intoArray(c, r1);
+            DoubleVector.fromArray(S4, c, r2).add(s2).intoArray(c, r2);
+            DoubleVector.fromArray(S4, c, r3).add(s3).intoArray(c, r3);
+        }
+        for (; p < kc; p++) {
+            int ai = aOff + p*4;
+            DoubleVector bv = DoubleVector.fromArray(S4, b, bOff + p*4);
+            bv.fma(DoubleVector.broadcast(S4, a[ai]), DoubleVector.fromArray(S4, c, r0)).intoArray(c, r0);
+            bv.fma(DoubleVector.broadcast(S4, a[ai+1]), DoubleVector.fromArray(S4, c, r1)).intoArray(c, r1);
+            bv.fma(DoubleVector.broadcast(S4, a[ai+2]), DoubleVector.fromArray(S4, c, r2)).intoArray(c, r2);
+            bv.fma(DoubleVector.broadcast(S4, a[ai+3]), DoubleVector.fromArray(S4, c, r3)).intoArray(c, r3);
+        }
+    }
+
+    @Override
+    public void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff){
+        if (n < S.length()) { ScalarKernels.INSTANCE.axpy(n, alpha, x, xOff, y, yOff); return; }
+        int j = 0, bound = S.loopBound(n);
+        for (; j < bound; j += S.length()) {
+            DoubleVector xv = DoubleVector.fromArray(S, x, xOff + j);
+            xv.fma(DoubleVector.broadcast(S, alpha), DoubleVector.fromArray(S, y, yOff + j)).intoArray(y, yOff + j);
+        }
+        for (; j < n; j++) y[yOff + j] += alpha * x[xOff + j];
+    }
+
+    @Override
+    public void biasRelu(int n, double[] y, int yOff, double[] bias, int bOff, boolean relu){
+        if (n < S.length()) { ScalarKernels.INSTANCE.biasRelu(n, y, yOff, bias, bOff, relu); return; }
+        int j = 0, bound = S.loopBound(n);
+        for (; j < bound; j += S.length()) {
+            DoubleVector v = DoubleVector.fromArray(S, y, yOff + j);
+            if (bias != null) v = v.add(DoubleVector.fromArray(S, bias, bOff + j));
+            if (relu) v = v.max(0.0);
+            v.intoArray(y, yOff + j);
+        }
+        for (; j < n; j++) {
+            double v = bias != null ? y[yOff + j] + bias[bOff + j] : y[yOff + j];
+            y[yOff + j] = relu && v < 0.0 ? 0.0 : v;
+        }
+    }
+
+    @Override
+    public void reluBackward(int n, double[] g, int gOff, double[] act, int aOff){
+        if (n < S.length()) { ScalarKernels.INSTANCE.reluBackward(n, g, gOff, act, aOff); return; }
+        int j = 0, bound = S.loopBound(n);
+        for (; j < bound; j += S.length()) {
+            VectorMask<Double> dead = DoubleVector.fromArray(S, act, aOff + j).compare(VectorOperators.LE, 0.0);
+            DoubleVector.fromArray(S, g, gOff + j).blend(0.0, dead).intoArray(g, gOff + j);
+        }
+        for (; j < n; j++) if (act[aOff + j] <= 0.0) g[gOff + j] = 0.0;
+    }
+
+    @Override
+    public void softmax(int n, double[] x, int off){
+        if (n < S.length()) { ScalarKernels.INSTANCE.softmax(n, x, off); return; }
+        int bound = S.loopBound(n), j;
+        DoubleVector mv = DoubleVector.fromArray(S, x, off);
+        for (j = S.length(); j < bound; j += S.length()) mv = mv.max(DoubleVector.fromArray(S, x, off + j));
+        double max = mv.reduceLanes(VectorOperators.MAX);
+        for (j = bound; j < n; j++) max = Math.max(max, x[off + j]);
+
+        double sum = 0.0;
+        DoubleVector sv = DoubleVector.zero(S);
+        for (j = 0; j < bound; j += S.length()) {
+            DoubleVector e = exp(DoubleVector.fromArray(S, x, off + j).sub(max));
+            e.intoArray(x, off + j);
+            sv = sv.add(e);
+        }
+        sum += sv.reduceLanes(VectorOperators.ADD);
+        for (j = bound; j < n; j++) { double e = Math.exp(x[off + j] - max); x[off + j] = e; sum += e; }
+
+        double inv = 1.0 / (sum + 1e-12);
+        for (j = 0; j < bound; j += S.length())
+            DoubleVector.fromArray(S, x, off + j).mul(inv).intoArray(x, off + j);
+        for (j = bound; j < n; j++) x[off + j] *= inv;
+    }
+
+    @Override
+    public void sgd(int n, double[] w, int wOff, double[] g, int gOff, double lr, double l2){
+        if (n < S.length()) { ScalarKernels.INSTANCE.sgd(n, w, wOff, g, gOff, lr, l2); return; }
+        int j = 0, bound = S.loopBound(n);
+        for (; j < bound; j += S.length()) {
+            DoubleVector wv = DoubleVector.fromArray(S, w, wOff + j);
+            DoubleVector step = wv.fma(DoubleVector.broadcast(S, l2), DoubleVector.fromArray(S, g, gOff + j));
+            wv.sub(step.mul(lr)).intoArray(w, wOff + j);
+        }
+        for (; j < n; j++) {
+            double reg = l2 * w[wOff + j];
+            w[wOff + j] -= lr * (g[gOff + j] + reg);
+        }
+    }
+
+    /** Vectorised exp: Cody-Waite range reduction, degree-11 Taylor on |r| <= ln2/2, exponent built from the rounding constant's mantissa bits. */
+    static DoubleVector exp(DoubleVector x){
+        x = x.max(EXP_MIN).min(EXP_MAX);
+        DoubleVector t = x.mul(LOG2E).add(ROUND);
+        DoubleVector k = t.sub(ROUND);
+        DoubleVector r = k.fma(DoubleVector.broadcast(x.species(), -LN2_HI), x);
+        r = k.fma(DoubleVector.broadcast(x.species(), -LN2_LO), r);
+        DoubleVector p = DoubleVector.broadcast(x.species(), 1.0 / 39916800.0);
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 3628800.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 362880.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 40320.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 5040.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 720.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 120.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 24.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0 / 6.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 0.5));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0));
+        p = p.fma(r, DoubleVector.broadcast(x.species(), 1.0));
+        // the low mantissa bits of t hold k as a two's complement integer, so no D2L convert is needed
+        LongVector bits = t.reinterpretAsLongs().add(1023L).lanewise(VectorOperators.LSHL, 52);
+        return p.mul(bits.reinterpretAsDoubles());
+    }
+}
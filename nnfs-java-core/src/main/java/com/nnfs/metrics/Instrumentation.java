@@ -0,0 +1,33 @@
+package com.nnfs.metrics;
+
+import com.nnfs.math.Precision;
+
+/**
+ * Receives timings from the training and inference hot paths. Every method defaults to doing
+ * nothing; install an implementation with {@link Instruments#install}. Calls arrive concurrently
+ * from request, worker and fork-join threads, so implementations must be thread-safe and cheap.
+ * Arguments are primitives or constant strings: nothing is allocated to report an event.
+ */
+public interface Instrumentation {
+    Instrumentation NONE = new Instrumentation(){};
+
+    /**
+     * One layer's forward or backward pass over {@code rows} rows. {@code index} is the layer's
+     * position in its network and {@code kind} a constant such as {@code "dense"} or
+     * {@code "dense+relu"} (a Dense layer fused with the ReLU after it).
+     */
+    default void layer(int index, String kind, boolean backward, int rows, long nanos){}
+
+    /** One top-level GEMM of {@code 2*m*n*k} floating point operations. */
+    default void gemm(Precision precision, int m, int n, int k, long nanos){}
+
+    /**
+     * One optimizer step of {@code TrainingEngine} over {@code rows} rows: forward, backward,
+     * gradient reduction and the update. {@code allocatedBytes} is what the thread running the
+     * step allocated meanwhile (-1 when the JVM cannot tell); pool workers are not included.
+     */
+    default void trainStep(int rows, long nanos, long allocatedBytes){}
+
+    /** A model was read from a weights file ({@code format} is "bin", "q8" or "json"). */
+    default void modelLoad(String format, long nanos){}
+}
@@ -0,0 +1,45 @@
+package com.nnfs.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The process-wide {@link Instrumentation}. Hot paths read it once per call and skip the clock
+ * entirely while it is {@link Instrumentation#NONE}, which is the default:
+ * <pre>
+ *   Instrumentation ins = Instruments.get();
+ *   long t0 = ins != Instrumentation.NONE ? System.nanoTime() : 0L;
+ *   ...
+ *   if (ins != Instrumentation.NONE) ins.gemm(precision, m, n, k, System.nanoTime() - t0);
+ * </pre>
+ */
+public final class Instruments {
+    private Instruments(){}
+
+    private static volatile Instrumentation current = Instrumentation.NONE;
+
+    public static Instrumentation get(){ return current; }
+
+    /** Installs listener (null restores the no-op default). */
+    public static void install(Instrumentation listener){
+        current = listener == null ? Instrumentation.NONE : listener;
+    }
+
+    /** Bytes allocated so far by the calling thread, or -1 when the JVM does not track it. */
+    public static long allocatedBytes(){
+        com.sun.management.ThreadMXBean mx = Allocation.THREADS;
+        return mx != null ? mx.getCurrentThreadAllocatedBytes() : -1L;
+    }
+
+    /** Loaded on first use, so the management beans are only initialised once someone asks. */
+    private static final class Allocation {
+        static final com.sun.management.ThreadMXBean THREADS = threads();
+    }
+
+    private static com.sun.management.ThreadMXBean threads(){
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean sun) || !sun.isThreadAllocatedMemorySupported()) return null;
+        if (!sun.isThreadAllocatedMemoryEnabled()) sun.setThreadAllocatedMemoryEnabled(true);
+        return sun;
+    }
+}
@@ -0,0 +1,80 @@
+package com.nnfs.nn;
+
+import com.nnfs.layers.Dense;
+import com.nnfs.layers.FloatDense;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.FloatOps;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+
+/** float32 twin of {@link Model}: same topology, parameters and activations held as floats. */
+public class FloatModel implements Predictor {
+    public final FloatDense l1;
+    public final FloatDense l2;
+
+    public FloatModel(int input, int hidden, int output, long seed){
+        this.l1 = new FloatDense(input, hidden, 0.01, seed);
+        this.l2 = new FloatDense(hidden, output, 0.01, seed+1);
+    }
+
+    public FloatModel(Model m){
+        this.l1 = new FloatDense(m.l1);
+        this.l2 = new FloatDense(m.l2);
+    }
+
+    public FloatModel(FloatDense l1, FloatDense l2){
+        if (l1.nOut != l2.nIn) throw new IllegalArgumentException("l1.nOut must equal l2.nIn");
+        this.l1 = l1; this.l2 = l2;
+    }
+
+    public Model toDouble(){
+        return new Model(new Dense(l1.W.toMatrix(), FloatOps.toDouble(l1.b)),
+                         new Dense(l2.W.toMatrix(), FloatOps.toDouble(l2.b)));
+    }
+
+    public void forwardInto(FMatrix X, FMatrix hidden, FMatrix out){
+        logitsInto(X, hidden, out);
+        FloatOps.softmaxInPlace(out);
+    }
+
+    public void logitsInto(FMatrix X, FMatrix hidden, FMatrix out){
+        Instrumentation ins = Instruments.get();
+        if (ins == Instrumentation.NONE) {
+            FloatOps.dotBiasReluInto(X, l1.W, l1.b, hidden);
+            FloatOps.dotBiasInto(hidden, l2.W, l2.b, out);
+            return;
+        }
+        long t0 = System.nanoTime();
+        FloatOps.dotBiasReluInto(X, l1.W, l1.b, hidden);
+        long t1 = System.nanoTime();
+        FloatOps.dotBiasInto(hidden, l2.W, l2.b, out);
+        ins.layer(0, "dense+relu", false, X.rows, t1 - t0);
+        ins.layer(1, "dense", false, X.rows, System.nanoTime() - t1);
+    }
+
+    public FMatrix forward(FMatrix X){
+        FMatrix probs = new FMatrix(X.rows, l2.nOut);
+        forwardInto(X, new FMatrix(X.rows, l1.nOut), probs);
+        return probs;
+    }
+
+    @Override
+    public double[][] forward(double[][] X){
+        return forward(FMatrix.of(X)).toArray();
+    }
+
+    @Override
+    public void predictInto(Matrix X, Matrix out){
+        FMatrix probs = forward(FMatrix.of(X));
+        if (out.rows != probs.rows || out.cols != probs.cols)
+            throw new IllegalArgumentException("out must be " + probs.rows + "x" + probs.cols);
+        for (int i=0;i<probs.rows;i++)
+            for (int j=0;j<probs.cols;j++) out.set(i, j, probs.get(i, j));
+    }
+
+    @Override public int inputSize(){ return l1.nIn; }
+    @Override public int outputSize(){ return l2.nOut; }
+    @Override public Precision precision(){ return Precision.FLOAT32; }
+}
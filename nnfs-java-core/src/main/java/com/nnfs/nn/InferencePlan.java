@@ -0,0 +1,350 @@
+package com.nnfs.nn;
+
+import com.nnfs.layers.Activation;
+import com.nnfs.layers.Dense;
+import com.nnfs.layers.FloatDense;
+import com.nnfs.layers.Layer;
+import com.nnfs.layers.ReLU;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.FloatOps;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.MatrixOps;
+import com.nnfs.math.Precision;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A model compiled for serving. {@link #compile} walks the layers once: a Dense followed by ReLU
+ * becomes one fused GEMM step, other activations run in place, the last step writes straight
+ * into the caller's output and the softmax runs there. Every intermediate tensor gets a live
+ * range (first write to last access) and a linear scan packs tensors whose ranges do not overlap
+ * into the same scratch slot, sized for {@code maxBatch} rows; a two-layer model needs one slot,
+ * a deeper one two. Each thread owns a set of slots and keeps the row views it has used, so once
+ * warm {@link #predictInto} is a fixed sequence of kernel calls that allocates nothing. Larger
+ * batches run in {@code maxBatch}-row chunks. The plan shares the model's weights.
+ */
+public final class InferencePlan implements Predictor {
+    static final int INPUT = -1, OUTPUT = -2;
+
+    private final Predictor source;
+    private final int maxBatch;
+    private final Step[] steps;
+    private final int[] width, slot;
+    private final boolean[] single;
+    /** Slot sizes in elements, float64 and float32 slots numbered separately. */
+    private final int[] doubleSlots, floatSlots;
+    private final ThreadLocal<Frame> frames;
+
+    /** Compiles a float64 {@link Model} or {@link Sequential}, or a float32 {@link FloatModel}; int8 models are not supported. */
+    public static InferencePlan compile(Predictor model, int maxBatch){
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+        if (model instanceof InferencePlan p) model = p.source;
+        Builder b = new Builder();
+        if (model instanceof Model m) b.layers(Sequential.of(m).layers(), m.inputSize());
+        else if (model instanceof Sequential s) b.layers(s.layers(), s.inputSize());
+        else if (model instanceof FloatModel f) b.floatModel(f);
+        else throw new IllegalArgumentException("cannot compile a " + model.precision().dtype() + " " + model.getClass().getSimpleName());
+        return new InferencePlan(model, maxBatch, b);
+    }
+
+    private InferencePlan(Predictor source, int maxBatch, Builder b){
+        this.source = source;
+        this.maxBatch = maxBatch;
+        this.steps = b.steps.toArray(new Step[0]);
+        int n = b.widths.size();
+        this.width = new int[n];
+        this.single = new boolean[n];
+        for (int t=0;t<n;t++){ width[t] = b.widths.get(t); single[t] = b.floats.get(t); }
+        this.slot = new int[n];
+        this.doubleSlots = assign(false);
+        this.floatSlots = assign(true);
+        this.frames = ThreadLocal.withInitial(() -> new Frame(doubleSlots, floatSlots, width, single, slot, maxBatch));
+    }
+
+    /**
+     * Linear scan over the tensors of one precision in order of first write: slots whose tensor
+     * was last touched before this one is first written are free again; the largest free slot is
+     * reused (grown if needed) before a new one is opened. Returns the slot sizes.
+     */
+    private int[] assign(boolean floats){
+        int n = width.length;
+        int[] start = new int[n], end = new int[n];
+        java.util.Arrays.fill(start, -1);
+        for (int i=0;i<steps.length;i++){
+            Step s = steps[i];
+            if (s.dst >= 0 && start[s.dst] < 0) start[s.dst] = i;
+            if (s.dst >= 0) end[s.dst] = i;
+            if (s.src >= 0) end[s.src] = Math.max(end[s.src], i);
+        }
+        List<Integer> sizes = new ArrayList<>();
+        List<Integer> owner = new ArrayList<>();
+        for (int t=0;t<n;t++){
+            if (single[t] != floats || start[t] < 0) continue;
+            int need = width[t] * maxBatch, best = -1;
+            for (int k=0;k<sizes.size();k++){
+                int o = owner.get(k);
+                if (end[o] >= start[t]) continue;
+                if (best < 0 || sizes.get(k) > sizes.get(best)) best = k;
+            }
+            if (best < 0){ best = sizes.size(); sizes.add(need); owner.add(t); }
+            else { sizes.set(best, Math.max(sizes.get(best), need)); owner.set(best, t); }
+            slot[t] = best;
+        }
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public void predictInto(Matrix X, Matrix out){
+        if (X.cols != inputSize()) throw new IllegalArgumentException("expected " + inputSize() + " features, got " + X.cols);
+        if (out.rows != X.rows || out.cols != outputSize()) throw new IllegalArgumentException("out must be " + X.rows + "x" + outputSize());
+        Frame f = frames.get();
+        Instrumentation ins = Instruments.get();
+        try {
+            if (X.rows <= maxBatch) run(f, X, out, ins);
+            else for (int r=0;r<X.rows;r+=maxBatch){
+                int e = Math.min(X.rows, r + maxBatch);
+                run(f, X.rows(r, e), out.rows(r, e), ins);
+            }
+        } finally {
+            f.x = null; f.out = null;
+        }
+    }
+
+    private void run(Frame f, Matrix X, Matrix out, Instrumentation ins){
+        f.x = X; f.out = out;
+        int rows = X.rows;
+        if (rows == 0) return;
+        if (ins == Instrumentation.NONE){
+            for (Step s : steps) s.run(f, rows);
+            return;
+        }
+        for (Step s : steps){
+            long t0 = System.nanoTime();
+            s.run(f, rows);
+            if (s.layer >= 0) ins.layer(s.layer, s.kind, false, rows, System.nanoTime() - t0);
+        }
+    }
+
+    @Override
+    public double[][] forward(double[][] X){
+        Matrix x = X.length == 0 ? new Matrix(0, inputSize()) : Matrix.of(X);
+        Matrix probs = new Matrix(x.rows, outputSize());
+        predictInto(x, probs);
+        return probs.toArray();
+    }
+
+    /** The model this plan was compiled from. */
+    public Predictor source(){ return source; }
+    public int maxBatch(){ return maxBatch; }
+
+    /** Scratch memory each serving thread holds for this plan. */
+    public long scratchBytes(){
+        long n = 0;
+        for (int s : doubleSlots) n += 8L * s;
+        for (int s : floatSlots) n += 4L * s;
+        return n;
+    }
+
+    @Override public int inputSize(){ return source.inputSize(); }
+    @Override public int outputSize(){ return source.outputSize(); }
+    @Override public Precision precision(){ return source.precision(); }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder("InferencePlan[").append(precision().dtype()).append(", maxBatch=").append(maxBatch)
+                .append(", ").append(doubleSlots.length + floatSlots.length).append(" slots, ").append(scratchBytes()).append(" bytes/thread:");
+        for (Step s : steps) sb.append(' ').append(s.kind).append(s.dst >= 0 ? "->t" + s.dst : s.dst == OUTPUT ? "->out" : "");
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Per-thread scratch slots and the row views cut from them so far. Static and built from the
+     * slot layout alone: a thread's value must not reach the plan, or the thread would keep every
+     * plan it ever ran (and its model) alive.
+     */
+    private static final class Frame {
+        final int[] width, slot;
+        final double[][] doubles;
+        final float[][] floats;
+        final Matrix[][] views;
+        final FMatrix[][] fviews;
+        Matrix x, out;
+
+        Frame(int[] doubleSlots, int[] floatSlots, int[] width, boolean[] single, int[] slot, int maxBatch){
+            this.width = width; this.slot = slot;
+            this.doubles = new double[doubleSlots.length][];
+            this.floats = new float[floatSlots.length][];
+            this.views = new Matrix[width.length][];
+            this.fviews = new FMatrix[width.length][];
+            for (int i=0;i<doubles.length;i++) doubles[i] = new double[doubleSlots[i]];
+            for (int i=0;i<floats.length;i++) floats[i] = new float[floatSlots[i]];
+            for (int t=0;t<width.length;t++){
+                if (single[t]) fviews[t] = new FMatrix[maxBatch + 1];
+                else views[t] = new Matrix[maxBatch + 1];
+            }
+        }
+
+        Matrix d(int t, int rows){
+            if (t == INPUT) return x;
+            if (t == OUTPUT) return out;
+            Matrix v = views[t][rows];
+            if (v == null) v = views[t][rows] = new Matrix(doubles[slot[t]], 0, rows, width[t], width[t], 1);
+            return v;
+        }
+
+        FMatrix f(int t, int rows){
+            FMatrix v = fviews[t][rows];
+            if (v == null) v = fviews[t][rows] = new FMatrix(floats[slot[t]], 0, rows, width[t], width[t], 1);
+            return v;
+        }
+    }
+
+    /** One kernel invocation reading tensor src and writing tensor dst (either may be the caller's input or output). */
+    private abstract static class Step {
+        final int layer;
+        final String kind;
+        int src, dst;
+
+        Step(int layer, String kind, int src, int dst){
+            this.layer = layer; this.kind = kind; this.src = src; this.dst = dst;
+        }
+
+        abstract void run(InferencePlan.Frame f, int rows);
+    }
+
+    private static final class DenseStep extends Step {
+        final Dense dense;
+        final boolean relu;
+
+        DenseStep(int layer, Dense dense, boolean relu, int src, int dst){
+            super(layer, relu ? "dense+relu" : "dense", src, dst);
+            this.dense = dense; this.relu = relu;
+        }
+
+        @Override void run(InferencePlan.Frame f, int rows){
+            if (relu) MatrixOps.dotBiasReluInto(f.d(src, rows), dense.W, dense.b, f.d(dst, rows));
+            else MatrixOps.dotBiasInto(f.d(src, rows), dense.W, dense.b, f.d(dst, rows));
+        }
+    }
+
+    private static final class ActivationStep extends Step {
+        final Activation act;
+
+        ActivationStep(int layer, Activation act, int src, int dst){
+            super(layer, act.kind(), src, dst);
+            this.act = act;
+        }
+
+        @Override void run(InferencePlan.Frame f, int rows){ act.applyInto(f.d(src, rows), f.d(dst, rows)); }
+    }
+
+    private static final class SoftmaxStep extends Step {
+        SoftmaxStep(int t){ super(-1, "softmax", t, t); }
+
+        @Override void run(InferencePlan.Frame f, int rows){ MatrixOps.softmaxInPlace(f.d(src, rows)); }
+    }
+
+    private static final class ToFloatStep extends Step {
+        ToFloatStep(int src, int dst){ super(-1, "to_float32", src, dst); }
+
+        @Override void run(InferencePlan.Frame f, int rows){
+            Matrix x = f.d(src, rows);
+            FMatrix y = f.f(dst, rows);
+            for (int i=0;i<rows;i++){
+                int s = x.offset + i*x.rowStride, d = i*y.cols;
+                for (int j=0;j<x.cols;j++) y.data[d + j] = (float) x.data[s + j*x.colStride];
+            }
+        }
+    }
+
+    private static final class FloatDenseStep extends Step {
+        final FloatDense dense;
+        final boolean relu;
+
+        FloatDenseStep(int layer, FloatDense dense, boolean relu, int src, int dst){
+            super(layer, relu ? "dense+relu" : "dense", src, dst);
+            this.dense = dense; this.relu = relu;
+        }
+
+        @Override void run(InferencePlan.Frame f, int rows){
+            if (relu) FloatOps.dotBiasReluInto(f.f(src, rows), dense.W, dense.b, f.f(dst, rows));
+            else FloatOps.dotBiasInto(f.f(src, rows), dense.W, dense.b, f.f(dst, rows));
+        }
+    }
+
+    private static final class FloatSoftmaxStep extends Step {
+        FloatSoftmaxStep(int t){ super(-1, "softmax", t, t); }
+
+        @Override void run(InferencePlan.Frame f, int rows){ FloatOps.softmaxInPlace(f.f(src, rows)); }
+    }
+
+    private static final class ToDoubleStep extends Step {
+        ToDoubleStep(int src, int dst){ super(-1, "to_float64", src, dst); }
+
+        @Override void run(InferencePlan.Frame f, int rows){
+            FMatrix x = f.f(src, rows);
+            Matrix y = f.d(dst, rows);
+            for (int i=0;i<rows;i++){
+                int s = i*x.cols, d = y.offset + i*y.rowStride;
+                for (int j=0;j<x.cols;j++) y.data[d + j*y.colStride] = x.data[s + j];
+            }
+        }
+    }
+
+    /** Collects steps and tensors; the tensor holding the logits is renamed to the caller's output. */
+    private static final class Builder {
+        final List<Step> steps = new ArrayList<>();
+        final List<Integer> widths = new ArrayList<>();
+        final List<Boolean> floats = new ArrayList<>();
+
+        int tensor(int width, boolean single){
+            widths.add(width);
+            floats.add(single);
+            return widths.size() - 1;
+        }
+
+        void layers(List<Layer> ls, int inputSize){
+            int cur = INPUT, w = inputSize;
+            for (int i=0;i<ls.size();i++){
+                Layer l = ls.get(i);
+                if (l instanceof Dense d){
+                    boolean relu = i + 1 < ls.size() && ls.get(i + 1) instanceof ReLU;
+                    int t = tensor(d.nOut, false);
+                    steps.add(new DenseStep(i, d, relu, cur, t));
+                    if (relu) i++;
+                    cur = t;
+                    w = d.nOut;
+                } else if (l instanceof Activation a){
+                    // in place, except on the caller's input
+                    int t = cur == INPUT ? tensor(w, false) : cur;
+                    steps.add(new ActivationStep(i, a, cur, t));
+                    cur = t;
+                } else {
+                    throw new IllegalArgumentException("cannot compile layer " + l.kind());
+                }
+            }
+            output(cur);
+            steps.add(new SoftmaxStep(OUTPUT));
+        }
+
+        void floatModel(FloatModel m){
+            int x = tensor(m.l1.nIn, true), h = tensor(m.l1.nOut, true), z = tensor(m.l2.nOut, true);
+            steps.add(new ToFloatStep(INPUT, x));
+            steps.add(new FloatDenseStep(0, m.l1, true, x, h));
+            steps.add(new FloatDenseStep(1, m.l2, false, h, z));
+            steps.add(new FloatSoftmaxStep(z));
+            steps.add(new ToDoubleStep(z, OUTPUT));
+        }
+
+        /** The final tensor is the caller's output matrix rather than scratch. */
+        private void output(int t){
+            for (Step s : steps){
+                if (s.src == t) s.src = OUTPUT;
+                if (s.dst == t) s.dst = OUTPUT;
+            }
+        }
+    }
+}
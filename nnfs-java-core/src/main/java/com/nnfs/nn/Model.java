@@ -1,9 +1,13 @@
 package com.nnfs.nn;
 
 import com.nnfs.layers.Dense;
+import com.nnfs.math.Matrix;
 import com.nnfs.math.MatrixOps;
+import com.nnfs.math.Precision;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
 
-public class Model {
+public class Model implements Predictor {
     public final Dense l1;
     public final Dense l2;
 
@@ -12,18 +16,65 @@ public class Model {
         this.l2 = new Dense(hidden, output, 0.01, seed+1);
     }
 
+    public Model(Dense l1, Dense l2){
+        if (l1.nOut != l2.nIn) throw new IllegalArgumentException("l1.nOut must equal l2.nIn");
+        this.l1 = l1; this.l2 = l2;
+    }
+
+    public Matrix forward(Matrix X, Matrix outHidden){
+        Matrix a1 = outHidden != null ? outHidden : new Matrix(X.rows, l1.nOut);
+        Matrix probs = new Matrix(X.rows, l2.nOut);
+        forwardInto(X, a1, probs);
+        return probs;
+    }
+
+    /** Forward pass into caller-owned buffers: hidden receives ReLU(X*W1+b1), out the softmax probabilities. */
+    public void forwardInto(Matrix X, Matrix hidden, Matrix out){
+        logitsInto(X, hidden, out);
+        MatrixOps.softmaxInPlace(out);
+    }
+
+    /** As {@link #forwardInto} but stops before the softmax, leaving the raw logits in out. */
+    public void logitsInto(Matrix X, Matrix hidden, Matrix out){
+        Instrumentation ins = Instruments.get();
+        if (ins == Instrumentation.NONE) {
+            MatrixOps.dotBiasReluInto(X, l1.W, l1.b, hidden);
+            MatrixOps.dotBiasInto(hidden, l2.W, l2.b, out);
+            return;
+        }
+        long t0 = System.nanoTime();
+        MatrixOps.dotBiasReluInto(X, l1.W, l1.b, hidden);
+        long t1 = System.nanoTime();
+        MatrixOps.dotBiasInto(hidden, l2.W, l2.b, out);
+        ins.layer(0, "dense+relu", false, X.rows, t1 - t0);
+        ins.layer(1, "dense", false, X.rows, System.nanoTime() - t1);
+    }
+
+    public Matrix forward(Matrix X){
+        return forward(X, null);
+    }
+
     public double[][] forward(double[][] X, double[][] outHidden){
-        double[][] z1 = MatrixOps.addRowVector(MatrixOps.dot(X, l1.W), l1.b);
-        double[][] a1 = MatrixOps.relu(z1);
+        Matrix hidden = outHidden == null ? null : new Matrix(X.length, l1.nOut);
+        double[][] probs = forward(Matrix.of(X), hidden).toArray();
         if (outHidden != null){
-            for (int i=0;i<a1.length;i++)
-                System.arraycopy(a1[i], 0, outHidden[i], 0, a1[0].length);
+            for (int i=0;i<X.length;i++)
+                System.arraycopy(hidden.data, i*l1.nOut, outHidden[i], 0, l1.nOut);
         }
-        double[][] z2 = MatrixOps.addRowVector(MatrixOps.dot(a1, l2.W), l2.b);
-        return MatrixOps.softmax(z2);
+        return probs;
     }
 
+    @Override
     public double[][] forward(double[][] X){
         return forward(X, null);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void predictInto(Matrix X, Matrix out){
+        forwardInto(X, new Matrix(X.rows, l1.nOut), out);
+    }
+
+    @Override public int inputSize(){ return l1.nIn; }
+    @Override public int outputSize(){ return l2.nOut; }
+    @Override public Precision precision(){ return Precision.FLOAT64; }
+}
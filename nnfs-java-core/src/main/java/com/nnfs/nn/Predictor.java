@@ -0,0 +1,22 @@
+package com.nnfs.nn;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+
+/** Anything that maps input rows to class probabilities; what the API serves. */
+public interface Predictor {
+    double[][] forward(double[][] X);
+    int inputSize();
+    int outputSize();
+    Precision precision();
+
+    /**
+     * Writes the probabilities for the rows of X into out (X.rows x outputSize()). The default goes
+     * through {@link #forward(double[][])}; implementations override it to skip the array copies.
+     */
+    default void predictInto(Matrix X, Matrix out){
+        if (X.cols != inputSize()) throw new IllegalArgumentException("expected " + inputSize() + " features, got " + X.cols);
+        if (out.rows != X.rows || out.cols != outputSize()) throw new IllegalArgumentException("out must be " + X.rows + "x" + outputSize());
+        out.copyFrom(Matrix.of(forward(X.toArray())));
+    }
+}
@@ -0,0 +1,172 @@
+package com.nnfs.nn;
+
+import com.nnfs.layers.Activation;
+import com.nnfs.layers.Dense;
+import com.nnfs.layers.Layer;
+import com.nnfs.layers.Param;
+import com.nnfs.layers.ReLU;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.MatrixOps;
+import com.nnfs.math.Precision;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A stack of {@link Layer}s of any depth whose last layer produces logits. Training drives
+ * {@link #forward(Matrix)} and {@link #backward(Matrix)} from one thread per instance (use
+ * {@link #replica()} for more); {@link #forward(double[][])} is safe to call concurrently and
+ * returns softmax probabilities like the other predictors. It runs through an {@link InferencePlan}
+ * compiled on first use, whose per-thread scratch holds no reference to the network, so pool threads
+ * do not keep a discarded network alive (layers the plan cannot compile get a throwaway replica per
+ * call). A {@link Dense} directly followed by {@link ReLU} is evaluated as one fused pass.
+ */
+public class Sequential implements Predictor {
+    /** Rows per pass of the plan behind the concurrent predict methods. */
+    static final int PLAN_ROWS = 256;
+
+    private final int inputSize, outputSize;
+    private final Layer[] layers;
+    private final boolean[] fused;
+    private volatile InferencePlan plan;
+    private volatile boolean compilable = true;
+    private Matrix hidden;
+
+    public Sequential(int inputSize, Layer... layers){
+        if (layers.length == 0) throw new IllegalArgumentException("Sequential needs at least one layer");
+        this.inputSize = inputSize;
+        this.layers = layers.clone();
+        this.fused = new boolean[layers.length];
+        int width = inputSize;
+        for (int i=0;i<layers.length;i++){
+            width = layers[i].outputSize(width);
+            fused[i] = layers[i] instanceof Dense && i + 1 < layers.length && layers[i+1] instanceof ReLU;
+        }
+        this.outputSize = width;
+    }
+
+    /**
+     * Dense layers of the given hidden widths, each followed by {@code activation}, then a Dense
+     * output layer. Weights are N(0, 0.01^2) seeded with {@code seed + i} for the i-th Dense, so
+     * {@code mlp(in, {h}, out, "relu", seed)} starts from the same weights as {@code new Model(in, h, out, seed)}.
+     */
+    public static Sequential mlp(int input, int[] hidden, int output, String activation, long seed){
+        List<Layer> ls = new ArrayList<>();
+        int width = input;
+        for (int i=0;i<hidden.length;i++){
+            ls.add(new Dense(width, hidden[i], 0.01, seed + i));
+            ls.add(Activation.of(activation));
+            width = hidden[i];
+        }
+        ls.add(new Dense(width, output, 0.01, seed + hidden.length));
+        return new Sequential(input, ls.toArray(new Layer[0]));
+    }
+
+    /** The layers of a two-layer {@link Model} with ReLU in between. */
+    public static Sequential of(Model m){
+        return new Sequential(m.l1.nIn, new Dense(m.l1.W, m.l1.b), new ReLU(), new Dense(m.l2.W, m.l2.b));
+    }
+
+    public List<Layer> layers(){ return Collections.unmodifiableList(Arrays.asList(layers)); }
+
+    /** Logits for X, in a buffer owned by the last layer. */
+    public Matrix forward(Matrix X){
+        if (X.cols != inputSize) throw new IllegalArgumentException("expected " + inputSize + " inputs, got " + X.cols);
+        Instrumentation ins = Instruments.get();
+        boolean timed = ins != Instrumentation.NONE;
+        Matrix a = X;
+        for (int i=0;i<layers.length;i++){
+            long t0 = timed ? System.nanoTime() : 0L;
+            int at = i;
+            if (i == layers.length - 1) hidden = a;
+            if (fused[i]){
+                a = ((ReLU) layers[i+1]).forwardApplied(((Dense) layers[i]).forward(a, true));
+                i++;
+                if (i == layers.length - 1) hidden = a;
+            } else {
+                a = layers[i].forward(a);
+            }
+            if (timed) ins.layer(at, fused[at] ? "dense+relu" : layers[at].kind(), false, X.rows, System.nanoTime() - t0);
+        }
+        return a;
+    }
+
+    /** Backpropagates dL/dlogits (per row, e.g. probs - onehot) through every layer; dLogits may be overwritten. */
+    public void backward(Matrix dLogits){
+        Instrumentation ins = Instruments.get();
+        Matrix g = dLogits;
+        for (int i=layers.length-1;i>=0;i--){
+            if (ins == Instrumentation.NONE) { g = layers[i].backward(g, i > 0); continue; }
+            long t0 = System.nanoTime();
+            g = layers[i].backward(g, i > 0);
+            ins.layer(i, layers[i].kind(), true, dLogits.rows, System.nanoTime() - t0);
+        }
+    }
+
+    /** Input to the last layer on the last forward pass, i.e. the final hidden activations. */
+    public Matrix hidden(){ return hidden; }
+
+    /** Width of {@link #hidden()}. */
+    public int hiddenSize(){
+        int width = inputSize;
+        for (int i=0;i<layers.length-1;i++) width = layers[i].outputSize(width);
+        return width;
+    }
+
+    /** Every trainable parameter, in layer order; replicas list theirs in the same order. */
+    public List<Param> params(){
+        List<Param> ps = new ArrayList<>();
+        for (Layer l : layers) ps.addAll(l.params());
+        return ps;
+    }
+
+    /** Same parameters, separate buffers and gradients. */
+    public Sequential replica(){
+        Layer[] ls = new Layer[layers.length];
+        for (int i=0;i<ls.length;i++) ls[i] = layers[i].replica();
+        return new Sequential(inputSize, ls);
+    }
+
+    /** Compiled on first use (a racing second compile is harmless); null when a layer cannot be compiled. */
+    private InferencePlan plan(){
+        InferencePlan p = plan;
+        if (p == null && compilable){
+            try {
+                plan = p = InferencePlan.compile(this, PLAN_ROWS);
+            } catch (IllegalArgumentException e){
+                compilable = false;
+            }
+        }
+        return p;
+    }
+
+    @Override
+    public double[][] forward(double[][] X){
+        Matrix probs = new Matrix(X.length, outputSize);
+        predictInto(Matrix.of(X), probs);
+        return probs.toArray();
+    }
+
+    @Override
+    public void predictInto(Matrix X, Matrix out){
+        InferencePlan p = plan();
+        if (p != null) { p.predictInto(X, out); return; }
+        out.copyFrom(replica().forward(X));
+        MatrixOps.softmaxInPlace(out);
+    }
+
+    @Override public int inputSize(){ return inputSize; }
+    @Override public int outputSize(){ return outputSize; }
+    @Override public Precision precision(){ return Precision.FLOAT64; }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder("Sequential[").append(inputSize);
+        for (Layer l : layers) sb.append(l instanceof Dense ? " -> " + ((Dense) l).nOut : " " + l);
+        return sb.append(']').toString();
+    }
+}
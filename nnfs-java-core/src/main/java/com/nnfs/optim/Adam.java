@@ -0,0 +1,50 @@
+package com.nnfs.optim;
+
+/**
+ * Adam with bias-corrected first and second moments. L2 is added to the gradient (classic Adam);
+ * {@link AdamW} decouples it from the moments instead.
+ */
+public class Adam extends Optimizer {
+    public double beta1 = 0.9, beta2 = 0.999, eps = 1e-8;
+    protected double[] m, v;
+    private double c1, c2;
+
+    public Adam(double lr, double l2){ super(lr, l2); }
+
+    public Adam(double lr, double l2, double beta1, double beta2, double eps){
+        super(lr, l2);
+        this.beta1 = beta1; this.beta2 = beta2; this.eps = eps;
+    }
+
+    @Override public String name(){ return "adam"; }
+
+    @Override
+    protected void allocate(int total){ m = new double[total]; v = new double[total]; }
+
+    @Override
+    public double[][] state(){ return m == null ? new double[0][] : new double[][]{m, v}; }
+
+    @Override
+    protected void prepare(){
+        c1 = 1.0 / (1.0 - Math.pow(beta1, t));
+        c2 = 1.0 / (1.0 - Math.pow(beta2, t));
+    }
+
+    /** Whether decay is folded into the gradient (Adam) or applied to the weights directly (AdamW). */
+    protected boolean decoupled(){ return false; }
+
+    @Override
+    protected void update(int n, double[] w, int wOff, double[] g, int gOff, int s, double lr, double decay, double gScale){
+        double b1 = beta1, b2 = beta2, e = eps, k1 = c1, k2 = c2;
+        double gDecay = decoupled() ? 0.0 : decay, wDecay = decoupled() ? decay : 0.0;
+        double[] m = this.m, v = this.v;
+        for (int j=0;j<n;j++){
+            double wj = w[wOff + j];
+            double gj = gScale * g[gOff + j] + gDecay * wj;
+            double mj = b1 * m[s + j] + (1.0 - b1) * gj;
+            double vj = b2 * v[s + j] + (1.0 - b2) * gj * gj;
+            m[s + j] = mj; v[s + j] = vj;
+            w[wOff + j] = wj - lr * (mj * k1 / (Math.sqrt(vj * k2) + e) + wDecay * wj);
+        }
+    }
+}
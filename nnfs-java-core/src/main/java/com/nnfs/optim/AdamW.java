@@ -0,0 +1,10 @@
+package com.nnfs.optim;
+
+/** Adam with decoupled weight decay: {@code w -= lr * (mhat/(sqrt(vhat)+eps) + l2*w)}. */
+public class AdamW extends Adam {
+    public AdamW(double lr, double weightDecay){ super(lr, weightDecay); }
+
+    @Override public String name(){ return "adamw"; }
+
+    @Override protected boolean decoupled(){ return true; }
+}
@@ -0,0 +1,55 @@
+package com.nnfs.optim;
+
+/** Learning rate as a function of the base rate and the 1-based optimizer step. */
+@FunctionalInterface
+public interface LrSchedule {
+    double rate(double base, long step);
+
+    static LrSchedule constant(){
+        return new LrSchedule(){
+            @Override public double rate(double base, long step){ return base; }
+            @Override public String toString(){ return "constant"; }
+        };
+    }
+
+    /** Multiplies the rate by {@code gamma} every {@code every} steps. */
+    static LrSchedule step(long every, double gamma){
+        if (every <= 0) throw new IllegalArgumentException("step schedule needs every > 0");
+        return new LrSchedule(){
+            @Override public double rate(double base, long step){ return base * Math.pow(gamma, (step - 1) / every); }
+            @Override public String toString(){ return "step(" + every + ", " + gamma + ")"; }
+        };
+    }
+
+    /** base * gamma^(step-1). */
+    static LrSchedule exponential(double gamma){
+        return new LrSchedule(){
+            @Override public double rate(double base, long step){ return base * Math.pow(gamma, step - 1); }
+            @Override public String toString(){ return "exp(" + gamma + ")"; }
+        };
+    }
+
+    /** Cosine decay from base to {@code base * minFactor} over {@code total} steps, then flat. */
+    static LrSchedule cosine(long total, double minFactor){
+        if (total <= 0) throw new IllegalArgumentException("cosine schedule needs total > 0");
+        return new LrSchedule(){
+            @Override public double rate(double base, long step){
+                double p = Math.min(1.0, (step - 1) / (double) total);
+                return base * (minFactor + (1.0 - minFactor) * 0.5 * (1.0 + Math.cos(Math.PI * p)));
+            }
+            @Override public String toString(){ return "cosine(" + total + ", " + minFactor + ")"; }
+        };
+    }
+
+    /** Linear ramp from base/warmup to base over the first {@code warmup} steps, then this schedule. */
+    default LrSchedule withWarmup(long warmup){
+        if (warmup <= 0) return this;
+        LrSchedule after = this;
+        return new LrSchedule(){
+            @Override public double rate(double base, long step){
+                return step <= warmup ? base * step / warmup : after.rate(base, step - warmup);
+            }
+            @Override public String toString(){ return "warmup(" + warmup + ") then " + after; }
+        };
+    }
+}
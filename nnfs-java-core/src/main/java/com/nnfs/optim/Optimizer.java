@@ -0,0 +1,165 @@
+package com.nnfs.optim;
+
+import com.nnfs.layers.Param;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Base of the first-order optimizers. {@link #step(List)} updates every parameter of a model in
+ * one fused pass: the learning-rate schedule, global-norm gradient clipping, L2 decay and the
+ * optimizer's own moment updates are applied per element as the weights are written. Optimizer
+ * state (velocities, moments) lives in flat {@code double[]} buffers laid out parameter after
+ * parameter, and the pass is cut into fixed chunks that run on the common fork-join pool once a
+ * model has more than {@link #PARALLEL_ELEMENTS} parameters. Chunking and reduction order do not
+ * depend on the pool, so results are the same on any machine.
+ */
+public abstract class Optimizer {
+    public double lr;
+    public double l2;
+    public LrSchedule schedule = LrSchedule.constant();
+    /** Rescale the gradients when their global L2 norm exceeds this; 0 turns clipping off. */
+    public double clipNorm = 0.0;
+
+    static final int CHUNK = 1 << 14;
+    static final long PARALLEL_ELEMENTS = 1L << 17;
+
+    private List<Param> bound;
+    private int[] chunkParam, chunkFrom, chunkLen, chunkState;
+    private double[] partial;
+    protected long t;
+    private double rate, lastNorm;
+
+    protected Optimizer(double lr, double l2){ this.lr = lr; this.l2 = l2; }
+
+    /** Short name for logs and configs, e.g. {@code adamw}. */
+    public abstract String name();
+
+    /** Sizes the flat state for {@code total} parameters; called once, on the first step. */
+    protected abstract void allocate(int total);
+
+    /**
+     * Updates {@code w[wOff..wOff+n)} from {@code gScale * g[gOff..)}; {@code s} is the matching
+     * offset into this optimizer's state buffers and {@code decay} the L2 coefficient to use.
+     */
+    protected abstract void update(int n, double[] w, int wOff, double[] g, int gOff, int s,
+                                   double lr, double decay, double gScale);
+
+    /** Called once per step before any {@link #update}, after the step counter has advanced. */
+    protected void prepare(){}
+
+    /** Applies one update to all of {@code params}; the list must be the same one on every call. */
+    public void step(List<Param> params){
+        if (bound != params) bind(params);
+        t++;
+        rate = schedule.rate(lr, t);
+        prepare();
+        double gScale = 1.0;
+        if (clipNorm > 0.0){
+            double norm = Math.sqrt(sumSquares());
+            lastNorm = norm;
+            if (norm > clipNorm) gScale = clipNorm / norm;
+        }
+        run(false, gScale);
+    }
+
+    /** Steps taken so far; schedules and bias corrections count from here. */
+    public long steps(){ return t; }
+    /** Learning rate used by the last step, after the schedule. */
+    public double currentRate(){ return rate; }
+    /** Gradient norm measured by the last step when clipping is on. */
+    public double lastGradNorm(){ return lastNorm; }
+
+    /**
+     * The live per-element state buffers (velocity, moments), laid out parameter after parameter;
+     * empty when the optimizer keeps none or has not stepped yet. Read by checkpoints.
+     */
+    public double[][] state(){ return new double[0][]; }
+
+    /** Resumes from a checkpoint: binds {@code params}, sets the step counter and copies in a {@link #state()} snapshot. */
+    public void restore(List<Param> params, long steps, double[][] saved){
+        if (bound != params) bind(params);
+        double[][] live = state();
+        // nothing saved = taken before the first step, when fresh (zeroed) buffers are exact
+        if (saved.length != live.length && saved.length != 0) throw new IllegalArgumentException(name() + " state has " + live.length + " buffers, checkpoint has " + saved.length);
+        for (int i=0;i<saved.length;i++){
+            if (saved[i].length != live[i].length) throw new IllegalArgumentException(name() + " state buffer " + i + " size differs from the checkpoint");
+            System.arraycopy(saved[i], 0, live[i], 0, live[i].length);
+        }
+        t = steps;
+    }
+
+    private void bind(List<Param> params){
+        if (bound != null && !sameArrays(bound, params))
+            throw new IllegalStateException(name() + " is bound to another set of parameters");
+        int chunks = 0;
+        for (Param p : params) chunks += (p.size() + CHUNK - 1) / CHUNK;
+        chunkParam = new int[chunks]; chunkFrom = new int[chunks]; chunkLen = new int[chunks]; chunkState = new int[chunks];
+        int c = 0, s = 0;
+        for (int i=0;i<params.size();i++){
+            int n = params.get(i).size();
+            for (int from = 0; from < n; from += CHUNK, c++){
+                chunkParam[c] = i; chunkFrom[c] = from; chunkLen[c] = Math.min(CHUNK, n - from); chunkState[c] = s + from;
+            }
+            s += n;
+        }
+        partial = new double[chunks];
+        if (bound == null) allocate(s);
+        bound = params;
+    }
+
+    private static boolean sameArrays(List<Param> a, List<Param> b){
+        if (a.size() != b.size()) return false;
+        for (int i=0;i<a.size();i++) if (a.get(i).value != b.get(i).value || a.get(i).grad != b.get(i).grad) return false;
+        return true;
+    }
+
+    private double sumSquares(){
+        run(true, 0.0);
+        double sum = 0.0;
+        for (double v : partial) sum += v;
+        return sum;
+    }
+
+    private void run(boolean norm, double gScale){
+        long total = chunkState.length == 0 ? 0 : chunkState[chunkState.length - 1] + chunkLen[chunkLen.length - 1];
+        if (total >= PARALLEL_ELEMENTS && chunkParam.length > 1 && ForkJoinPool.getCommonPoolParallelism() > 1)
+            ForkJoinPool.commonPool().invoke(new Chunks(norm, gScale, 0, chunkParam.length));
+        else for (int c=0;c<chunkParam.length;c++) chunk(c, norm, gScale);
+    }
+
+    private void chunk(int c, boolean norm, double gScale){
+        Param p = bound.get(chunkParam[c]);
+        int from = chunkFrom[c], n = chunkLen[c];
+        if (norm){
+            double s = 0.0;
+            double[] g = p.grad;
+            for (int j=from;j<from+n;j++) s += g[j]*g[j];
+            partial[c] = s;
+        } else {
+            update(n, p.value, from, p.grad, from, chunkState[c], rate, p.decay ? l2 : 0.0, gScale);
+        }
+    }
+
+    private final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final boolean norm; final double gScale; final int from, to;
+
+        Chunks(boolean norm, double gScale, int from, int to){
+            this.norm = norm; this.gScale = gScale; this.from = from; this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= 1){ chunk(from, norm, gScale); return; }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunks(norm, gScale, from, mid), new Chunks(norm, gScale, mid, to));
+        }
+    }
+
+    @Override
+    public String toString(){
+        return name() + "(lr=" + lr + ", l2=" + l2 + ", schedule=" + schedule + (clipNorm > 0 ? ", clipNorm=" + clipNorm : "") + ")";
+    }
+}
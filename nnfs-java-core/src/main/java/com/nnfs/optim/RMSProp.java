@@ -0,0 +1,29 @@
+package com.nnfs.optim;
+
+/** RMSProp: {@code s = rho*s + (1-rho)*g^2; w -= lr * g / (sqrt(s) + eps)}. */
+public class RMSProp extends Optimizer {
+    public double rho = 0.9, eps = 1e-8;
+    private double[] sq;
+
+    public RMSProp(double lr, double l2){ super(lr, l2); }
+
+    @Override public String name(){ return "rmsprop"; }
+
+    @Override
+    protected void allocate(int total){ sq = new double[total]; }
+
+    @Override
+    public double[][] state(){ return sq == null ? new double[0][] : new double[][]{sq}; }
+
+    @Override
+    protected void update(int n, double[] w, int wOff, double[] g, int gOff, int s, double lr, double decay, double gScale){
+        double r = rho, e = eps;
+        double[] sq = this.sq;
+        for (int j=0;j<n;j++){
+            double gj = gScale * g[gOff + j] + decay * w[wOff + j];
+            double sj = r * sq[s + j] + (1.0 - r) * gj * gj;
+            sq[s + j] = sj;
+            w[wOff + j] -= lr * gj / (Math.sqrt(sj) + e);
+        }
+    }
+}
@@ -1,22 +1,92 @@
 package com.nnfs.optim;
 
-public class SGD {
-    public double lr = 1e-2;
-    public double l2 = 1e-4;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.Kernels;
+import com.nnfs.math.Matrix;
 
-    public SGD(){}
-    public SGD(double lr, double l2){ this.lr = lr; this.l2 = l2; }
+/**
+ * SGD with optional heavy-ball or Nesterov momentum:
+ * {@code v = momentum*v + g; w -= lr * (nesterov ? g + momentum*v : v)}, where g includes L2 decay.
+ * With no momentum and no clipping the update is the plain {@code w -= lr*(g + l2*w)} kernel.
+ */
+public class SGD extends Optimizer {
+    public double momentum;
+    public boolean nesterov;
+    private double[] velocity;
 
-    public void step(double[][] W, double[][] dW, double[] b, double[] db){
-        int nIn = W.length, nOut = W[0].length;
+    public SGD(){ this(1e-2, 1e-4); }
+    public SGD(double lr, double l2){ this(lr, l2, 0.0, false); }
+
+    public SGD(double lr, double l2, double momentum, boolean nesterov){
+        super(lr, l2);
+        if (momentum < 0.0 || momentum >= 1.0) throw new IllegalArgumentException("momentum must be in [0, 1)");
+        if (nesterov && momentum == 0.0) throw new IllegalArgumentException("nesterov needs momentum > 0");
+        this.momentum = momentum; this.nesterov = nesterov;
+    }
+
+    private static final Kernels K = Kernels.get();
+
+    @Override
+    public String name(){ return nesterov ? "nesterov" : momentum > 0.0 ? "momentum" : "sgd"; }
+
+    @Override
+    protected void allocate(int total){ velocity = momentum > 0.0 ? new double[total] : null; }
+
+    @Override
+    public double[][] state(){ return velocity == null ? new double[0][] : new double[][]{velocity}; }
+
+    @Override
+    protected void update(int n, double[] w, int wOff, double[] g, int gOff, int s, double lr, double decay, double gScale){
+        if (velocity == null){
+            if (gScale == 1.0){ K.sgd(n, w, wOff, g, gOff, lr, decay); return; }
+            for (int j=0;j<n;j++) w[wOff + j] -= lr * (gScale * g[gOff + j] + decay * w[wOff + j]);
+            return;
+        }
+        double mu = momentum;
+        double[] v = velocity;
+        for (int j=0;j<n;j++){
+            double gj = gScale * g[gOff + j] + decay * w[wOff + j];
+            double vj = mu * v[s + j] + gj;
+            v[s + j] = vj;
+            w[wOff + j] -= lr * (nesterov ? gj + mu * vj : vj);
+        }
+    }
+
+    public void step(Matrix W, Matrix dW, double[] b, double[] db){
+        if (!W.sameShape(dW)) throw new IllegalArgumentException("W and dW shapes differ");
+        int nIn = W.rows, nOut = W.cols;
+        double[] w = W.data, g = dW.data;
+        if (W.isContiguous() && dW.isContiguous()){
+            K.sgd(nIn*nOut, w, W.offset, g, dW.offset, lr, l2);
+            K.sgd(nOut, b, 0, db, 0, lr, 0.0);
+            return;
+        }
         for (int i=0;i<nIn;i++){
+            int wRow = W.offset + i*W.rowStride, gRow = dW.offset + i*dW.rowStride;
             for (int j=0;j<nOut;j++){
-                double reg = l2 * W[i][j];
-                W[i][j] -= lr * (dW[i][j] + reg);
+                int wi = wRow + j*W.colStride;
+                double reg = l2 * w[wi];
+                w[wi] -= lr * (g[gRow + j*dW.colStride] + reg);
             }
         }
         for (int j=0;j<nOut;j++){
             b[j] -= lr * db[j];
         }
     }
-}
\ No newline at end of file
+
+    public void step(FMatrix W, FMatrix dW, float[] b, float[] db){
+        if (!W.sameShape(dW)) throw new IllegalArgumentException("W and dW shapes differ");
+        float flr = (float) lr, fl2 = (float) l2;
+        float[] w = W.data, g = dW.data;
+        for (int i=0;i<W.rows;i++){
+            int wRow = W.offset + i*W.rowStride, gRow = dW.offset + i*dW.rowStride;
+            for (int j=0;j<W.cols;j++){
+                int wi = wRow + j*W.colStride;
+                w[wi] -= flr * (g[gRow + j*dW.colStride] + fl2 * w[wi]);
+            }
+        }
+        for (int j=0;j<b.length;j++){
+            b[j] -= flr * db[j];
+        }
+    }
+}
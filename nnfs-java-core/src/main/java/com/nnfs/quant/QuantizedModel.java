@@ -0,0 +1,169 @@
+package com.nnfs.quant;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+import com.nnfs.nn.Predictor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Int8 post-training-quantized Dense-ReLU-Dense-softmax network. Weights are symmetric int8
+ * with one scale per output channel; inputs and hidden activations use one calibrated scale
+ * each. Products accumulate in int32 and are rescaled to float only in the layer epilogue.
+ * The {@code .q8} file is big-endian: magic, version, shape, scales, weights and biases, then a
+ * CRC32 of everything after the version.
+ */
+public class QuantizedModel implements Predictor {
+    static final int MAGIC = 0x4E4E5138; // "NNQ8"
+    static final int VERSION = 2;
+    /** Largest array the VM will allocate. */
+    static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    public final int nIn, nHidden, nOut;
+    final byte[] w1, w2;          // row-major nIn x nHidden, nHidden x nOut
+    final float[] s1, s2;         // per output channel weight scales
+    final float[] b1, b2;
+    final float inScale, hiddenScale;
+
+    QuantizedModel(int nIn, int nHidden, int nOut, byte[] w1, float[] s1, float[] b1,
+                   byte[] w2, float[] s2, float[] b2, float inScale, float hiddenScale){
+        if (w1.length != nIn*nHidden || w2.length != nHidden*nOut) throw new IllegalArgumentException("weight size mismatch");
+        if (s1.length != nHidden || b1.length != nHidden || s2.length != nOut || b2.length != nOut)
+            throw new IllegalArgumentException("scale/bias size mismatch");
+        this.nIn = nIn; this.nHidden = nHidden; this.nOut = nOut;
+        this.w1 = w1; this.s1 = s1; this.b1 = b1;
+        this.w2 = w2; this.s2 = s2; this.b2 = b2;
+        this.inScale = inScale; this.hiddenScale = hiddenScale;
+    }
+
+    @Override
+    public double[][] forward(double[][] X){
+        double[][] out = new double[X.length][nOut];
+        byte[] xq = new byte[nIn], hq = new byte[nHidden];
+        int[] acc1 = new int[nHidden], acc2 = new int[nOut];
+        for (int r=0;r<X.length;r++){
+            if (X[r].length != nIn) throw new IllegalArgumentException("row " + r + " has " + X[r].length + " features, expected " + nIn);
+            forwardRow(X[r], out[r], xq, hq, acc1, acc2);
+        }
+        return out;
+    }
+
+    @Override
+    public void predictInto(Matrix X, Matrix out){
+        if (X.cols != nIn) throw new IllegalArgumentException("expected " + nIn + " features, got " + X.cols);
+        if (out.rows != X.rows || out.cols != nOut) throw new IllegalArgumentException("out must be " + X.rows + "x" + nOut);
+        double[] x = new double[nIn], probs = new double[nOut];
+        byte[] xq = new byte[nIn], hq = new byte[nHidden];
+        int[] acc1 = new int[nHidden], acc2 = new int[nOut];
+        for (int r=0;r<X.rows;r++){
+            for (int i=0;i<nIn;i++) x[i] = X.get(r, i);
+            forwardRow(x, probs, xq, hq, acc1, acc2);
+            for (int j=0;j<nOut;j++) out.set(r, j, probs[j]);
+        }
+    }
+
+    void forwardRow(double[] x, double[] probs, byte[] xq, byte[] hq, int[] acc1, int[] acc2){
+        float invIn = 1f / inScale, invHidden = 1f / hiddenScale;
+        for (int i=0;i<nIn;i++) xq[i] = quantize((float) x[i] * invIn);
+
+        java.util.Arrays.fill(acc1, 0);
+        for (int i=0;i<nIn;i++){
+            int xi = xq[i];
+            if (xi == 0) continue;
+            int row = i*nHidden;
+            for (int j=0;j<nHidden;j++) acc1[j] += xi * w1[row + j];
+        }
+        for (int j=0;j<nHidden;j++){
+            float h = acc1[j] * (inScale * s1[j]) + b1[j];
+            hq[j] = h <= 0f ? 0 : quantize(h * invHidden);
+        }
+
+        java.util.Arrays.fill(acc2, 0);
+        for (int i=0;i<nHidden;i++){
+            int hi = hq[i];
+            if (hi == 0) continue;
+            int row = i*nOut;
+            for (int j=0;j<nOut;j++) acc2[j] += hi * w2[row + j];
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (int j=0;j<nOut;j++){
+            probs[j] = acc2[j] * (double) (hiddenScale * s2[j]) + b2[j];
+            max = Math.max(max, probs[j]);
+        }
+        double sum = 0.0;
+        for (int j=0;j<nOut;j++){ probs[j] = Math.exp(probs[j] - max); sum += probs[j]; }
+        for (int j=0;j<nOut;j++) probs[j] /= (sum + 1e-12);
+    }
+
+    static byte quantize(float v){
+        int q = Math.round(v);
+        return (byte) (q > 127 ? 127 : (q < -127 ? -127 : q));
+    }
+
+    /** Parameter bytes held by this model (int8 weights plus float scales and biases). */
+    public long parameterBytes(){
+        return w1.length + w2.length + 4L * (s1.length + s2.length + b1.length + b2.length + 2);
+    }
+
+    @Override public int inputSize(){ return nIn; }
+    @Override public int outputSize(){ return nOut; }
+    @Override public Precision precision(){ return Precision.INT8; }
+
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC); out.writeInt(VERSION);
+        CRC32 crc = new CRC32();
+        DataOutputStream body = new DataOutputStream(new CheckedOutputStream(out, crc));
+        body.writeInt(nIn); body.writeInt(nHidden); body.writeInt(nOut);
+        body.writeFloat(inScale); body.writeFloat(hiddenScale);
+        body.write(w1); writeFloats(body, s1); writeFloats(body, b1);
+        body.write(w2); writeFloats(body, s2); writeFloats(body, b2);
+        out.writeInt((int) crc.getValue());
+        out.flush();
+    }
+
+    public static QuantizedModel read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) throw new IOException("Not a quantized model file");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported quantized model version " + version + " (re-run Trainer --quantize)");
+        CRC32 crc = new CRC32();
+        DataInputStream body = new DataInputStream(new CheckedInputStream(in, crc));
+        int nIn = body.readInt(), nHidden = body.readInt(), nOut = body.readInt();
+        if (nIn <= 0 || nHidden <= 0 || nOut <= 0) throw new IOException("Invalid shape " + nIn + "/" + nHidden + "/" + nOut);
+        float inScale = body.readFloat(), hiddenScale = body.readFloat();
+        // The header is untrusted: size in long, and let the weights grow only as their bytes arrive
+        long n1 = (long) nIn * nHidden, n2 = (long) nHidden * nOut;
+        if (n1 > MAX_ARRAY || n2 > MAX_ARRAY) throw new IOException("Shape " + nIn + "/" + nHidden + "/" + nOut + " is too large");
+        byte[] w1 = readBytes(body, (int) n1);
+        float[] s1 = readFloats(body, nHidden), b1 = readFloats(body, nHidden);
+        byte[] w2 = readBytes(body, (int) n2);
+        float[] s2 = readFloats(body, nOut), b2 = readFloats(body, nOut);
+        if (in.readInt() != (int) crc.getValue()) throw new IOException("Quantized model checksum mismatch");
+        return new QuantizedModel(nIn, nHidden, nOut, w1, s1, b1, w2, s2, b2, inScale, hiddenScale);
+    }
+
+    private static void writeFloats(DataOutputStream out, float[] v) throws IOException {
+        for (float f : v) out.writeFloat(f);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int n) throws IOException {
+        byte[] b = in.readNBytes(n);
+        if (b.length != n) throw new EOFException("Quantized model truncated: expected " + n + " weight bytes, got " + b.length);
+        return b;
+    }
+
+    private static float[] readFloats(DataInputStream in, int n) throws IOException {
+        float[] v = new float[n];
+        for (int i=0;i<n;i++) v[i] = in.readFloat();
+        return v;
+    }
+}
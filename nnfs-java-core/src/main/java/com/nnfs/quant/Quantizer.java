@@ -0,0 +1,66 @@
+package com.nnfs.quant;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.math.MatrixOps;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+
+/** Post-training quantization of a {@link Model} to {@link QuantizedModel}. */
+public final class Quantizer {
+    private Quantizer(){}
+
+    /**
+     * Quantizes weights per output channel and calibrates the input and hidden activation
+     * scales from the largest magnitudes seen while running {@code calibration} through the model.
+     */
+    public static QuantizedModel quantize(Model m, Matrix calibration){
+        if (calibration.cols != m.l1.nIn) throw new IllegalArgumentException("calibration data must have " + m.l1.nIn + " columns");
+        Matrix hidden = new Matrix(calibration.rows, m.l1.nOut);
+        m.forward(calibration, hidden);
+        float inScale = scaleFor(maxAbs(calibration));
+        float hiddenScale = scaleFor(maxAbs(hidden));
+
+        float[] s1 = new float[m.l1.nOut], s2 = new float[m.l2.nOut];
+        byte[] w1 = quantizeColumns(m.l1.W, s1), w2 = quantizeColumns(m.l2.W, s2);
+        return new QuantizedModel(m.l1.nIn, m.l1.nOut, m.l2.nOut,
+                w1, s1, toFloat(m.l1.b), w2, s2, toFloat(m.l2.b), inScale, hiddenScale);
+    }
+
+    /** Symmetric int8 per column: scales[j] = max|W[:,j]| / 127. */
+    static byte[] quantizeColumns(Matrix W, float[] scales){
+        int n = W.rows, m = W.cols;
+        byte[] q = new byte[n*m];
+        for (int j=0;j<m;j++){
+            double max = 0.0;
+            for (int i=0;i<n;i++) max = Math.max(max, Math.abs(W.get(i, j)));
+            scales[j] = scaleFor(max);
+            float inv = 1f / scales[j];
+            for (int i=0;i<n;i++) q[i*m + j] = QuantizedModel.quantize((float) W.get(i, j) * inv);
+        }
+        return q;
+    }
+
+    static float scaleFor(double maxAbs){
+        return maxAbs > 0 ? (float) (maxAbs / 127.0) : 1f;
+    }
+
+    static double maxAbs(Matrix A){
+        double max = 0.0;
+        for (int i=0;i<A.rows;i++)
+            for (int j=0;j<A.cols;j++) max = Math.max(max, Math.abs(A.get(i, j)));
+        return max;
+    }
+
+    private static float[] toFloat(double[] v){
+        float[] f = new float[v.length];
+        for (int i=0;i<v.length;i++) f[i] = (float) v[i];
+        return f;
+    }
+
+    public static double accuracy(Predictor p, double[][] X, int[] y){
+        int[] pred = MatrixOps.argmax(p.forward(X));
+        int correct = 0;
+        for (int i=0;i<pred.length;i++) if (pred[i] == y[i]) correct++;
+        return correct / (double) pred.length;
+    }
+}
@@ -0,0 +1,142 @@
+package com.nnfs.train;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The state of a training run at an epoch boundary: weights, optimizer step counter and
+ * moment buffers, epoch and step counts, the visiting order and shuffle RNG, and the data
+ * loader's RNG. Filled by {@link TrainingEngine#snapshot} (reusing the arrays already here) and
+ * applied by {@link TrainingEngine#restore}, after which training continues bit for bit as if
+ * it had never stopped. On disk (little-endian):
+ * <pre>
+ *   int magic "NNCK"   int version   long payload bytes   int CRC32 of the payload   int reserved
+ *   payload: int epoch   long steps   long optimizerSteps   string config
+ *            double[][] params   float[][] floatParams   double[][] optimizerState
+ *            int[] perm   byte[] rng   byte[] dataRng (length -1 = none)
+ * </pre>
+ * Arrays are an int length followed by the elements; strings are UTF-8 byte arrays. The RNGs are
+ * {@link com.nnfs.io.RandomState} bytes (version 1 stored them Java-serialized and is refused).
+ */
+public final class Checkpoint {
+    static final int MAGIC = 'N' | 'N' << 8 | 'C' << 16 | 'K' << 24;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 24;
+
+    public int epoch;
+    public long steps;
+    /** {@link TrainConfig#fingerprint()} of the run; a resume with different settings is refused. */
+    public String config = "";
+    /** float64 parameters in {@link TrainingEngine} order (empty for float32 runs). */
+    public double[][] params = new double[0][];
+    /** float32 model parameters W1, b1, W2, b2 (empty for float64 runs). */
+    public float[][] floatParams = new float[0][];
+    public long optimizerSteps;
+    public double[][] optimizerState = new double[0][];
+    public int[] perm = new int[0];
+    public byte[] rng = new byte[0];
+    /** {@link com.nnfs.data.DataLoader#epochState()} when streaming from a file, else null. */
+    public byte[] dataRng;
+
+    /** Payload size in bytes. */
+    long bytes(){
+        long n = 4 + 8 + 8 + 4 + config.getBytes(StandardCharsets.UTF_8).length;
+        n += 4; for (double[] a : params) n += 4 + 8L * a.length;
+        n += 4; for (float[] a : floatParams) n += 4 + 4L * a.length;
+        n += 4; for (double[] a : optimizerState) n += 4 + 8L * a.length;
+        n += 4 + 4L * perm.length + 4 + rng.length + 4 + (dataRng == null ? 0 : dataRng.length);
+        return n;
+    }
+
+    /** Writes to a temporary sibling, forces it to disk and renames it over {@code path}. */
+    public void write(Path path) throws IOException {
+        write(path, null);
+    }
+
+    /** As above, encoding into {@code buf} when it is large enough; returns the buffer used. */
+    ByteBuffer write(Path path, ByteBuffer buf) throws IOException {
+        long n = HEADER_BYTES + bytes();
+        if (n > Integer.MAX_VALUE) throw new IOException("checkpoint of " + n + " bytes is too large");
+        if (buf == null || buf.capacity() < n) buf = ByteBuffer.allocate((int) n);
+        buf.clear().order(ByteOrder.LITTLE_ENDIAN).position(HEADER_BYTES);
+        buf.putInt(epoch).putLong(steps).putLong(optimizerSteps);
+        putBytes(buf, config.getBytes(StandardCharsets.UTF_8));
+        buf.putInt(params.length);
+        for (double[] a : params){ buf.putInt(a.length); buf.asDoubleBuffer().put(a); buf.position(buf.position() + 8 * a.length); }
+        buf.putInt(floatParams.length);
+        for (float[] a : floatParams){ buf.putInt(a.length); buf.asFloatBuffer().put(a); buf.position(buf.position() + 4 * a.length); }
+        buf.putInt(optimizerState.length);
+        for (double[] a : optimizerState){ buf.putInt(a.length); buf.asDoubleBuffer().put(a); buf.position(buf.position() + 8 * a.length); }
+        buf.putInt(perm.length); buf.asIntBuffer().put(perm); buf.position(buf.position() + 4 * perm.length);
+        putBytes(buf, rng);
+        if (dataRng == null) buf.putInt(-1); else putBytes(buf, dataRng);
+        buf.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().position(HEADER_BYTES));
+        buf.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, buf.limit() - HEADER_BYTES).putInt(16, (int) crc.getValue()).putInt(20, 0);
+
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return buf;
+    }
+
+    /** Reads and verifies a checkpoint; a torn or corrupt file is an IOException. */
+    public static Checkpoint read(Path path) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC) throw new IOException(path + " is not a checkpoint");
+        int version = buf.getInt();
+        if (version != VERSION) throw new IOException(path + ": unsupported checkpoint version " + version);
+        long payload = buf.getLong();
+        int crc = buf.getInt();
+        buf.getInt();
+        if (payload != buf.limit() - HEADER_BYTES) throw new IOException(path + " is truncated");
+        CRC32 check = new CRC32();
+        check.update(buf.duplicate());
+        if ((int) check.getValue() != crc) throw new IOException(path + ": checksum mismatch");
+        try {
+            Checkpoint c = new Checkpoint();
+            c.epoch = buf.getInt(); c.steps = buf.getLong(); c.optimizerSteps = buf.getLong();
+            c.config = new String(getBytes(buf), StandardCharsets.UTF_8);
+            c.params = new double[buf.getInt()][];
+            for (int i=0;i<c.params.length;i++){ c.params[i] = new double[buf.getInt()]; buf.asDoubleBuffer().get(c.params[i]); buf.position(buf.position() + 8 * c.params[i].length); }
+            c.floatParams = new float[buf.getInt()][];
+            for (int i=0;i<c.floatParams.length;i++){ c.floatParams[i] = new float[buf.getInt()]; buf.asFloatBuffer().get(c.floatParams[i]); buf.position(buf.position() + 4 * c.floatParams[i].length); }
+            c.optimizerState = new double[buf.getInt()][];
+            for (int i=0;i<c.optimizerState.length;i++){ c.optimizerState[i] = new double[buf.getInt()]; buf.asDoubleBuffer().get(c.optimizerState[i]); buf.position(buf.position() + 8 * c.optimizerState[i].length); }
+            c.perm = new int[buf.getInt()]; buf.asIntBuffer().get(c.perm); buf.position(buf.position() + 4 * c.perm.length);
+            c.rng = getBytes(buf);
+            int n = buf.getInt();
+            c.dataRng = n < 0 ? null : new byte[n];
+            if (n > 0) buf.get(c.dataRng);
+            if (buf.hasRemaining()) throw new IOException(path + " has trailing bytes");
+            return c;
+        } catch (RuntimeException e){
+            throw new IOException(path + " is malformed: " + e, e);
+        }
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] b){
+        buf.putInt(b.length).put(b);
+    }
+
+    private static byte[] getBytes(ByteBuffer buf){
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return b;
+    }
+}
@@ -0,0 +1,137 @@
+package com.nnfs.train;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link Checkpoint}s of a {@link TrainingEngine} off the training thread. {@link #save}
+ * only copies the engine's state into one of two pooled snapshots (a few array copies) and hands
+ * it to a low-priority writer thread, which encodes it, writes {@code ckpt-<epoch>.nnck} through
+ * a temporary file and an atomic rename, and then deletes all but the newest {@code keep}
+ * checkpoints. If both snapshots are still in flight the checkpoint is skipped rather than
+ * making training wait. A failed write is rethrown by the next {@code save} or by {@link #close}.
+ */
+public final class Checkpointer implements AutoCloseable {
+    static final String PREFIX = "ckpt-", SUFFIX = ".nnck";
+
+    private final Path dir;
+    private final int keep;
+    private final ArrayBlockingQueue<Checkpoint> free = new ArrayBlockingQueue<>(2);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "nnfs-checkpoint-writer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private ByteBuffer buf;
+    private volatile IOException failure;
+    private volatile Path last;
+    private int skipped;
+
+    public Checkpointer(Path dir, int keep){
+        if (keep < 1) throw new IllegalArgumentException("keep must be >= 1");
+        this.dir = dir; this.keep = keep;
+        free.add(new Checkpoint());
+        free.add(new Checkpoint());
+    }
+
+    /** Snapshots {@code engine} (between epochs) and queues the write; false when skipped because earlier writes are still running. */
+    public boolean save(TrainingEngine engine, String config){
+        rethrow();
+        Checkpoint c = free.poll();
+        if (c == null){ skipped++; return false; }
+        queue(engine, config, c);
+        return true;
+    }
+
+    /** As {@link #save}, but waits for a free snapshot instead of skipping, e.g. for the final epoch. */
+    public void saveNow(TrainingEngine engine, String config) throws InterruptedException {
+        rethrow();
+        queue(engine, config, free.take());
+    }
+
+    private void queue(TrainingEngine engine, String config, Checkpoint c){
+        engine.snapshot(c);
+        c.config = config;
+        writer.execute(() -> {
+            try {
+                Path path = dir.resolve(String.format("%s%08d%s", PREFIX, c.epoch, SUFFIX));
+                buf = c.write(path, buf);
+                last = path;
+                prune();
+            } catch (IOException e){
+                failure = e;
+            } catch (RuntimeException e){
+                failure = new IOException("checkpoint failed: " + e, e);
+            } finally {
+                free.add(c);
+            }
+        });
+    }
+
+    private void prune() throws IOException {
+        List<Path> all = list(dir);
+        for (int i=0;i<all.size()-keep;i++) Files.deleteIfExists(all.get(i));
+    }
+
+    /** Checkpoints in {@code dir}, oldest first. */
+    static List<Path> list(Path dir) throws IOException {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)){
+            for (Path p : ds) out.add(p);
+        }
+        out.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+        return out;
+    }
+
+    /**
+     * The newest checkpoint in {@code dir} that reads back intact (a corrupt one, e.g. from a
+     * crash mid-write of a non-atomic filesystem, falls back to the one before), or null.
+     */
+    public static Checkpoint latest(Path dir) throws IOException {
+        List<Path> all = list(dir);
+        IOException first = null;
+        for (int i=all.size()-1;i>=0;i--){
+            try {
+                return Checkpoint.read(all.get(i));
+            } catch (IOException e){
+                if (first == null) first = e;
+            }
+        }
+        if (first != null) throw new IOException("no readable checkpoint in " + dir, first);
+        return null;
+    }
+
+    /** Path of the most recently completed checkpoint, or null. */
+    public Path last(){ return last; }
+    /** Checkpoints skipped because the writer was still busy. */
+    public int skipped(){ return skipped; }
+
+    private void rethrow(){
+        IOException e = failure;
+        if (e != null) throw new UncheckedIOException("checkpoint write failed", e);
+    }
+
+    /** Waits for queued writes to finish. */
+    @Override
+    public void close(){
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        rethrow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.nnfs.train;
+
+import com.nnfs.math.FMatrix;
+import com.nnfs.nn.FloatModel;
+
+/** float32 counterpart of {@link Workspace}. */
+public final class FloatWorkspace {
+    public final int batch, input, hidden, output;
+    public final FMatrix a1, probs, dZ2, dZ1;
+    public final Trainer.FloatGrad grad;
+
+    public FloatWorkspace(int batch, int input, int hidden, int output){
+        this.batch = batch; this.input = input; this.hidden = hidden; this.output = output;
+        a1 = new FMatrix(batch, hidden);
+        probs = new FMatrix(batch, output);
+        dZ2 = new FMatrix(batch, output);
+        dZ1 = new FMatrix(batch, hidden);
+        grad = new Trainer.FloatGrad(input, hidden, output);
+    }
+
+    public FloatWorkspace(int batch, FloatModel model){
+        this(batch, model.l1.nIn, model.l1.nOut, model.l2.nOut);
+    }
+
+    private FloatWorkspace(FloatWorkspace full, int batch){
+        this.batch = batch; input = full.input; hidden = full.hidden; output = full.output;
+        a1 = full.a1.rows(0, batch);
+        probs = full.probs.rows(0, batch);
+        dZ2 = full.dZ2.rows(0, batch);
+        dZ1 = full.dZ1.rows(0, batch);
+        grad = full.grad;
+    }
+
+    public FloatWorkspace rows(int n){
+        if (n > batch) throw new IllegalArgumentException("workspace holds " + batch + " rows, asked for " + n);
+        return n == batch ? this : new FloatWorkspace(this, n);
+    }
+}
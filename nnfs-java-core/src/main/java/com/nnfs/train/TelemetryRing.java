@@ -0,0 +1,78 @@
+package com.nnfs.train;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size ring of per-step training metrics, written by the training thread and read by any
+ * number of observers. Publishing copies primitives into preallocated slots and never blocks or
+ * allocates; a slow reader simply misses overwritten steps. Each slot carries the sequence
+ * number it holds, checked before and after a read (a seqlock), so a torn read is detected and
+ * reported as missing rather than returned.
+ */
+public final class TelemetryRing {
+    /** Reader-side copy of one step; reuse it across {@link #read} calls. */
+    public static final class Snapshot {
+        public long seq, step;
+        public int epoch;
+        public double loss, accuracy, gradNorm, samplesPerSec, activeFraction;
+        public final double[] activationMeans;
+
+        public Snapshot(int width){ activationMeans = new double[width]; }
+    }
+
+    private final int mask, width;
+    private final AtomicLongArray slotSeq;
+    private final long[] steps;
+    private final int[] epochs;
+    private final double[] loss, accuracy, gradNorm, samplesPerSec, activeFraction, activations;
+    private final AtomicLong published = new AtomicLong(-1);
+
+    /** capacity is rounded up to a power of two; width is the number of activation means per step. */
+    public TelemetryRing(int capacity, int width){
+        int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = cap - 1; this.width = width;
+        slotSeq = new AtomicLongArray(cap);
+        for (int i=0;i<cap;i++) slotSeq.set(i, -1);
+        steps = new long[cap]; epochs = new int[cap];
+        loss = new double[cap]; accuracy = new double[cap]; gradNorm = new double[cap];
+        samplesPerSec = new double[cap]; activeFraction = new double[cap];
+        activations = new double[cap * width];
+    }
+
+    public int width(){ return width; }
+    public int capacity(){ return mask + 1; }
+
+    /** Sequence number of the newest published step, or -1 before the first. */
+    public long latest(){ return published.get(); }
+
+    /** Single producer only. {@code means} must hold {@link #width()} values. */
+    public void publish(int epoch, long step, double loss, double accuracy, double gradNorm,
+                        double samplesPerSec, double activeFraction, double[] means){
+        long seq = published.get() + 1;
+        int i = (int) (seq & mask);
+        slotSeq.set(i, -1);
+        VarHandle.storeStoreFence();
+        epochs[i] = epoch; steps[i] = step;
+        this.loss[i] = loss; this.accuracy[i] = accuracy; this.gradNorm[i] = gradNorm;
+        this.samplesPerSec[i] = samplesPerSec; this.activeFraction[i] = activeFraction;
+        System.arraycopy(means, 0, activations, i*width, width);
+        slotSeq.setRelease(i, seq);
+        published.setRelease(seq);
+    }
+
+    /** Copies step {@code seq} into {@code out}; false when it was never written or has been overwritten. */
+    public boolean read(long seq, Snapshot out){
+        if (seq < 0) return false;
+        int i = (int) (seq & mask);
+        if (slotSeq.getAcquire(i) != seq) return false;
+        out.seq = seq;
+        out.epoch = epochs[i]; out.step = steps[i];
+        out.loss = loss[i]; out.accuracy = accuracy[i]; out.gradNorm = gradNorm[i];
+        out.samplesPerSec = samplesPerSec[i]; out.activeFraction = activeFraction[i];
+        System.arraycopy(activations, i*width, out.activationMeans, 0, Math.min(width, out.activationMeans.length));
+        VarHandle.acquireFence();
+        return slotSeq.get(i) == seq;
+    }
+}
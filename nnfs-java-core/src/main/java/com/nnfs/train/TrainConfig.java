@@ -0,0 +1,209 @@
+package com.nnfs.train;
+
+import com.nnfs.math.Precision;
+import com.nnfs.optim.Adam;
+import com.nnfs.optim.AdamW;
+import com.nnfs.optim.LrSchedule;
+import com.nnfs.optim.Optimizer;
+import com.nnfs.optim.RMSProp;
+import com.nnfs.optim.SGD;
+
+/** Knobs for {@link TrainingEngine}. Defaults reproduce the original full-batch loop. */
+public class TrainConfig {
+    public int epochs = 4000;
+    /** Rows per optimizer step; 0 means the whole dataset (256 when streaming with --data). */
+    public int batchSize = 0;
+    /** Reshuffle the visiting order every epoch. */
+    public boolean shuffle = false;
+    /** Skip the trailing batch when it is smaller than batchSize. */
+    public boolean dropLast = false;
+    /** Threads computing shard gradients in parallel; 1 trains on the calling thread. */
+    public int workers = 1;
+    public double lr = 0.1;
+    /** L2 penalty on weights; for adamw the decoupled weight decay. */
+    public double l2 = 1e-4;
+    /** sgd, momentum, nesterov, adam, adamw or rmsprop. */
+    public String optimizer = "sgd";
+    public double momentum = 0.9;
+    public double beta1 = 0.9, beta2 = 0.999;
+    /** constant, step (x lrGamma every lrEvery epochs), exp (x lrGamma per epoch) or cosine (to lr*minLr at the last epoch). */
+    public String schedule = "constant";
+    public int lrEvery = 1000;
+    public double lrGamma = 0.5;
+    public double minLr = 0.0;
+    /** Epochs of linear learning-rate warm-up before the schedule starts. */
+    public int warmup = 0;
+    /** Clip the global gradient norm to this; 0 disables clipping. */
+    public double clipNorm = 0.0;
+    public long seed = 1337L;
+    /** Hidden layer widths, e.g. {@code {128, 64}}; anything other than one ReLU layer trains a {@link com.nnfs.nn.Sequential}. */
+    public int[] hidden = {64};
+    /** relu, leaky_relu, gelu, sigmoid or tanh, applied after every hidden layer. */
+    public String activation = "relu";
+    public int logEvery = 400;
+    /** FLOAT32 trains a {@link com.nnfs.nn.FloatModel} and writes float32 weights. */
+    public Precision precision = Precision.FLOAT64;
+    /** After training, also write an int8 post-training-quantized model/weights.q8. */
+    public boolean quantize = false;
+    /** Also export model/weights.json next to the binary model/weights.bin. */
+    public boolean json = false;
+    /** Train from a .csv or binary dataset file streamed from disk instead of the spiral set. */
+    public String data = null;
+    /** Number of classes in a CSV file (binary datasets record it in their header). */
+    public int classes = 0;
+    /** CSV column holding the label; negative counts from the end. */
+    public int labelColumn = -1;
+    /** Records held for shuffling a streamed dataset when shuffle is on. */
+    public int shuffleBuffer = 8192;
+    /** Batches decoded ahead on the loader thread; 0 reads on the training thread. */
+    public int prefetch = 2;
+    /** Write a checkpoint every this many epochs (and after the last one); 0 turns checkpointing off. */
+    public int checkpointEvery = 0;
+    public String checkpointDir = "model/checkpoints";
+    /** Checkpoints kept on disk; older ones are deleted. */
+    public int keepCheckpoints = 3;
+    /** Continue from the newest checkpoint in checkpointDir, if there is one. */
+    public boolean resume = false;
+    /** Training processes in a distributed run; each takes a slice of every batch. */
+    public int processes = 1;
+    /** This process's rank, 0..processes-1; rank 0 hosts the coordinator, logs, checkpoints and saves the model. */
+    public int rank = 0;
+    /** host:port of the rendezvous coordinator (rank 0 listens there). */
+    public String coordinator = "127.0.0.1:29500";
+    /** 1 all-reduces gradients every step; K > 1 averages the weights every K steps and at each epoch end. */
+    public int syncEvery = 1;
+    /** How long to wait for the other processes at rendezvous and in every all-reduce before failing. */
+    public int timeoutSeconds = 60;
+
+    /** Parses {@code --key=value} flags named after the fields, e.g. {@code --batchSize=128 --workers=4}. */
+    public static TrainConfig fromArgs(String[] args){
+        TrainConfig c = new TrainConfig();
+        for (String arg : args){
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+            String val = eq < 0 ? "true" : arg.substring(eq + 1);
+            switch (key){
+                case "epochs": c.epochs = Integer.parseInt(val); break;
+                case "batchSize": c.batchSize = Integer.parseInt(val); break;
+                case "shuffle": c.shuffle = Boolean.parseBoolean(val); break;
+                case "dropLast": c.dropLast = Boolean.parseBoolean(val); break;
+                case "workers": c.workers = Integer.parseInt(val); break;
+                case "lr": c.lr = Double.parseDouble(val); break;
+                case "l2": c.l2 = Double.parseDouble(val); break;
+                case "optimizer": c.optimizer = val.toLowerCase(java.util.Locale.ROOT); break;
+                case "momentum": c.momentum = Double.parseDouble(val); break;
+                case "beta1": c.beta1 = Double.parseDouble(val); break;
+                case "beta2": c.beta2 = Double.parseDouble(val); break;
+                case "schedule": c.schedule = val.toLowerCase(java.util.Locale.ROOT); break;
+                case "lrEvery": c.lrEvery = Integer.parseInt(val); break;
+                case "lrGamma": c.lrGamma = Double.parseDouble(val); break;
+                case "minLr": c.minLr = Double.parseDouble(val); break;
+                case "warmup": c.warmup = Integer.parseInt(val); break;
+                case "clipNorm": c.clipNorm = Double.parseDouble(val); break;
+                case "seed": c.seed = Long.parseLong(val); break;
+                case "hidden": c.hidden = parseWidths(val); break;
+                case "activation": c.activation = com.nnfs.layers.Activation.of(val).name(); break;
+                case "logEvery": c.logEvery = Integer.parseInt(val); break;
+                case "precision": c.precision = Precision.parse(val); break;
+                case "quantize": c.quantize = Boolean.parseBoolean(val); break;
+                case "json": c.json = Boolean.parseBoolean(val); break;
+                case "data": c.data = val; break;
+                case "classes": c.classes = Integer.parseInt(val); break;
+                case "labelColumn": c.labelColumn = Integer.parseInt(val); break;
+                case "shuffleBuffer": c.shuffleBuffer = Integer.parseInt(val); break;
+                case "prefetch": c.prefetch = Integer.parseInt(val); break;
+                case "checkpointEvery": c.checkpointEvery = Integer.parseInt(val); break;
+                case "checkpointDir": c.checkpointDir = val; break;
+                case "keepCheckpoints": c.keepCheckpoints = Integer.parseInt(val); break;
+                case "resume": c.resume = Boolean.parseBoolean(val); break;
+                case "processes": c.processes = Integer.parseInt(val); break;
+                case "rank": c.rank = Integer.parseInt(val); break;
+                case "coordinator": c.coordinator = val; break;
+                case "syncEvery": c.syncEvery = Integer.parseInt(val); break;
+                case "timeoutSeconds": c.timeoutSeconds = Integer.parseInt(val); break;
+                default: throw new IllegalArgumentException("Unknown option --" + key);
+            }
+        }
+        if (c.workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        if (c.precision == Precision.INT8) throw new IllegalArgumentException("int8 is inference only; train in float64/float32 and pass --quantize");
+        if (c.batchSize < 0) throw new IllegalArgumentException("batchSize must be >= 0");
+        c.optimizer(1);
+        if (c.data != null && c.batchSize == 0) c.batchSize = 256;
+        if (c.data != null && c.quantize) throw new IllegalArgumentException("--quantize calibrates on the in-memory spiral set and cannot be combined with --data");
+        if (c.shuffleBuffer < 0 || c.prefetch < 0) throw new IllegalArgumentException("shuffleBuffer and prefetch must be >= 0");
+        if (c.precision == Precision.FLOAT32 && !(c.optimizer.equals("sgd") && c.schedule.equals("constant") && c.warmup == 0 && c.clipNorm == 0.0))
+            throw new IllegalArgumentException("float32 trains with plain sgd at a constant rate only");
+        if (c.layered() && c.precision != Precision.FLOAT64) throw new IllegalArgumentException("--hidden/--activation networks train in float64 only");
+        if (c.checkpointEvery < 0 || c.keepCheckpoints < 1) throw new IllegalArgumentException("checkpointEvery must be >= 0 and keepCheckpoints >= 1");
+        if (c.processes < 1 || c.rank < 0 || c.rank >= c.processes) throw new IllegalArgumentException("rank must be in 0..processes-1");
+        if (c.syncEvery < 1 || c.timeoutSeconds < 1) throw new IllegalArgumentException("syncEvery and timeoutSeconds must be >= 1");
+        if (c.processes > 1 && c.syncEvery > 1 && c.checkpointEvery > 0)
+            throw new IllegalArgumentException("checkpoints of a distributed run need --syncEvery=1 (with weight averaging the optimizer state differs per process)");
+        if (c.layered() && (c.quantize || c.json)) throw new IllegalArgumentException("--quantize and --json support the single-hidden-layer ReLU model only");
+        return c;
+    }
+
+    /** Optimizer steps per epoch over {@code rows} training rows. */
+    public int stepsPerEpoch(int rows){
+        int b = batchSize == 0 ? rows : Math.min(batchSize, rows);
+        return Math.max(1, dropLast ? rows / b : (rows + b - 1) / b);
+    }
+
+    /** Builds the configured optimizer; epoch-based schedule settings are converted with {@code stepsPerEpoch}. */
+    public Optimizer optimizer(int stepsPerEpoch){
+        Optimizer o;
+        switch (optimizer){
+            case "sgd": o = new SGD(lr, l2); break;
+            case "momentum": o = new SGD(lr, l2, momentum, false); break;
+            case "nesterov": o = new SGD(lr, l2, momentum, true); break;
+            case "adam": o = new Adam(lr, l2, beta1, beta2, 1e-8); break;
+            case "adamw": { AdamW a = new AdamW(lr, l2); a.beta1 = beta1; a.beta2 = beta2; o = a; break; }
+            case "rmsprop": o = new RMSProp(lr, l2); break;
+            default: throw new IllegalArgumentException("Unknown optimizer '" + optimizer + "' (sgd, momentum, nesterov, adam, adamw, rmsprop)");
+        }
+        long spe = stepsPerEpoch;
+        switch (schedule){
+            case "constant": o.schedule = LrSchedule.constant(); break;
+            case "step": o.schedule = LrSchedule.step(lrEvery * spe, lrGamma); break;
+            case "exp": o.schedule = LrSchedule.exponential(Math.pow(lrGamma, 1.0 / spe)); break;
+            case "cosine": o.schedule = LrSchedule.cosine(Math.max(1, (long) (epochs - warmup) * spe), minLr); break;
+            default: throw new IllegalArgumentException("Unknown schedule '" + schedule + "' (constant, step, exp, cosine)");
+        }
+        if (warmup < 0) throw new IllegalArgumentException("warmup must be >= 0");
+        o.schedule = o.schedule.withWarmup(warmup * spe);
+        if (clipNorm < 0) throw new IllegalArgumentException("clipNorm must be >= 0");
+        o.clipNorm = clipNorm;
+        return o;
+    }
+
+    /**
+     * The settings a checkpoint must agree with to be resumed bit for bit: everything that shapes
+     * the model, the data order or the updates. The epoch count only matters to the cosine schedule,
+     * so other runs can be extended by resuming with a larger {@code --epochs}.
+     */
+    public String fingerprint(){
+        return "hidden=" + java.util.Arrays.toString(hidden) + " activation=" + activation + " precision=" + precision.dtype()
+                + " optimizer=" + optimizer + " lr=" + lr + " l2=" + l2 + " momentum=" + momentum + " beta1=" + beta1 + " beta2=" + beta2
+                + " schedule=" + schedule + (schedule.equals("cosine") ? " epochs=" + epochs + " minLr=" + minLr : "")
+                + " lrEvery=" + lrEvery + " lrGamma=" + lrGamma + " warmup=" + warmup + " clipNorm=" + clipNorm
+                + " batchSize=" + batchSize + " shuffle=" + shuffle + " dropLast=" + dropLast + " workers=" + workers + " seed=" + seed
+                + (processes > 1 ? " processes=" + processes + " syncEvery=" + syncEvery : "")
+                + " data=" + data + " classes=" + classes + " labelColumn=" + labelColumn + " shuffleBuffer=" + shuffleBuffer;
+    }
+
+    /** True when the configured topology needs a {@link com.nnfs.nn.Sequential} rather than the two-layer model. */
+    public boolean layered(){
+        return hidden.length != 1 || !activation.equals("relu");
+    }
+
+    static int[] parseWidths(String val){
+        String[] parts = val.split(",");
+        int[] w = new int[parts.length];
+        for (int i=0;i<w.length;i++){
+            w[i] = Integer.parseInt(parts[i].trim());
+            if (w[i] <= 0) throw new IllegalArgumentException("hidden widths must be positive: " + val);
+        }
+        return w;
+    }
+}
@@ -1,127 +1,126 @@
 package com.nnfs.train;
 
-import com.nnfs.data.SpiralData;
-import com.nnfs.loss.CategoricalCrossEntropy;
+import com.nnfs.io.JsonWeights;
+import com.nnfs.io.WeightsFile;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.FloatOps;
+import com.nnfs.math.Matrix;
 import com.nnfs.math.MatrixOps;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+import com.nnfs.nn.FloatModel;
 import com.nnfs.nn.Model;
-import com.nnfs.optim.SGD;
+import com.nnfs.nn.Predictor;
+import com.nnfs.quant.QuantizedModel;
+import com.nnfs.quant.Quantizer;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class Trainer {
     public static class Grad {
-        public double[][] dW1, dW2;
+        public Matrix dW1, dW2;
         public double[] db1, db2;
-    }
 
-    static Grad backward(Model model, double[][] X, double[][] a1, double[][] yPred, int[] yTrue){
-        int n = X.length;
-        int classes = yPred[0].length;
-        double[][] dZ2 = new double[n][classes];
-        for (int i=0;i<n;i++){
-            for (int j=0;j<classes;j++){
-                double t = (yTrue[i]==j)?1.0:0.0;
-                dZ2[i][j] = yPred[i][j] - t;
-            }
+        public Grad(){}
+        public Grad(int input, int hidden, int output){
+            dW1 = new Matrix(input, hidden); db1 = new double[hidden];
+            dW2 = new Matrix(hidden, output); db2 = new double[output];
         }
-        double[][] a1T = transpose(a1);
-        double[][] dW2 = matScale(com.nnfs.math.MatrixOps.dot(a1T, dZ2), 1.0/n);
-        double[] db2 = meanCols(dZ2);
-        double[][] W2T = transpose(model.l2.W);
-        double[][] dA1 = com.nnfs.math.MatrixOps.dot(dZ2, W2T);
-        double[][] dZ1 = new double[a1.length][a1[0].length];
-        for (int i=0;i<a1.length;i++)
-            for (int j=0;j<a1[0].length;j++)
-                dZ1[i][j] = a1[i][j] > 0 ? dA1[i][j] : 0.0;
-        double[][] XT = transpose(X);
-        double[][] dW1 = matScale(com.nnfs.math.MatrixOps.dot(XT, dZ1), 1.0/n);
-        double[] db1 = meanCols(dZ1);
-
-        Grad g = new Grad();
-        g.dW1 = dW1; g.db1 = db1; g.dW2 = dW2; g.db2 = db2;
-        return g;
     }
 
-    static double[][] transpose(double[][] A){
-        int n=A.length, m=A[0].length;
-        double[][] T = new double[m][n];
-        for (int i=0;i<n;i++) for (int j=0;j<m;j++) T[j][i]=A[i][j];
-        return T;
+    public static class FloatGrad {
+        public FMatrix dW1, dW2;
+        public float[] db1, db2;
+
+        public FloatGrad(int input, int hidden, int output){
+            dW1 = new FMatrix(input, hidden); db1 = new float[hidden];
+            dW2 = new FMatrix(hidden, output); db2 = new float[output];
+        }
     }
-    static double[][] matScale(double[][] A, double s){
-        int n=A.length, m=A[0].length; double[][] B=new double[n][m];
-        for (int i=0;i<n;i++) for (int j=0;j<m;j++) B[i][j]=A[i][j]*s;
-        return B;
+
+    /** Backpropagates ws.dZ2 (already holding probs - onehot) into ws.grad. */
+    static void backward(Model model, Matrix X, Workspace ws){
+        int n = X.rows;
+        Matrix dZ2 = ws.dZ2, dZ1 = ws.dZ1;
+        Grad g = ws.grad;
+        Instrumentation ins = Instruments.get();
+        long t0 = ins != Instrumentation.NONE ? System.nanoTime() : 0L;
+        MatrixOps.dotTNInto(1.0/n, ws.a1, dZ2, g.dW2);
+        MatrixOps.meanColsInto(dZ2, g.db2);
+        MatrixOps.dotNTInto(1.0, dZ2, model.l2.W, dZ1);
+        long t1 = ins != Instrumentation.NONE ? System.nanoTime() : 0L;
+        MatrixOps.reluBackwardInPlace(dZ1, ws.a1);
+        MatrixOps.dotTNInto(1.0/n, X, dZ1, g.dW1);
+        MatrixOps.meanColsInto(dZ1, g.db1);
+        if (ins != Instrumentation.NONE) {
+            ins.layer(1, "dense", true, n, t1 - t0);
+            ins.layer(0, "dense+relu", true, n, System.nanoTime() - t1);
+        }
     }
-    static double[] meanCols(double[][] A){
-        int n=A.length, m=A[0].length; double[] b=new double[m];
-        for (int j=0;j<m;j++){ double sum=0; for (int i=0;i<n;i++) sum+=A[i][j]; b[j]=sum/n; }
-        return b;
+
+    static void backward(FloatModel model, FMatrix X, FloatWorkspace ws){
+        float inv = 1f / X.rows;
+        FloatGrad g = ws.grad;
+        Instrumentation ins = Instruments.get();
+        long t0 = ins != Instrumentation.NONE ? System.nanoTime() : 0L;
+        FloatOps.dotTNInto(inv, ws.a1, ws.dZ2, g.dW2);
+        FloatOps.meanColsInto(ws.dZ2, g.db2);
+        FloatOps.dotNTInto(1f, ws.dZ2, model.l2.W, ws.dZ1);
+        long t1 = ins != Instrumentation.NONE ? System.nanoTime() : 0L;
+        FloatOps.reluBackwardInPlace(ws.dZ1, ws.a1);
+        FloatOps.dotTNInto(inv, X, ws.dZ1, g.dW1);
+        FloatOps.meanColsInto(ws.dZ1, g.db1);
+        if (ins != Instrumentation.NONE) {
+            ins.layer(1, "dense", true, X.rows, t1 - t0);
+            ins.layer(0, "dense+relu", true, X.rows, System.nanoTime() - t1);
+        }
     }
 
     public static void main(String[] args) throws Exception {
-        int points=100; int classes=3;
-        double[][][] data = SpiralData.make(points, classes, 42);
-        double[][] X = data[0];
-        int[] y = SpiralData.labels(points, classes);
-
-        Model model = new Model(2, 64, classes, 1337L);
-        SGD optim = new SGD(0.1, 1e-4);
-
-        int epochs = 4000;
-        double[][] hidden = new double[X.length][64];
-        for (int epoch=1; epoch<=epochs; epoch++){
-            double[][] probs = model.forward(X, hidden);
-            double loss = CategoricalCrossEntropy.loss(probs, y);
-
-            Grad g = backward(model, X, hidden, probs, y);
-            optim.step(model.l1.W, g.dW1, model.l1.b, g.db1);
-            optim.step(model.l2.W, g.dW2, model.l2.b, g.db2);
-
-            if (epoch % 400 == 0){
-                int correct=0;
-                int[] preds = com.nnfs.math.MatrixOps.argmax(probs);
-                for (int i=0;i<preds.length;i++) if (preds[i]==y[i]) correct++;
-                double acc = correct/(double)preds.length;
-                System.out.printf("Epoch %d loss=%.4f acc=%.3f%n", epoch, loss, acc);
+        TrainConfig cfg = TrainConfig.fromArgs(args);
+        boolean lead = cfg.rank == 0;
+        TrainingJob job = new TrainingJob(cfg).onEpoch(r -> {
+            if (lead && cfg.logEvery > 0 && r.epoch() % cfg.logEvery == 0){
+                System.out.printf("Epoch %d loss=%.4f acc=%.3f%n", r.epoch(), r.loss(), r.accuracy());
             }
+        });
+        if (lead && job.resumedFrom() != null)
+            System.out.printf("Resuming from the epoch %d checkpoint in %s%n", job.resumedFrom().epoch, cfg.checkpointDir);
+        long t0 = System.nanoTime();
+        job.run();
+        if (!lead) return;
+        if (job.lastEpoch() != null){
+            double secs = (System.nanoTime() - t0) / 1e9;
+            int epochs = job.lastEpoch().epoch() - (job.resumedFrom() == null ? 0 : job.resumedFrom().epoch);
+            System.out.printf("Trained %d epochs in %.2f s (%.0f rows/s%s)%n", epochs, secs, (double) epochs * job.lastEpoch().samples() / secs,
+                    cfg.processes > 1 ? ", " + cfg.processes + " processes" : "");
         }
+
         Path mp = Path.of("model");
         Files.createDirectories(mp);
-        try (FileWriter fw = new FileWriter(new File(mp.toFile(), "weights.json"))){
-            fw.write(serialize(model));
+        Predictor trained = job.result();
+        WeightsFile.write(trained, mp.resolve("weights.bin"));
+        System.out.println("Saved model to model/weights.bin");
+        if (cfg.json){
+            Files.writeString(mp.resolve("weights.json"), JsonWeights.toJson(trained));
+            System.out.println("Saved model to model/weights.json");
         }
-        System.out.println("Saved model to model/weights.json");
+        if (cfg.quantize) quantize(job.doubleResult(), job.inputs(), job.labels(), mp.resolve("weights.q8"));
     }
 
-    static String serialize(com.nnfs.nn.Model model){
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\"l1\":{\"W\":").append(toJson(model.l1.W)).append(",\"b\":").append(toJson(model.l1.b))
-          .append("},\"l2\":{\"W\":").append(toJson(model.l2.W)).append(",\"b\":").append(toJson(model.l2.b)).append("}}");
-        return sb.toString();
-    }
-    static String toJson(double[][] A){
-        StringBuilder sb = new StringBuilder("[");
-        for (int i=0;i<A.length;i++){
-            if (i>0) sb.append(',');
-            sb.append('[');
-            for (int j=0;j<A[i].length;j++){
-                if (j>0) sb.append(',');
-                sb.append(String.format("%.10f", A[i][j]));
-            }
-            sb.append(']');
-        }
-        sb.append(']'); return sb.toString();
-    }
-    static String toJson(double[] b){
-        StringBuilder sb = new StringBuilder("[");
-        for (int j=0;j<b.length;j++){
-            if (j>0) sb.append(',');
-            sb.append(String.format("%.10f", b[j]));
+    /** Calibrates on the training inputs, writes the int8 model and reports the accuracy it costs. */
+    static void quantize(Model model, Matrix X, int[] y, Path out) throws java.io.IOException {
+        QuantizedModel q = Quantizer.quantize(model, X);
+        double[][] rows = X.toArray();
+        double ref = Quantizer.accuracy(model, rows, y), acc = Quantizer.accuracy(q, rows, y);
+        try (OutputStream os = new java.io.BufferedOutputStream(Files.newOutputStream(out))){
+            q.write(os);
         }
-        sb.append(']'); return sb.toString();
+        long fp = 8L * (model.l1.W.rows*model.l1.W.cols + model.l1.b.length + model.l2.W.rows*model.l2.W.cols + model.l2.b.length);
+        System.out.printf("int8 acc=%.3f (float64 %.3f, delta %+.3f), params %d -> %d bytes%n",
+                acc, ref, acc - ref, fp, q.parameterBytes());
+        System.out.println("Saved quantized model to " + out);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,665 @@
+package com.nnfs.train;
+
+import com.nnfs.data.DataLoader;
+import com.nnfs.dist.Ring;
+import com.nnfs.io.RandomState;
+import com.nnfs.io.SeededRandom;
+import com.nnfs.layers.Param;
+import com.nnfs.loss.SoftmaxCrossEntropy;
+import com.nnfs.math.FMatrix;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+import com.nnfs.metrics.Instrumentation;
+import com.nnfs.metrics.Instruments;
+import com.nnfs.nn.FloatModel;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Sequential;
+import com.nnfs.optim.Optimizer;
+import com.nnfs.optim.SGD;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Mini-batch training over an in-memory dataset. Each epoch visits the rows through an index
+ * permutation (the dataset itself is never reordered). A batch is split into one shard per
+ * worker; every worker gathers its rows into its own buffers, runs forward/backward against
+ * the shared model, and the shard gradients are reduced in worker order before the step.
+ * Data comes either from an in-memory matrix or from a {@link DataLoader} streaming batches off
+ * disk; in the latter case the loader decides order and batch size and each batch is used as is.
+ * Works on a {@link Model}, a float32 {@link FloatModel} or a {@link Sequential} of any depth
+ * (each extra worker trains a {@link Sequential#replica()} of it).
+ * <p>
+ * After {@link #distribute} the engine is one rank of several processes that all visit the same
+ * batches: each takes its {@link #shardSize} slice of every batch (split again between its own
+ * workers), and either the weighted gradients are summed over the {@link Ring} before every step,
+ * which keeps all ranks' weights identical, or every rank steps on its own slice and the weights
+ * are averaged every {@code syncEvery} steps and at each epoch end.
+ */
+public class TrainingEngine implements AutoCloseable {
+    public record EpochResult(int epoch, double loss, double accuracy, int samples){}
+
+    private final Model model;
+    private final FloatModel fmodel;
+    private final Sequential net;
+    private final Optimizer optim;
+    private final DataLoader loader;
+    /** Rows of the current source (the dataset, or the loader's current batch) in visiting order. */
+    private Matrix X;
+    private int[] y;
+    private int[] perm;
+    private final TrainConfig cfg;
+    private final int batch;
+    private SeededRandom rnd;
+    private final Shard[] shards;
+    private final Trainer.Grad grad;
+    private final Trainer.FloatGrad fgrad;
+    private final List<Param> params;
+    private final ExecutorService pool;
+    private int epoch;
+    private long steps;
+    private TelemetryRing telemetry;
+    private double[] actSums;
+    private long lastStepNanos;
+    private double stepLoss;
+    private long stepCorrect;
+    private Ring ring;
+    private int syncEvery;
+    private double[] flat;
+    private float[][] floatValues, floatGrads;
+    private long unsynced;
+
+    public TrainingEngine(Model model, Optimizer optim, Matrix X, int[] y, TrainConfig cfg){
+        this(model, null, null, optim, X, y, null, cfg);
+    }
+
+    public TrainingEngine(Model model, Optimizer optim, DataLoader loader, TrainConfig cfg){
+        this(model, null, null, optim, null, null, loader, cfg);
+    }
+
+    /** float32 training steps with plain {@link SGD} at its base rate. */
+    public TrainingEngine(FloatModel model, SGD optim, Matrix X, int[] y, TrainConfig cfg){
+        this(null, model, null, optim, X, y, null, cfg);
+    }
+
+    public TrainingEngine(FloatModel model, SGD optim, DataLoader loader, TrainConfig cfg){
+        this(null, model, null, optim, null, null, loader, cfg);
+    }
+
+    public TrainingEngine(Sequential net, Optimizer optim, Matrix X, int[] y, TrainConfig cfg){
+        this(null, null, net, optim, X, y, null, cfg);
+    }
+
+    public TrainingEngine(Sequential net, Optimizer optim, DataLoader loader, TrainConfig cfg){
+        this(null, null, net, optim, null, null, loader, cfg);
+    }
+
+    private TrainingEngine(Model model, FloatModel fmodel, Sequential net, Optimizer optim, Matrix X, int[] y,
+                           DataLoader loader, TrainConfig cfg){
+        if (loader == null && X.rows != y.length) throw new IllegalArgumentException("X.rows must equal y.length");
+        this.model = model; this.fmodel = fmodel; this.net = net;
+        this.optim = optim; this.X = X; this.y = y; this.loader = loader; this.cfg = cfg;
+        this.batch = loader != null ? loader.batchSize() : cfg.batchSize == 0 ? X.rows : Math.min(cfg.batchSize, X.rows);
+        this.perm = new int[loader != null ? batch : X.rows];
+        for (int i=0;i<perm.length;i++) perm[i] = i;
+        this.rnd = new SeededRandom(cfg.seed);
+        int workers = Math.max(1, Math.min(cfg.workers, batch));
+        this.shards = new Shard[workers];
+        for (int w=0; w<workers; w++){
+            int size = shardSize(batch, workers, w);
+            shards[w] = net != null ? new LayerShard(size, w == 0 ? net : net.replica())
+                    : model != null ? new DoubleShard(size) : new FloatShard(size);
+        }
+        boolean single = workers == 1;
+        if (net != null){
+            this.grad = null; this.fgrad = null;
+            List<Param> ps = net.params();
+            if (!single) ps.replaceAll(Param::withOwnGrad);
+            this.params = ps;
+        } else if (model != null){
+            this.grad = single ? ((DoubleShard) shards[0]).ws.grad : new Trainer.Grad(model.l1.nIn, model.l1.nOut, model.l2.nOut);
+            this.fgrad = null;
+            this.params = List.of(new Param("l1.W", model.l1.W.data, grad.dW1.data, true), new Param("l1.b", model.l1.b, grad.db1, false),
+                                  new Param("l2.W", model.l2.W.data, grad.dW2.data, true), new Param("l2.b", model.l2.b, grad.db2, false));
+        } else {
+            this.grad = null;
+            this.params = null;
+            this.fgrad = single ? ((FloatShard) shards[0]).ws.grad : new Trainer.FloatGrad(fmodel.l1.nIn, fmodel.l1.nOut, fmodel.l2.nOut);
+        }
+        this.pool = single ? null : Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "nnfs-train-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The double model being trained, or null when training in float32. */
+    public Model model(){ return model; }
+    /** The float32 model being trained, or null when training in float64. */
+    public FloatModel floatModel(){ return fmodel; }
+    /** The layer network being trained, or null when training a two-layer model. */
+    public Sequential network(){ return net; }
+    public Precision precision(){ return fmodel != null ? Precision.FLOAT32 : Precision.FLOAT64; }
+    public int epoch(){ return epoch; }
+
+    /**
+     * Trains as rank {@code ring.rank()} of {@code ring.size()} processes built with the same
+     * settings; {@code syncEvery} 1 all-reduces gradients every step, larger values average the
+     * weights every that many steps instead. Call before the first epoch.
+     */
+    public void distribute(Ring ring, int syncEvery){
+        if (syncEvery < 1) throw new IllegalArgumentException("syncEvery must be >= 1");
+        this.ring = ring;
+        this.syncEvery = syncEvery;
+        int n = 2;
+        if (fmodel != null){
+            floatValues = new float[][]{fmodel.l1.W.data, fmodel.l1.b, fmodel.l2.W.data, fmodel.l2.b};
+            floatGrads = new float[][]{fgrad.dW1.data, fgrad.db1, fgrad.dW2.data, fgrad.db2};
+            for (float[] a : floatValues) n += a.length;
+        }
+        else for (Param p : params) n += p.value.length;
+        this.flat = new double[n];
+    }
+
+    /**
+     * Copies the state needed to continue this run into {@code c}, reusing its arrays when they
+     * fit. Call between epochs; with a {@link DataLoader} its state at the last epoch end is taken.
+     */
+    public void snapshot(Checkpoint c){
+        c.epoch = epoch;
+        c.steps = steps;
+        if (fmodel != null){
+            c.floatParams = copy(c.floatParams, new float[][]{fmodel.l1.W.data, fmodel.l1.b, fmodel.l2.W.data, fmodel.l2.b});
+            c.params = new double[0][];
+        } else {
+            double[][] vs = new double[params.size()][];
+            for (int i=0;i<vs.length;i++) vs[i] = params.get(i).value;
+            c.params = copy(c.params, vs);
+            c.floatParams = new float[0][];
+        }
+        c.optimizerSteps = optim.steps();
+        c.optimizerState = copy(c.optimizerState, optim.state());
+        if (c.perm.length != perm.length) c.perm = new int[perm.length];
+        System.arraycopy(perm, 0, c.perm, 0, perm.length);
+        c.rng = RandomState.save(rnd);
+        c.dataRng = loader != null ? loader.epochState() : null;
+    }
+
+    /**
+     * Puts this engine (built with the same model shape, optimizer and data) back into the state
+     * of {@code c}; the next {@link #runEpoch()} is epoch {@code c.epoch + 1}. A streamed run's
+     * loader must have been constructed from {@code c.dataRng}.
+     */
+    public void restore(Checkpoint c){
+        if (fmodel != null){
+            float[][] dst = {fmodel.l1.W.data, fmodel.l1.b, fmodel.l2.W.data, fmodel.l2.b};
+            if (c.floatParams.length != dst.length) throw new IllegalArgumentException("checkpoint does not hold a float32 model");
+            for (int i=0;i<dst.length;i++){
+                if (c.floatParams[i].length != dst[i].length) throw new IllegalArgumentException("checkpoint parameter " + i + " has a different shape");
+                System.arraycopy(c.floatParams[i], 0, dst[i], 0, dst[i].length);
+            }
+        } else {
+            if (c.params.length != params.size()) throw new IllegalArgumentException("checkpoint has " + c.params.length + " parameters, the model " + params.size());
+            for (int i=0;i<c.params.length;i++){
+                double[] dst = params.get(i).value;
+                if (c.params[i].length != dst.length) throw new IllegalArgumentException("checkpoint parameter " + params.get(i).name + " has a different shape");
+                System.arraycopy(c.params[i], 0, dst, 0, dst.length);
+            }
+            optim.restore(params, c.optimizerSteps, c.optimizerState);
+        }
+        if (c.perm.length != perm.length) throw new IllegalArgumentException("checkpoint was taken on " + c.perm.length + " rows, not " + perm.length);
+        System.arraycopy(c.perm, 0, perm, 0, perm.length);
+        rnd = RandomState.load(c.rng);
+        epoch = c.epoch;
+        steps = c.steps;
+    }
+
+    private static double[][] copy(double[][] into, double[][] from){
+        if (into.length != from.length) into = new double[from.length][];
+        for (int i=0;i<from.length;i++){
+            if (into[i] == null || into[i].length != from[i].length) into[i] = new double[from[i].length];
+            System.arraycopy(from[i], 0, into[i], 0, from[i].length);
+        }
+        return into;
+    }
+
+    private static float[][] copy(float[][] into, float[][] from){
+        if (into.length != from.length) into = new float[from.length][];
+        for (int i=0;i<from.length;i++){
+            if (into[i] == null || into[i].length != from[i].length) into[i] = new float[from[i].length];
+            System.arraycopy(from[i], 0, into[i], 0, from[i].length);
+        }
+        return into;
+    }
+
+    /**
+     * Publishes per-step loss, accuracy, gradient norm, throughput and hidden-unit activation
+     * means into {@code ring} (whose width must be the last hidden layer's size); null turns it off.
+     */
+    public void setTelemetry(TelemetryRing ring){
+        int hidden = hiddenSize();
+        if (ring != null && ring.width() != hidden) throw new IllegalArgumentException("telemetry width must be " + hidden);
+        this.telemetry = ring;
+        this.actSums = ring == null ? null : new double[hidden];
+        this.lastStepNanos = System.nanoTime();
+    }
+
+    /** Width of the last hidden layer, whose activations telemetry reports. */
+    public int hiddenSize(){
+        return net != null ? net.hiddenSize() : model != null ? model.l1.nOut : fmodel.l1.nOut;
+    }
+
+    public EpochResult runEpoch() throws InterruptedException {
+        epoch++;
+        double lossSum = 0.0;
+        long correct = 0;
+        int seen = 0;
+        if (loader != null){
+            for (DataLoader.Batch b; (b = loader.next()) != null; ){
+                X = b.x; y = b.y;
+                step(0, b.rows);
+                lossSum += stepLoss; correct += stepCorrect;
+                seen += b.rows;
+            }
+            if (seen == 0) throw new IllegalStateException("The data loader produced no batches");
+            if (averaging()){ average(lossSum, correct); lossSum = flat[flat.length - 2]; correct = (long) flat[flat.length - 1]; }
+            return new EpochResult(epoch, lossSum / seen, correct / (double) seen, seen);
+        }
+        if (cfg.shuffle) shuffle(perm, rnd);
+        for (int start = 0; start < perm.length; start += batch){
+            int n = Math.min(batch, perm.length - start);
+            if (n < batch && cfg.dropLast) break;
+            step(start, n);
+            lossSum += stepLoss; correct += stepCorrect;
+            seen += n;
+        }
+        if (averaging()){ average(lossSum, correct); lossSum = flat[flat.length - 2]; correct = (long) flat[flat.length - 1]; }
+        return new EpochResult(epoch, lossSum / seen, correct / (double) seen, seen);
+    }
+
+    private void step(int start, int n) throws InterruptedException {
+        Instrumentation ins = Instruments.get();
+        if (ins == Instrumentation.NONE) { runStep(start, n); return; }
+        long t0 = System.nanoTime(), a0 = Instruments.allocatedBytes();
+        runStep(start, n);
+        long allocated = a0 < 0 ? -1L : Instruments.allocatedBytes() - a0;
+        ins.trainStep(n, System.nanoTime() - t0, allocated);
+    }
+
+    private void runStep(int start, int n) throws InterruptedException {
+        int workers = shards.length;
+        // this rank's slice of the batch; the whole batch when not distributed
+        int off = start, local = n;
+        if (ring != null){
+            for (int r=0; r<ring.rank(); r++) off += shardSize(n, ring.size(), r);
+            local = shardSize(n, ring.size(), ring.rank());
+        }
+        for (int w=0; w<workers; w++){
+            int size = shardSize(local, workers, w);
+            shards[w].assign(off, size);
+            off += size;
+        }
+        // gradients are weighted by rows over the global batch when they are summed across ranks
+        boolean summed = ring != null && syncEvery == 1;
+        if (pool == null){
+            shards[0].call();
+            if (summed) scaleGrads(local / (double) n);
+        } else {
+            List<Future<Void>> fs = pool.invokeAll(List.of(shards));
+            try {
+                for (Future<Void> f : fs) f.get();
+            } catch (ExecutionException e){
+                throw new IllegalStateException("Training worker failed", e.getCause());
+            }
+            reduce(summed || local == 0 ? n : local);
+        }
+        stepLoss = 0.0; stepCorrect = 0;
+        for (Shard s : shards){ stepLoss += s.lossSum; stepCorrect += s.correct; }
+        if (summed) allReduceGrads();
+        if (local > 0 || summed){
+            if (fmodel == null){
+                optim.step(params);
+            } else {
+                SGD sgd = (SGD) optim;
+                sgd.step(fmodel.l1.W, fgrad.dW1, fmodel.l1.b, fgrad.db1);
+                sgd.step(fmodel.l2.W, fgrad.dW2, fmodel.l2.b, fgrad.db2);
+            }
+        }
+        steps++;
+        if (averaging() && ++unsynced == syncEvery) average(0.0, 0);
+        if (telemetry != null && local > 0){
+            int rows = summed ? n : local;
+            publishStep(n, local, stepLoss / rows, stepCorrect / (double) rows);
+        }
+    }
+
+    private boolean averaging(){ return ring != null && syncEvery > 1; }
+
+    /** Sums the gradients and the step's loss and hit count over all ranks. */
+    private void allReduceGrads(){
+        int k = 0;
+        if (fmodel != null) for (float[] a : floatGrads){ for (float x : a) flat[k++] = x; }
+        else for (Param p : params){ System.arraycopy(p.grad, 0, flat, k, p.grad.length); k += p.grad.length; }
+        flat[k] = stepLoss; flat[k + 1] = stepCorrect;
+        allReduce();
+        k = 0;
+        if (fmodel != null) for (float[] a : floatGrads){ for (int i=0;i<a.length;i++) a[i] = (float) flat[k++]; }
+        else for (Param p : params){ System.arraycopy(flat, k, p.grad, 0, p.grad.length); k += p.grad.length; }
+        stepLoss = flat[k]; stepCorrect = (long) flat[k + 1];
+    }
+
+    /** Replaces the weights by their mean over all ranks; the two totals are summed into the last two slots of {@code flat}. */
+    private void average(double loss, long correct){
+        int k = 0;
+        if (fmodel != null) for (float[] a : floatValues){ for (float x : a) flat[k++] = x; }
+        else for (Param p : params){ System.arraycopy(p.value, 0, flat, k, p.value.length); k += p.value.length; }
+        flat[k] = loss; flat[k + 1] = correct;
+        allReduce();
+        double size = ring.size();
+        k = 0;
+        if (fmodel != null) for (float[] a : floatValues){ for (int i=0;i<a.length;i++) a[i] = (float) (flat[k++] / size); }
+        else for (Param p : params){ for (int i=0;i<p.value.length;i++) p.value[i] = flat[k++] / size; }
+        unsynced = 0;
+    }
+
+    private void allReduce(){
+        try {
+            ring.allReduce(flat);
+        } catch (IOException e){
+            throw new UncheckedIOException("rank " + ring.rank() + " lost the ring: " + e.getMessage(), e);
+        }
+    }
+
+    private void scaleGrads(double a){
+        if (fmodel != null) for (float[] g : floatGrads){ float f = (float) a; for (int i=0;i<g.length;i++) g[i] = a == 0.0 ? 0f : f * g[i]; }
+        else for (Param p : params){ double[] g = p.grad; for (int i=0;i<g.length;i++) g[i] = a == 0.0 ? 0.0 : a * g[i]; }
+    }
+
+    private void publishStep(int n, int local, double loss, double accuracy){
+        long now = System.nanoTime();
+        double sps = n * 1e9 / Math.max(1L, now - lastStepNanos);
+        lastStepNanos = now;
+        java.util.Arrays.fill(actSums, 0.0);
+        long active = 0;
+        for (Shard s : shards) if (s.rows > 0) active += s.sumActivations(actSums);
+        for (int j=0;j<actSums.length;j++) actSums[j] /= local;
+        double norm = 0.0;
+        if (params != null) for (int i=0;i<params.size();i++) norm += sumSquares(params.get(i).grad);
+        else norm = sumSquares(fgrad.dW1.data) + sumSquares(fgrad.db1) + sumSquares(fgrad.dW2.data) + sumSquares(fgrad.db2);
+        telemetry.publish(epoch, steps, loss, accuracy, Math.sqrt(norm), sps, active / ((double) local * actSums.length), actSums);
+    }
+
+    private static double sumSquares(double[] v){
+        double s = 0.0;
+        for (double x : v) s += x*x;
+        return s;
+    }
+
+    private static double sumSquares(float[] v){
+        double s = 0.0;
+        for (float x : v) s += (double) x*x;
+        return s;
+    }
+
+    /** grad = sum_w (n_w / n) * grad_w, in worker order so results do not depend on scheduling. */
+    private void reduce(int n){
+        if (net != null){
+            for (int i=0;i<params.size();i++) Arrays.fill(params.get(i).grad, 0.0);
+        } else if (model != null){
+            Arrays.fill(grad.dW1.data, 0.0); Arrays.fill(grad.db1, 0.0);
+            Arrays.fill(grad.dW2.data, 0.0); Arrays.fill(grad.db2, 0.0);
+        } else {
+            Arrays.fill(fgrad.dW1.data, 0f); Arrays.fill(fgrad.db1, 0f);
+            Arrays.fill(fgrad.dW2.data, 0f); Arrays.fill(fgrad.db2, 0f);
+        }
+        for (Shard s : shards){
+            if (s.rows > 0) s.accumulateInto(s.rows / (double) n);
+        }
+    }
+
+    private static void axpy(double a, double[] x, double[] y){
+        for (int i=0;i<y.length;i++) y[i] += a * x[i];
+    }
+
+    private static void axpy(float a, float[] x, float[] y){
+        for (int i=0;i<y.length;i++) y[i] += a * x[i];
+    }
+
+    static int shardSize(int n, int workers, int w){
+        return n / workers + (w < n % workers ? 1 : 0);
+    }
+
+    static void shuffle(int[] a, Random rnd){
+        for (int i=a.length-1;i>0;i--){
+            int j = rnd.nextInt(i+1);
+            int t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+    }
+
+    private abstract class Shard implements Callable<Void> {
+        final int size;
+        final int[] ys;
+        int[] yv;
+        int from, rows = -1;
+        double lossSum; long correct;
+
+        Shard(int size){
+            this.size = size;
+            ys = new int[size];
+        }
+
+        void assign(int from, int rows){
+            this.from = from;
+            if (rows != this.rows){
+                this.rows = rows;
+                yv = rows == size ? ys : new int[rows];
+                resize(rows);
+            }
+        }
+
+        @Override
+        public Void call(){
+            lossSum = 0.0; correct = 0;
+            if (rows == 0) return null;
+            for (int i=0;i<rows;i++){
+                int src = perm[from + i];
+                gatherRow(i, X.offset + src*X.rowStride);
+                yv[i] = y[src];
+            }
+            compute();
+            return null;
+        }
+
+        abstract void resize(int rows);
+        abstract void gatherRow(int dst, int srcOffset);
+        abstract void compute();
+        abstract void accumulateInto(double weight);
+        /** Adds this shard's hidden activations into per-unit sums; returns how many were positive. */
+        abstract long sumActivations(double[] sums);
+    }
+
+    private final class DoubleShard extends Shard {
+        final Matrix xs;
+        final Workspace ws;
+        Matrix x; Workspace cur;
+
+        DoubleShard(int size){
+            super(size);
+            xs = new Matrix(size, model.l1.nIn);
+            ws = new Workspace(size, model);
+        }
+
+        @Override void resize(int rows){ x = xs.rows(0, rows); cur = ws.rows(rows); }
+
+        @Override void gatherRow(int dst, int s){
+            int d = X.cols;
+            if (X.colStride == 1) System.arraycopy(X.data, s, x.data, dst*d, d);
+            else for (int j=0;j<d;j++) x.data[dst*d + j] = X.data[s + j*X.colStride];
+        }
+
+        @Override void compute(){
+            model.logitsInto(x, cur.a1, cur.probs);
+            lossSum = SoftmaxCrossEntropy.forwardBackward(cur.probs, yv, cur.probs, cur.dZ2) * rows;
+            correct = countCorrect(cur.probs, yv);
+            Trainer.backward(model, x, cur);
+        }
+
+        @Override void accumulateInto(double wgt){
+            Trainer.Grad g = ws.grad;
+            axpy(wgt, g.dW1.data, grad.dW1.data);
+            axpy(wgt, g.db1, grad.db1);
+            axpy(wgt, g.dW2.data, grad.dW2.data);
+            axpy(wgt, g.db2, grad.db2);
+        }
+
+        @Override long sumActivations(double[] sums){
+            Matrix a = cur.a1;
+            long active = 0;
+            for (int i=0;i<a.rows;i++){
+                int base = a.offset + i*a.rowStride;
+                for (int j=0;j<a.cols;j++){
+                    double v = a.data[base + j*a.colStride];
+                    sums[j] += v;
+                    if (v > 0.0) active++;
+                }
+            }
+            return active;
+        }
+    }
+
+    private final class LayerShard extends Shard {
+        final Sequential replica;
+        final List<Param> own;
+        final Matrix xs, dzs;
+        Matrix x, dz;
+
+        LayerShard(int size, Sequential replica){
+            super(size);
+            this.replica = replica;
+            this.own = replica.params();
+            xs = new Matrix(size, replica.inputSize());
+            dzs = new Matrix(size, replica.outputSize());
+        }
+
+        @Override void resize(int rows){ x = xs.rows(0, rows); dz = dzs.rows(0, rows); }
+
+        @Override void gatherRow(int dst, int s){
+            int d = X.cols;
+            if (X.colStride == 1) System.arraycopy(X.data, s, x.data, dst*d, d);
+            else for (int j=0;j<d;j++) x.data[dst*d + j] = X.data[s + j*X.colStride];
+        }
+
+        @Override void compute(){
+            Matrix logits = replica.forward(x);
+            lossSum = SoftmaxCrossEntropy.forwardBackward(logits, yv, logits, dz) * rows;
+            correct = countCorrect(logits, yv);
+            replica.backward(dz);
+        }
+
+        @Override void accumulateInto(double wgt){
+            for (int i=0;i<own.size();i++) axpy(wgt, own.get(i).grad, params.get(i).grad);
+        }
+
+        @Override long sumActivations(double[] sums){
+            Matrix a = replica.hidden();
+            long active = 0;
+            for (int i=0;i<a.rows;i++){
+                int base = a.offset + i*a.rowStride;
+                for (int j=0;j<a.cols;j++){
+                    double v = a.data[base + j*a.colStride];
+                    sums[j] += v;
+                    if (v > 0.0) active++;
+                }
+            }
+            return active;
+        }
+    }
+
+    private final class FloatShard extends Shard {
+        final FMatrix xs;
+        final FloatWorkspace ws;
+        FMatrix x; FloatWorkspace cur;
+
+        FloatShard(int size){
+            super(size);
+            xs = new FMatrix(size, fmodel.l1.nIn);
+            ws = new FloatWorkspace(size, fmodel);
+        }
+
+        @Override void resize(int rows){ x = xs.rows(0, rows); cur = ws.rows(rows); }
+
+        @Override void gatherRow(int dst, int s){
+            int d = X.cols;
+            for (int j=0;j<d;j++) x.data[dst*d + j] = (float) X.data[s + j*X.colStride];
+        }
+
+        @Override void compute(){
+            fmodel.logitsInto(x, cur.a1, cur.probs);
+            lossSum = SoftmaxCrossEntropy.forwardBackward(cur.probs, yv, cur.probs, cur.dZ2) * rows;
+            correct = countCorrect(cur.probs, yv);
+            Trainer.backward(fmodel, x, cur);
+        }
+
+        @Override void accumulateInto(double wgt){
+            Trainer.FloatGrad g = ws.grad;
+            float w = (float) wgt;
+            axpy(w, g.dW1.data, fgrad.dW1.data);
+            axpy(w, g.db1, fgrad.db1);
+            axpy(w, g.dW2.data, fgrad.dW2.data);
+            axpy(w, g.db2, fgrad.db2);
+        }
+
+        @Override long sumActivations(double[] sums){
+            FMatrix a = cur.a1;
+            long active = 0;
+            for (int i=0;i<a.rows;i++){
+                for (int j=0;j<a.cols;j++){
+                    float v = a.get(i, j);
+                    sums[j] += v;
+                    if (v > 0f) active++;
+                }
+            }
+            return active;
+        }
+    }
+
+    static long countCorrect(Matrix probs, int[] yTrue){
+        long correct = 0;
+        for (int i=0;i<probs.rows;i++){
+            int base = probs.offset + i*probs.rowStride;
+            double max = -1; int arg = -1;
+            for (int j=0;j<probs.cols;j++){
+                double v = probs.data[base + j*probs.colStride];
+                if (v > max){ max = v; arg = j; }
+            }
+            if (arg == yTrue[i]) correct++;
+        }
+        return correct;
+    }
+
+    static long countCorrect(FMatrix probs, int[] yTrue){
+        long correct = 0;
+        for (int i=0;i<probs.rows;i++){
+            float max = -1f; int arg = -1;
+            for (int j=0;j<probs.cols;j++){
+                float v = probs.get(i, j);
+                if (v > max){ max = v; arg = j; }
+            }
+            if (arg == yTrue[i]) correct++;
+        }
+        return correct;
+    }
+
+    @Override
+    public void close(){
+        if (pool != null) pool.shutdownNow();
+    }
+}
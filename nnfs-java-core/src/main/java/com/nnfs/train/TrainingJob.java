@@ -0,0 +1,191 @@
+package com.nnfs.train;
+
+import com.nnfs.data.BinaryDataset;
+import com.nnfs.data.CsvDataset;
+import com.nnfs.data.DataLoader;
+import com.nnfs.data.Dataset;
+import com.nnfs.data.InMemoryDataset;
+import com.nnfs.data.SpiralData;
+import com.nnfs.dist.Coordinator;
+import com.nnfs.dist.Ring;
+import com.nnfs.math.Matrix;
+import com.nnfs.math.Precision;
+import com.nnfs.nn.FloatModel;
+import com.nnfs.nn.Model;
+import com.nnfs.nn.Predictor;
+import com.nnfs.nn.Sequential;
+import com.nnfs.optim.Optimizer;
+import com.nnfs.optim.SGD;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * One training run on the spiral dataset (or a dataset file streamed through a {@link DataLoader}), usable from {@link Trainer#main} or as a background
+ * task. Progress is published per step into {@link #telemetry()} and per epoch to an optional
+ * listener; {@link #cancel()} stops the run at the next epoch boundary. With
+ * {@code checkpointEvery} set, a {@link Checkpointer} saves the run in the background every that
+ * many epochs and when it ends; with {@code resume} the newest checkpoint is loaded up front and
+ * the run continues from its epoch. With {@code processes > 1} the job first joins the other
+ * processes (rank 0 hosts the {@link Coordinator}) and trains as one rank of the {@link Ring};
+ * only rank 0 writes checkpoints, and every rank resumes from the same directory.
+ */
+public class TrainingJob implements Runnable {
+    public enum State { PENDING, RUNNING, DONE, CANCELLED, FAILED }
+
+    public static final int POINTS = 100, CLASSES = 3;
+
+    private final TrainConfig cfg;
+    private final Dataset dataset;
+    private final Matrix X;
+    private final int[] y;
+    private final TelemetryRing telemetry;
+    private volatile Consumer<TrainingEngine.EpochResult> onEpoch = r -> {};
+    private volatile State state = State.PENDING;
+    private volatile boolean cancelled;
+    private volatile TrainingEngine.EpochResult last;
+    private volatile Predictor result;
+    private volatile Model doubleResult;
+    private volatile Throwable error;
+    private final Checkpoint resumeFrom;
+
+    public TrainingJob(TrainConfig cfg){
+        this.cfg = cfg;
+        if (cfg.data == null){
+            InMemoryDataset spiral = SpiralData.dataset(POINTS, CLASSES, 42);
+            this.dataset = spiral;
+            this.X = spiral.X;
+            this.y = spiral.y;
+        } else {
+            this.dataset = open(cfg);
+            this.X = null;
+            this.y = null;
+        }
+        this.telemetry = new TelemetryRing(1024, cfg.hidden[cfg.hidden.length - 1]);
+        this.resumeFrom = cfg.resume ? latest(cfg) : null;
+    }
+
+    private static Checkpoint latest(TrainConfig cfg){
+        Checkpoint c;
+        try {
+            c = Checkpointer.latest(Path.of(cfg.checkpointDir));
+        } catch (IOException e){
+            throw new IllegalArgumentException("Cannot resume: " + e.getMessage(), e);
+        }
+        if (c != null && !c.config.equals(cfg.fingerprint()))
+            throw new IllegalArgumentException("Cannot resume: the checkpoint was written with different settings\n  checkpoint: "
+                    + c.config + "\n  now:        " + cfg.fingerprint());
+        return c;
+    }
+
+    /** A .csv file (needs --classes) or a {@link BinaryDataset} file. */
+    static Dataset open(TrainConfig cfg){
+        Path p = Path.of(cfg.data);
+        try {
+            if (p.getFileName().toString().endsWith(".csv")){
+                if (cfg.classes <= 0) throw new IllegalArgumentException("--classes is required for CSV data");
+                return new CsvDataset(p, cfg.classes, cfg.labelColumn);
+            }
+            return new BinaryDataset(p);
+        } catch (IOException e){
+            throw new IllegalArgumentException("Cannot read dataset " + p + ": " + e.getMessage(), e);
+        }
+    }
+
+    public TrainingJob onEpoch(Consumer<TrainingEngine.EpochResult> listener){ this.onEpoch = listener; return this; }
+
+    @Override
+    public void run(){
+        state = State.RUNNING;
+        try {
+            int in = dataset.features(), out = dataset.classes();
+            Optimizer optim = cfg.optimizer(cfg.stepsPerEpoch(rows()));
+            boolean f32 = cfg.precision == Precision.FLOAT32;
+            Model model = cfg.layered() ? null : new Model(in, cfg.hidden[0], out, cfg.seed);
+            Sequential net = cfg.layered() ? Sequential.mlp(in, cfg.hidden, out, cfg.activation, cfg.seed) : null;
+            try (DataLoader loader = X != null ? null
+                    : new DataLoader(dataset, cfg.batchSize, cfg.shuffle ? cfg.shuffleBuffer : 0, cfg.seed, cfg.dropLast, cfg.prefetch,
+                                     resumeFrom == null ? null : resumeFrom.dataRng);
+                 TrainingEngine engine = loader == null
+                    ? (net != null ? new TrainingEngine(net, optim, X, y, cfg)
+                       : f32 ? new TrainingEngine(new FloatModel(model), (SGD) optim, X, y, cfg)
+                       : new TrainingEngine(model, optim, X, y, cfg))
+                    : (net != null ? new TrainingEngine(net, optim, loader, cfg)
+                       : f32 ? new TrainingEngine(new FloatModel(model), (SGD) optim, loader, cfg)
+                       : new TrainingEngine(model, optim, loader, cfg));
+                 Checkpointer checkpoints = cfg.checkpointEvery > 0 && cfg.rank == 0 ? new Checkpointer(Path.of(cfg.checkpointDir), cfg.keepCheckpoints) : null;
+                 Ring ring = cfg.processes > 1 ? join() : null){
+                engine.setTelemetry(telemetry);
+                if (ring != null) engine.distribute(ring, cfg.syncEvery);
+                if (resumeFrom != null) engine.restore(resumeFrom);
+                String fingerprint = cfg.fingerprint();
+                for (int epoch=engine.epoch()+1; epoch<=cfg.epochs && !cancelled; epoch++){
+                    last = engine.runEpoch();
+                    onEpoch.accept(last);
+                    if (checkpoints == null) continue;
+                    if (epoch == cfg.epochs || cancelled) checkpoints.saveNow(engine, fingerprint);
+                    else if (epoch % cfg.checkpointEvery == 0) checkpoints.save(engine, fingerprint);
+                }
+                result = engine.network() != null ? engine.network() : f32 ? engine.floatModel() : model;
+                doubleResult = engine.network() != null ? null : f32 ? engine.floatModel().toDouble() : model;
+            }
+            state = cancelled ? State.CANCELLED : State.DONE;
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            state = State.CANCELLED;
+        } catch (RuntimeException | Error e){
+            error = e;
+            state = State.FAILED;
+            throw e;
+        }
+    }
+
+    /** Rendezvous with the other processes; rank 0 runs the coordinator until everyone has arrived. */
+    private Ring join(){
+        long timeout = cfg.timeoutSeconds * 1000L;
+        Coordinator c = null;
+        try {
+            if (cfg.rank == 0) c = Coordinator.start(Ring.address(cfg.coordinator), cfg.processes, timeout);
+            return Ring.join(cfg.coordinator, cfg.rank, cfg.processes, cfg.fingerprint(), timeout);
+        } catch (IOException e){
+            throw new java.io.UncheckedIOException("rank " + cfg.rank + " could not join the other processes: " + e.getMessage(), e);
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    /** Records per epoch; a CSV file is counted with one extra pass, and only when a schedule needs it. */
+    private int rows(){
+        if (X != null) return X.rows;
+        if (dataset.size() >= 0) return (int) Math.min(Integer.MAX_VALUE, dataset.size());
+        if (cfg.schedule.equals("constant") && cfg.warmup == 0) return 1;
+        long n = 0;
+        double[] row = new double[dataset.features()];
+        try (Dataset.Cursor c = dataset.open()){
+            while (c.next(row, 0) >= 0) n++;
+        } catch (IOException e){
+            throw new java.io.UncheckedIOException(e);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, n);
+    }
+
+    public void cancel(){ cancelled = true; }
+
+    public TrainConfig config(){ return cfg; }
+    public State state(){ return state; }
+    public TelemetryRing telemetry(){ return telemetry; }
+    /** Most recent epoch summary, or null before the first epoch completes. */
+    public TrainingEngine.EpochResult lastEpoch(){ return last; }
+    /** The trained model in the configured precision, once the run has finished. */
+    public Predictor result(){ return result; }
+    /** The trained two-layer model as float64, once the run has finished; null for layered networks. */
+    public Model doubleResult(){ return doubleResult; }
+    public Throwable error(){ return error; }
+    /** The checkpoint this run continues from, or null when it starts fresh. */
+    public Checkpoint resumedFrom(){ return resumeFrom; }
+    public Dataset dataset(){ return dataset; }
+    /** The in-memory training inputs, or null when streaming from a file. */
+    public Matrix inputs(){ return X; }
+    public int[] labels(){ return y; }
+}
@@ -0,0 +1,46 @@
+package com.nnfs.train;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.nn.Model;
+
+/**
+ * Buffers for one training step, sized once for a (batch, input, hidden, output) shape so
+ * that the steady-state forward/backward/update loop allocates nothing.
+ */
+public final class Workspace {
+    public final int batch, input, hidden, output;
+    public final Matrix a1, probs, dZ2, dZ1;
+    public final Trainer.Grad grad;
+
+    public Workspace(int batch, int input, int hidden, int output){
+        this.batch = batch; this.input = input; this.hidden = hidden; this.output = output;
+        a1 = new Matrix(batch, hidden);
+        probs = new Matrix(batch, output);
+        dZ2 = new Matrix(batch, output);
+        dZ1 = new Matrix(batch, hidden);
+        grad = new Trainer.Grad(input, hidden, output);
+    }
+
+    public Workspace(int batch, Model model){
+        this(batch, model.l1.nIn, model.l1.nOut, model.l2.nOut);
+    }
+
+    private Workspace(Workspace full, int batch){
+        this.batch = batch; input = full.input; hidden = full.hidden; output = full.output;
+        a1 = full.a1.rows(0, batch);
+        probs = full.probs.rows(0, batch);
+        dZ2 = full.dZ2.rows(0, batch);
+        dZ1 = full.dZ1.rows(0, batch);
+        grad = full.grad;
+    }
+
+    /** A workspace over the first {@code n} rows of this one, sharing its buffers and gradients. */
+    public Workspace rows(int n){
+        if (n > batch) throw new IllegalArgumentException("workspace holds " + batch + " rows, asked for " + n);
+        return n == batch ? this : new Workspace(this, n);
+    }
+
+    public boolean fits(int batch, Model model){
+        return this.batch == batch && input == model.l1.nIn && hidden == model.l1.nOut && output == model.l2.nOut;
+    }
+}
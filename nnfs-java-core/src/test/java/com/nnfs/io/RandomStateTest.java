@@ -0,0 +1,46 @@
+package com.nnfs.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RandomStateTest {
+
+    @Test
+    void sameSequenceAsJavaUtilRandom(){
+        for (long seed : new long[]{0L, 1337L, -42L, Long.MAX_VALUE}){
+            Random a = new Random(seed);
+            SeededRandom b = new SeededRandom(seed);
+            for (int i=0;i<1000;i++){
+                assertEquals(a.nextInt(), b.nextInt());
+                assertEquals(a.nextInt(97), b.nextInt(97));
+                assertEquals(a.nextLong(), b.nextLong());
+                assertEquals(a.nextDouble(), b.nextDouble());
+                assertEquals(a.nextFloat(), b.nextFloat());
+                assertEquals(a.nextGaussian(), b.nextGaussian());
+                assertEquals(a.nextBoolean(), b.nextBoolean());
+            }
+        }
+    }
+
+    @Test
+    void restoredGeneratorContinuesTheSequence(){
+        SeededRandom r = new SeededRandom(7);
+        r.nextGaussian(); // leaves the pair's second value cached
+        SeededRandom copy = RandomState.load(RandomState.save(r));
+        for (int i=0;i<100;i++){
+            assertEquals(r.nextGaussian(), copy.nextGaussian());
+            assertEquals(r.nextInt(10), copy.nextInt(10));
+        }
+    }
+
+    @Test
+    void rejectsAnythingButTheStateBytes(){
+        assertThrows(IllegalArgumentException.class, () -> RandomState.load(new byte[0]));
+        byte[] serialized = {(byte) 0xAC, (byte) 0xED, 0, 5, 0x73, 0x72, 0, 16, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        assertThrows(IllegalArgumentException.class, () -> RandomState.load(serialized));
+    }
+}
@@ -0,0 +1,77 @@
+package com.nnfs.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gemms running as common-pool tasks: a worker waiting on the row panels of a parallel product
+ * picks up other tasks, and their gemms run on the same thread as the outer call.
+ */
+class GemmConcurrencyTest {
+
+    private static Matrix random(int rows, int cols, Random rnd){
+        Matrix m = new Matrix(rows, cols);
+        for (int i=0;i<m.data.length;i++) m.data[i] = rnd.nextGaussian();
+        return m;
+    }
+
+    private static Matrix reference(Matrix A, Matrix B){
+        Matrix C = new Matrix(A.rows, B.cols);
+        for (int i=0;i<A.rows;i++)
+            for (int p=0;p<A.cols;p++)
+                for (int j=0;j<B.cols;j++) C.data[i*C.cols + j] += A.get(i, p) * B.get(p, j);
+        return C;
+    }
+
+    /** Multiplies leaf {@code t}'s matrices a few times and returns the largest error against the reference. */
+    private static double leaf(int t){
+        int n = SIZES[t % SIZES.length];
+        Random rnd = new Random(t);
+        Matrix A = random(n, n + 3, rnd), B = random(n + 3, n - 1, rnd);
+        Matrix ref = reference(A, B);
+        double worst = 0.0;
+        for (int rep=0;rep<4;rep++){
+            Matrix C = new Matrix(n, n - 1);
+            Gemm.gemm(1.0, A, B, 0.0, C);
+            for (int i=0;i<C.data.length;i++) worst = Math.max(worst, Math.abs(C.data[i] - ref.data[i]));
+        }
+        return worst;
+    }
+
+    // parallel (200^3, 160^3) and sequential blocked (48^3, 64^3) sizes interleaved
+    private static final int[] SIZES = {200, 48, 160, 64};
+
+    /** Forks its halves like a data-parallel step, so workers steal whole leaves while they join. */
+    private static final class Leaves extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        final int from, to;
+        Leaves(int from, int to){ this.from = from; this.to = to; }
+
+        @Override
+        protected Double compute(){
+            if (to - from == 1) return leaf(from);
+            int mid = (from + to) >>> 1;
+            Leaves right = new Leaves(mid, to);
+            right.fork();
+            double left = new Leaves(from, mid).compute();
+            return Math.max(left, right.join());
+        }
+    }
+
+    @Test
+    void nestedGemmsInCommonPoolTasksDoNotShareScratch(){
+        assertTrue(ForkJoinPool.getCommonPoolParallelism() > 1, "needs a common pool with more than one worker");
+        List<ForkJoinTask<Double>> roots = new ArrayList<>();
+        for (int r=0;r<4;r++) roots.add(ForkJoinPool.commonPool().submit(new Leaves(16 * r, 16 * r + 16)));
+        for (ForkJoinTask<Double> t : roots) assertEquals(0.0, t.join(), 1e-9);
+    }
+}
@@ -0,0 +1,22 @@
+package com.nnfs.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrecisionTest {
+
+    @Test
+    void parsesUpperCaseUnderATurkishDefaultLocale(){
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals(Precision.INT8, Precision.parse("INT8"));
+            assertEquals(Precision.FLOAT64, Precision.parse("F64"));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+}
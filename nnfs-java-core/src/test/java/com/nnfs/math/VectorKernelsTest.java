@@ -0,0 +1,80 @@
+package com.nnfs.math;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** The SIMD kernels against the scalar reference (surefire runs with {@code jdk.incubator.vector}). */
+class VectorKernelsTest {
+    static final double TOL = 1e-12;
+
+    private final Kernels ref = Kernels.scalar(), vec = Kernels.vector();
+
+    private static double[] gaussian(Random rnd, int n, double scale){
+        double[] v = new double[n];
+        for (int i=0;i<n;i++) v[i] = rnd.nextGaussian() * scale;
+        return v;
+    }
+
+    static double maxRelErr(double[] ref, double[] got){
+        double worst = 0.0;
+        for (int i=0;i<ref.length;i++){
+            double err = Math.abs(ref[i] - got[i]) / Math.max(1.0, Math.abs(ref[i]));
+            worst = Math.max(worst, err);
+        }
+        return worst;
+    }
+
+    private static void assertClose(String kernel, double[] ref, double[] got, double tol){
+        double err = maxRelErr(ref, got);
+        assertTrue(err <= tol, () -> String.format("%s rel.err=%.3e%n  ref=%s%n  got=%s", kernel, err,
+                Arrays.toString(Arrays.copyOf(ref, Math.min(8, ref.length))),
+                Arrays.toString(Arrays.copyOf(got, Math.min(8, got.length)))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 4, 7, 8, 15, 16, 33, 64, 257, 1000})
+    void elementwiseKernelsMatchScalar(int n){
+        assertNotNull(vec, "jdk.incubator.vector is not available");
+        Random rnd = new Random(n);
+        double[] x = gaussian(rnd, n, 5.0), y = gaussian(rnd, n, 1.0), b = gaussian(rnd, n, 1.0);
+
+        double[] r = y.clone(), v = y.clone();
+        ref.axpy(n, 0.37, x, 0, r, 0); vec.axpy(n, 0.37, x, 0, v, 0);
+        assertClose("axpy", r, v, TOL);
+
+        r = x.clone(); v = x.clone();
+        ref.biasRelu(n, r, 0, b, 0, true); vec.biasRelu(n, v, 0, b, 0, true);
+        assertClose("biasRelu", r, v, TOL);
+
+        r = y.clone(); v = y.clone();
+        ref.reluBackward(n, r, 0, x, 0); vec.reluBackward(n, v, 0, x, 0);
+        assertClose("reluBackward", r, v, TOL);
+
+        r = x.clone(); v = x.clone();
+        ref.softmax(n, r, 0); vec.softmax(n, v, 0);
+        assertClose("softmax", r, v, TOL);
+
+        r = x.clone(); v = x.clone();
+        ref.sgd(n, r, 0, y, 0, 0.1, 1e-4); vec.sgd(n, v, 0, y, 0, 0.1, 1e-4);
+        assertClose("sgd", r, v, TOL);
+    }
+
+    /** K panels from MIN_KC up, so the vector tile runs; C has a wider stride and is accumulated into. */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 31, 225})
+    void kernel4x4MatchesScalar(int extra){
+        assertNotNull(vec, "jdk.incubator.vector is not available");
+        int kc = VectorKernels.MIN_KC + extra, ldc = 7;
+        Random rnd = new Random(kc);
+        double[] a = gaussian(rnd, 4*kc, 1.0), b = gaussian(rnd, 4*kc, 1.0), c = gaussian(rnd, 3*ldc + 5, 1.0);
+        double[] r = c.clone(), v = c.clone();
+        ref.kernel4x4(kc, a, 0, b, 0, r, 1, ldc); vec.kernel4x4(kc, a, 0, b, 0, v, 1, ldc);
+        assertClose("kernel4x4 kc=" + kc, r, v, TOL * Math.sqrt(kc));
+    }
+}
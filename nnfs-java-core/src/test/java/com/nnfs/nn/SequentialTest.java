@@ -0,0 +1,52 @@
+package com.nnfs.nn;
+
+import com.nnfs.math.Matrix;
+import com.nnfs.math.MatrixOps;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SequentialTest {
+
+    private static final double[][] X = {{0.5, -1.0}, {2.0, 0.25}, {-0.75, 0.0}};
+
+    @Test
+    void concurrentForwardMatchesTheTrainingForward(){
+        Sequential net = Sequential.mlp(2, new int[]{16, 8}, 3, "tanh", 3L);
+        Matrix ref = net.replica().forward(Matrix.of(X)).copy();
+        MatrixOps.softmaxInPlace(ref);
+        double[][] got = net.forward(X);
+        for (int r=0;r<X.length;r++) assertArrayEquals(ref.toArray()[r], got[r]);
+    }
+
+    @Test
+    void poolThreadsDoNotKeepRetiredNetworksAlive() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // the weights, not just the Sequential: a per-thread replica would share them
+            List<WeakReference<double[]>> retired = new ArrayList<>();
+            for (int i=0;i<20;i++){
+                Sequential net = Sequential.mlp(2, new int[]{64}, 3, "relu", i);
+                pool.submit(() -> net.forward(X)).get();
+                retired.add(new WeakReference<>(net.params().get(0).value));
+            }
+            int alive = retired.size();
+            for (int attempt=0;attempt<50 && alive > 0;attempt++){
+                System.gc();
+                Thread.sleep(20);
+                alive = 0;
+                for (WeakReference<double[]> r : retired) if (r.get() != null) alive++;
+            }
+            assertEquals(0, alive, "networks still reachable from the pool thread");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nnfs.quant;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantizedModelTest {
+
+    private static byte[] file(QuantizedModel m) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        m.write(out);
+        return out.toByteArray();
+    }
+
+    private static QuantizedModel model(){
+        byte[] w1 = new byte[2*3], w2 = new byte[3*2];
+        for (int i=0;i<w1.length;i++) { w1[i] = (byte) (i * 17 - 40); w2[i] = (byte) (90 - i * 31); }
+        return new QuantizedModel(2, 3, 2, w1, new float[]{0.01f, 0.02f, 0.03f}, new float[]{0.1f, -0.1f, 0f},
+                w2, new float[]{0.05f, 0.04f}, new float[]{0f, 0.2f}, 0.02f, 0.03f);
+    }
+
+    @Test
+    void roundTrips() throws IOException {
+        QuantizedModel m = model(), r = QuantizedModel.read(new ByteArrayInputStream(file(m)));
+        assertEquals(3, r.nHidden);
+        assertArrayEquals(m.forward(new double[][]{{0.3, -1.2}})[0], r.forward(new double[][]{{0.3, -1.2}})[0]);
+    }
+
+    @Test
+    void corruptedWeightIsRejected() throws IOException {
+        byte[] f = file(model());
+        f[8 + 20 + 1] ^= 0x10; // a byte of w1
+        IOException e = assertThrows(IOException.class, () -> QuantizedModel.read(new ByteArrayInputStream(f)));
+        assertEquals("Quantized model checksum mismatch", e.getMessage());
+    }
+
+    /** A file that stops right after the shape and scales. */
+    private static byte[] header(int nIn, int nHidden, int nOut){
+        return ByteBuffer.allocate(28).putInt(QuantizedModel.MAGIC).putInt(QuantizedModel.VERSION)
+                .putInt(nIn).putInt(nHidden).putInt(nOut).putFloat(0.02f).putFloat(0.03f).array();
+    }
+
+    private static long allocated(){
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    void shapeOverflowingAnIntIsRejected(){
+        IOException e = assertThrows(IOException.class,
+                () -> QuantizedModel.read(new ByteArrayInputStream(header(65537, 65535, 10))));
+        assertTrue(e.getMessage().contains("too large"), e.getMessage());
+    }
+
+    @Test
+    void largeShapeWithShortBodyFailsBeforeAllocatingIt(){
+        byte[] f = header(40000, 40000, 10);
+        long before = allocated();
+        assertThrows(IOException.class, () -> QuantizedModel.read(new ByteArrayInputStream(f)));
+        assertTrue(allocated() - before < 1 << 20, "allocated " + (allocated() - before) + " bytes");
+    }
+}